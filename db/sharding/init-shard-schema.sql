@@ -26,7 +26,7 @@ CREATE TABLE IF NOT EXISTS locations (
     address TEXT,
     latitude DECIMAL(10, 6),
     longitude DECIMAL(11, 6),
-    visit_order INTEGER CHECK (visit_order > 0),
+    visit_order INTEGER,
     arrival_date TIMESTAMP WITH TIME ZONE,
     departure_date TIMESTAMP WITH TIME ZONE,
                                                                                                       budget DECIMAL(10,2),
@@ -41,6 +41,45 @@ CREATE TABLE IF NOT EXISTS locations (
     CONSTRAINT unique_plan_order UNIQUE (travel_plan_id, visit_order)
     );
 
+-- No sign CHECK on visit_order, as in db/migration/V1__init.sql: a rebalance
+-- negates a plan's orders before renumbering them (LocationRepository.negateVisitOrders)
+ALTER TABLE locations DROP CONSTRAINT IF EXISTS locations_visit_order_check;
+
+-- JSONB columns mapped by the entities (see db/migration/V3__add_jsonb_columns.sql)
+ALTER TABLE travel_plans ADD COLUMN IF NOT EXISTS metadata JSONB DEFAULT '{}'::jsonb NOT NULL;
+ALTER TABLE locations ADD COLUMN IF NOT EXISTS attributes JSONB DEFAULT '{}'::jsonb NOT NULL;
+
+-- Keyset pages of plan lists and searches (see db/migration/V4__add_travel_plans_keyset_index.sql)
+CREATE INDEX IF NOT EXISTS idx_travel_plans_created_at_id
+    ON travel_plans (created_at, id);
+
+-- Per-key change versions (see db/migration/V6__jsonb_key_versions.sql)
+ALTER TABLE travel_plans ADD COLUMN IF NOT EXISTS metadata_key_versions JSONB DEFAULT '{}'::jsonb NOT NULL;
+ALTER TABLE travel_plans ADD COLUMN IF NOT EXISTS metadata_reset_version INTEGER DEFAULT 0 NOT NULL;
+ALTER TABLE locations ADD COLUMN IF NOT EXISTS attribute_key_versions JSONB DEFAULT '{}'::jsonb NOT NULL;
+ALTER TABLE locations ADD COLUMN IF NOT EXISTS attributes_reset_version INTEGER DEFAULT 0 NOT NULL;
+
+-- Version share of deleted locations (see db/migration/V7__location_deletions.sql)
+CREATE TABLE IF NOT EXISTS location_deletions (
+    travel_plan_id UUID PRIMARY KEY REFERENCES travel_plans (id) ON DELETE CASCADE,
+    version        INTEGER NOT NULL
+);
+
+-- Tag search (see db/migration/V8__travel_plans_tags_index.sql)
+CREATE INDEX IF NOT EXISTS idx_travel_plans_metadata_tags
+    ON travel_plans USING GIN ((metadata->'tags') jsonb_path_ops);
+
+-- Preference lookups (see db/migration/V9__align_jsonb_expression_indexes.sql)
+CREATE INDEX IF NOT EXISTS idx_travel_plans_preferences_travel_style
+    ON travel_plans ((metadata->'preferences'->>'travel_style'));
+CREATE INDEX IF NOT EXISTS idx_travel_plans_preferences_budget_category
+    ON travel_plans ((metadata->'preferences'->>'budget_category'));
+
+-- Nearby-locations search (see db/migration/V10__locations_geo_index.sql)
+CREATE INDEX IF NOT EXISTS idx_locations_geo
+    ON locations USING GIST (point(CAST(longitude AS float8), CAST(latitude AS float8)))
+    WHERE latitude IS NOT NULL AND longitude IS NOT NULL;
+
 -- Index for efficient location queries
 CREATE INDEX IF NOT EXISTS idx_locations_plan_order ON locations(travel_plan_id, visit_order);
 
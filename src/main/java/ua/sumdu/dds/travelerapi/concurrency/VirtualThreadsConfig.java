@@ -0,0 +1,44 @@
+package ua.sumdu.dds.travelerapi.concurrency;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Guards the application DataSource when requests run on virtual threads.
+ *
+ * spring.threads.virtual.enabled=true (VIRTUAL_THREADS) makes Tomcat run
+ * every request, and so every service call, on its own virtual thread.
+ * The "dataSource" bean is then wrapped in a ConnectionGuard with
+ * traveler.db.max-concurrency permits (the pool size by default).
+ *
+ * Not applied with sharding: each shard has its own pool there, and a
+ * single guard in front of the router would let a scatter-gather search
+ * wait on permits held by its own caller.
+ */
+@Configuration
+@ConditionalOnExpression("${spring.threads.virtual.enabled:false} and ${traveler.db.guard.enabled:true} and !${traveler.sharding.enabled:false}")
+public class VirtualThreadsConfig {
+
+    @Bean
+    public static BeanPostProcessor connectionGuardPostProcessor(Environment env) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!"dataSource".equals(beanName) || !(bean instanceof DataSource dataSource)) {
+                    return bean;
+                }
+                int maxConcurrency = env.getProperty("traveler.db.max-concurrency", Integer.class,
+                        env.getProperty("spring.datasource.hikari.maximum-pool-size", Integer.class, 10));
+                Duration acquireTimeout = env.getProperty("traveler.db.acquire-timeout", Duration.class,
+                        Duration.ofSeconds(30));
+                return new ConnectionGuard(dataSource, maxConcurrency, acquireTimeout);
+            }
+        };
+    }
+}
@@ -5,8 +5,14 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import ua.sumdu.dds.travelerapi.dto.AttributesUpdateRequest;
+import ua.sumdu.dds.travelerapi.dto.CursorPage;
+import ua.sumdu.dds.travelerapi.dto.JsonPathOperation;
 import ua.sumdu.dds.travelerapi.dto.LocationSearchRequest;
+import ua.sumdu.dds.travelerapi.dto.LocationView;
+import ua.sumdu.dds.travelerapi.dto.MapCluster;
+import ua.sumdu.dds.travelerapi.dto.NearbyLocation;
 import ua.sumdu.dds.travelerapi.model.Location;
 import ua.sumdu.dds.travelerapi.service.TravelPlanService;
 
@@ -21,6 +27,8 @@ import java.util.UUID;
  * Base paths:
  * - /api/plans/{planId}/locations/{locationId}/attributes
  * - /api/locations/search
+ * - /api/locations/nearby
+ * - /api/locations/clusters
  */
 @RestController
 @RequiredArgsConstructor
@@ -42,12 +50,18 @@ public class LocationAttributesController {
      *   },
      *   "tags": ["historical", "art"]
      * }
+     *
+     * ETag is the location version; 304 Not Modified on If-None-Match match.
      */
     @GetMapping("/api/plans/{planId}/locations/{locationId}/attributes")
     public ResponseEntity<Map<String, Object>> getAttributes(
             @PathVariable UUID planId,
-            @PathVariable UUID locationId) {
-        
+            @PathVariable UUID locationId,
+            WebRequest request) {
+
+        if (request.checkNotModified(String.valueOf(service.getLocationVersion(planId, locationId)))) {
+            return null;
+        }
         Map<String, Object> attributes = service.getLocationAttributes(planId, locationId);
         return ResponseEntity.ok(attributes);
     }
@@ -79,6 +93,59 @@ public class LocationAttributesController {
         return ResponseEntity.ok(updated);
     }
 
+    /**
+     * Deep merge of location attributes (JSON Merge Patch, RFC 7396).
+     *
+     * PATCH /api/plans/{planId}/locations/{locationId}/attributes?version=3
+     * Content-Type: application/merge-patch+json
+     *
+     * Request body (only what changes; null removes a key):
+     * {
+     *   "business_hours": { "sunday": "10:00-16:00" },
+     *   "contact": { "email": null }
+     * }
+     *
+     * Response: 200 OK with updated Location
+     */
+    @PatchMapping(value = "/api/plans/{planId}/locations/{locationId}/attributes",
+            consumes = "application/merge-patch+json")
+    public ResponseEntity<Location> mergePatchAttributes(
+            @PathVariable UUID planId,
+            @PathVariable UUID locationId,
+            @RequestParam Integer version,
+            @RequestBody Map<String, Object> patch) {
+
+        Location updated = service.mergePatchLocationAttributes(planId, locationId, patch, version);
+        return ResponseEntity.ok(updated);
+    }
+
+    /**
+     * Edit location attributes at nested paths (JSON Pointer).
+     *
+     * PATCH /api/plans/{planId}/locations/{locationId}/attributes?version=3
+     * Content-Type: application/json-patch+json
+     *
+     * Request body:
+     * [
+     *   { "op": "set", "path": "/contact/phone", "value": "+33123456789" },
+     *   { "op": "append", "path": "/accessibility", "value": "audio_guide" },
+     *   { "op": "remove", "path": "/business_hours/wednesday" }
+     * ]
+     *
+     * Response: 200 OK with updated Location
+     */
+    @PatchMapping(value = "/api/plans/{planId}/locations/{locationId}/attributes",
+            consumes = "application/json-patch+json")
+    public ResponseEntity<Location> patchAttributes(
+            @PathVariable UUID planId,
+            @PathVariable UUID locationId,
+            @RequestParam Integer version,
+            @RequestBody List<JsonPathOperation> operations) {
+
+        Location updated = service.patchLocationAttributes(planId, locationId, operations, version);
+        return ResponseEntity.ok(updated);
+    }
+
     /**
      * Delete specific key from location attributes.
      * 
@@ -100,32 +167,99 @@ public class LocationAttributesController {
     /**
      * Search locations with JSONB filters.
      * 
-     * GET /api/locations/search?category=museum&min_rating=4.5&tags=historical,art
+     * GET /api/locations/search?category=museum&min_rating=4.5&tags=historical,art&limit=50&cursor=...
      * 
-     * Query parameters:
+     * Query parameters (all optional, combined with AND):
+     * - plan_id: Only locations of this travel plan
      * - category: Filter by attributes->category
-     * - min_rating: Filter by minimum attributes->rating
+     * - min_rating: Filter by minimum attributes->rating; results best-rated first
      * - tags: Comma-separated list, ANY match
      * - accessibility: Filter by accessibility array contains
+     * - limit / cursor: keyset pagination, as in GET /api/travel-plans
+     *   (with min_rating the first page is the top-rated limit locations)
      * 
-     * Response: 200 OK with array of Location
+     * Response: 200 OK
+     * {
+     *   "items": [ ... ],
+     *   "next_cursor": "..."   // null on the last page
+     * }
      */
     @GetMapping("/api/locations/search")
-    public ResponseEntity<List<Location>> searchLocations(
+    public ResponseEntity<CursorPage<LocationView>> searchLocations(
+            @RequestParam(required = false, name = "plan_id") UUID planId,
             @RequestParam(required = false) String category,
             @RequestParam(required = false, name = "min_rating") BigDecimal minRating,
             @RequestParam(required = false) List<String> tags,
-            @RequestParam(required = false) String accessibility) {
+            @RequestParam(required = false) String accessibility,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + TravelPlanService.DEFAULT_PAGE_SIZE) int limit) {
 
         LocationSearchRequest searchRequest = new LocationSearchRequest(
                 category,
                 minRating,
                 tags,
-                accessibility
+                accessibility,
+                planId
         );
 
-        List<Location> results = service.searchLocations(searchRequest);
-        return ResponseEntity.ok(results);
+        return ResponseEntity.ok(service.searchLocations(searchRequest, cursor, limit));
+    }
+
+    /**
+     * Find locations near a point.
+     * 
+     * GET /api/locations/nearby?lat=48.8566&lon=2.3522&radius_km=5&limit=20
+     * 
+     * Query parameters:
+     * - lat, lon: the point, in degrees
+     * - radius_km: search radius (at most 500 km)
+     * - limit: maximum number of results (default 50, at most 500)
+     * 
+     * Response: 200 OK, nearest first
+     * [
+     *   { "location": { ... }, "distance_km": 0.42 }
+     * ]
+     */
+    @GetMapping("/api/locations/nearby")
+    public ResponseEntity<List<NearbyLocation>> findNearby(
+            @RequestParam double lat,
+            @RequestParam double lon,
+            @RequestParam(name = "radius_km") double radiusKm,
+            @RequestParam(defaultValue = "" + TravelPlanService.DEFAULT_PAGE_SIZE) int limit) {
+
+        return ResponseEntity.ok(service.findNearbyLocations(lat, lon, radiusKm, limit));
+    }
+
+    /**
+     * Map clusters of locations inside a bounding box.
+     * 
+     * GET /api/locations/clusters?zoom=5&min_lat=40&min_lon=-5&max_lat=55&max_lon=20&category=museum
+     * 
+     * Query parameters:
+     * - zoom: 0..20; a tile spans 360 / 2^zoom degrees of longitude, like a web-map tile
+     * - min_lat, min_lon, max_lat, max_lon: bounding box (at most 64 tiles at this zoom)
+     * - plan_id: only locations of this travel plan (optional)
+     * - category: only locations of this attributes->category (optional)
+     * 
+     * Each tile is clustered on an 8 x 8 grid; per-tile results are cached
+     * until a location inside the tile changes.
+     * 
+     * Response: 200 OK
+     * [
+     *   { "latitude": 48.86, "longitude": 2.34, "count": 120 }
+     * ]
+     */
+    @GetMapping("/api/locations/clusters")
+    public ResponseEntity<List<MapCluster>> findClusters(
+            @RequestParam int zoom,
+            @RequestParam(name = "min_lat") double minLat,
+            @RequestParam(name = "min_lon") double minLon,
+            @RequestParam(name = "max_lat") double maxLat,
+            @RequestParam(name = "max_lon") double maxLon,
+            @RequestParam(required = false, name = "plan_id") UUID planId,
+            @RequestParam(required = false) String category) {
+
+        return ResponseEntity.ok(service.findClusters(zoom, minLat, minLon, maxLat, maxLon, planId, category));
     }
 
     /**
@@ -138,8 +272,8 @@ public class LocationAttributesController {
      * Response: 200 OK with array of Location
      */
     @GetMapping("/api/locations/by-category/{category}")
-    public ResponseEntity<List<Location>> findByCategory(@PathVariable String category) {
-        List<Location> results = service.findLocationsByCategory(category);
+    public ResponseEntity<List<LocationView>> findByCategory(@PathVariable String category) {
+        List<LocationView> results = service.findLocationsByCategory(category);
         return ResponseEntity.ok(results);
     }
 
@@ -151,11 +285,11 @@ public class LocationAttributesController {
      * Response: 200 OK with array of Location (sorted by rating DESC)
      */
     @GetMapping("/api/plans/{planId}/locations/top-rated")
-    public ResponseEntity<List<Location>> findTopRated(
+    public ResponseEntity<List<LocationView>> findTopRated(
             @PathVariable UUID planId,
             @RequestParam(name = "min_rating", defaultValue = "4.0") BigDecimal minRating) {
         
-        List<Location> results = service.findTopRatedLocations(planId, minRating);
+        List<LocationView> results = service.findTopRatedLocations(planId, minRating);
         return ResponseEntity.ok(results);
     }
 }
\ No newline at end of file
@@ -4,7 +4,10 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import ua.sumdu.dds.travelerapi.dto.CreateLocationRequest;
+import ua.sumdu.dds.travelerapi.dto.MoveLocationRequest;
+import ua.sumdu.dds.travelerapi.dto.OptimizedRoute;
 import ua.sumdu.dds.travelerapi.dto.UpdateLocationRequest;
 import ua.sumdu.dds.travelerapi.model.Location;
 import ua.sumdu.dds.travelerapi.service.TravelPlanService;
@@ -20,7 +23,10 @@ public class LocationController {
     private final TravelPlanService svc;
 
     @GetMapping("/travel-plans/{planId}/locations")
-    public List<Location> list(@PathVariable UUID planId) {
+    public List<Location> list(@PathVariable UUID planId, WebRequest request) {
+        if (request.checkNotModified(svc.getLocationsVersion(planId))) {
+            return null;
+        }
         return svc.listLocations(planId);
     }
 
@@ -31,6 +37,51 @@ public class LocationController {
         return svc.addLocation(planId, req);
     }
 
+    /**
+     * POST /api/travel-plans/{planId}/locations/batch
+     *
+     * Body: ordered array of CreateLocationRequest (at most 1000).
+     * The locations are appended in that order with consecutive
+     * visit_order values.
+     * Any invalid element rejects the whole batch (400).
+     */
+    @PostMapping("/travel-plans/{planId}/locations/batch")
+    @ResponseStatus(HttpStatus.CREATED)
+    public List<Location> addBatch(@PathVariable UUID planId,
+                                   @RequestBody List<CreateLocationRequest> req) {
+        return svc.addLocations(planId, req);
+    }
+
+    /**
+     * PATCH /api/travel-plans/{planId}/locations/order
+     *
+     * Body: { "location_id": "...", "before": "..." }  or  { "location_id": "...", "after": "..." }
+     * with an optional "version" of the moved location.
+     * Only the moved location's visit_order changes.
+     */
+    @PatchMapping("/travel-plans/{planId}/locations/order")
+    public Location move(@PathVariable UUID planId,
+                         @RequestBody MoveLocationRequest req) {
+        return svc.moveLocation(planId, req);
+    }
+
+    /**
+     * POST /api/travel-plans/{planId}/locations/optimize?apply=true
+     *
+     * Proposes a shorter visit order for the plan's locations (at most
+     * 1000, all with coordinates). The first location stays first and
+     * dated locations keep their date order. With apply=true the plan is
+     * renumbered in that order; by default it is only returned.
+     *
+     * Response: { "location_ids": [...], "distance_km": 812.4,
+     *             "previous_distance_km": 1310.9, "applied": false }
+     */
+    @PostMapping("/travel-plans/{planId}/locations/optimize")
+    public OptimizedRoute optimize(@PathVariable UUID planId,
+                                   @RequestParam(defaultValue = "false") boolean apply) {
+        return svc.optimizeRoute(planId, apply);
+    }
+
     @PutMapping("/travel-plans/{planId}/locations/{locationId}")
     public Location update(@PathVariable UUID planId,
                            @PathVariable UUID locationId,
@@ -3,10 +3,18 @@ package ua.sumdu.dds.travelerapi.controller;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ua.sumdu.dds.travelerapi.dto.BatchResult;
+import ua.sumdu.dds.travelerapi.dto.BulkDeleteResult;
 import ua.sumdu.dds.travelerapi.dto.CreateTravelPlanRequest;
+import ua.sumdu.dds.travelerapi.dto.CursorPage;
+import ua.sumdu.dds.travelerapi.dto.TravelPlanWithLocations;
 import ua.sumdu.dds.travelerapi.dto.UpdateTravelPlanRequest;
 import ua.sumdu.dds.travelerapi.model.TravelPlan;
+import ua.sumdu.dds.travelerapi.service.TravelPlanExportService;
 import ua.sumdu.dds.travelerapi.service.TravelPlanService;
 
 import java.util.List;
@@ -18,11 +26,33 @@ import java.util.UUID;
 public class TravelPlanController {
 
     private final TravelPlanService svc;
+    private final TravelPlanExportService exporter;
 
+    /**
+     * GET /api/travel-plans?limit=50&cursor={next_cursor}
+     *
+     * Response: 200 OK
+     * {
+     *   "items": [ ... ],
+     *   "next_cursor": "MjAyNi0xMC0x..."   // null on the last page
+     * }
+     */
     @GetMapping
+    public CursorPage<TravelPlan> list(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + TravelPlanService.DEFAULT_PAGE_SIZE) int limit) {
+        return svc.listPage(cursor, limit);
+    }
 
-    public List<TravelPlan> list() {
-        return svc.listAll();
+    /**
+     * GET /api/travel-plans/export
+     *
+     * Streams all plans as newline-delimited JSON, one plan per line
+     * with its locations nested, written while rows are read.
+     */
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody export() {
+        return exporter::exportNdjson;
     }
 
     @PostMapping
@@ -31,9 +61,46 @@ public class TravelPlanController {
         return svc.create(req);
     }
 
+    /**
+     * POST /api/travel-plans/batch
+     *
+     * Body: array of CreateTravelPlanRequest (at most 1000).
+     * Invalid elements are rejected one by one, the others are created.
+     *
+     * Response: 200 OK
+     * {
+     *   "created": 2,
+     *   "rejected": 1,
+     *   "items": [
+     *     { "index": 0, "id": "...", "version": 1 },
+     *     { "index": 1, "errors": ["title: must not be blank"] },
+     *     { "index": 2, "id": "...", "version": 1 }
+     *   ]
+     * }
+     */
+    @PostMapping("/batch")
+    public BatchResult createBatch(@RequestBody List<CreateTravelPlanRequest> req) {
+        return svc.createBatch(req);
+    }
+
+    /**
+     * GET /api/travel-plans/{id}
+     * GET /api/travel-plans/{id}?include=locations
+     *
+     * Plan with its locations inline, ordered by visit_order; both forms
+     * answer the same. ETag is the combined version of the plan and its
+     * locations; If-None-Match with the current one answers 304 Not
+     * Modified without loading the plan. Otherwise the plan is served from
+     * the read cache while its combined version is the probed one, or
+     * loaded with its locations in one query.
+     */
     @GetMapping("/{id}")
-    public TravelPlan get(@PathVariable UUID id) {
-        return svc.getById(id);
+    public TravelPlanWithLocations get(@PathVariable UUID id, WebRequest request) {
+        String version = svc.getLocationsVersion(id);
+        if (request.checkNotModified(version)) {
+            return null;
+        }
+        return svc.getWithLocations(id, version);
     }
 
     @PutMapping("/{id}")
@@ -48,4 +115,21 @@ public class TravelPlanController {
     public void delete(@PathVariable UUID id) {
         svc.delete(id);
     }
+
+    /**
+     * DELETE /api/travel-plans
+     *
+     * Body: array of plan ids (at most 1000). Each plan is deleted with its
+     * locations; unknown ids are reported, not an error.
+     *
+     * Response: 200 OK
+     * {
+     *   "deleted": ["...", "..."],
+     *   "not_found": ["..."]
+     * }
+     */
+    @DeleteMapping
+    public BulkDeleteResult deleteBatch(@RequestBody List<UUID> ids) {
+        return svc.deleteBatch(ids);
+    }
 }
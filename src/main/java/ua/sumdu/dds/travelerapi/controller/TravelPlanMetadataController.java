@@ -4,8 +4,12 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import ua.sumdu.dds.travelerapi.dto.CursorPage;
+import ua.sumdu.dds.travelerapi.dto.JsonPathOperation;
 import ua.sumdu.dds.travelerapi.dto.MetadataUpdateRequest;
 import ua.sumdu.dds.travelerapi.dto.TravelPlanSearchRequest;
+import ua.sumdu.dds.travelerapi.dto.TravelPlanView;
 import ua.sumdu.dds.travelerapi.model.TravelPlan;
 import ua.sumdu.dds.travelerapi.service.TravelPlanService;
 
@@ -17,9 +21,6 @@ import java.util.UUID;
  * REST Controller for Travel Plan JSONB metadata operations.
  *
  * Base path: /api/plans/{planId}/metadata
- *
- * Note: /by-tags endpoint was removed due to PostgreSQL ?| operator
- * conflict with JDBC parameter placeholders.
  */
 @RestController
 @RequestMapping("/api/plans")
@@ -41,9 +42,15 @@ public class TravelPlanMetadataController {
      *   },
      *   "tags": ["europe", "summer"]
      * }
+     *
+     * ETag is the plan version; 304 Not Modified on If-None-Match match.
      */
     @GetMapping("/{planId}/metadata")
-    public ResponseEntity<Map<String, Object>> getMetadata(@PathVariable UUID planId) {
+    public ResponseEntity<Map<String, Object>> getMetadata(@PathVariable UUID planId,
+                                                           WebRequest request) {
+        if (request.checkNotModified(String.valueOf(service.getPlanVersion(planId)))) {
+            return null;
+        }
         Map<String, Object> metadata = service.getMetadata(planId);
         return ResponseEntity.ok(metadata);
     }
@@ -73,6 +80,55 @@ public class TravelPlanMetadataController {
         return ResponseEntity.ok(updated);
     }
 
+    /**
+     * Deep merge of metadata (JSON Merge Patch, RFC 7396).
+     *
+     * PATCH /api/plans/{planId}/metadata?version=5
+     * Content-Type: application/merge-patch+json
+     *
+     * Request body (only what changes; null removes a key):
+     * {
+     *   "preferences": { "pace": "fast" },
+     *   "custom_fields": { "old_field": null }
+     * }
+     *
+     * Response: 200 OK with updated TravelPlan
+     */
+    @PatchMapping(value = "/{planId}/metadata", consumes = "application/merge-patch+json")
+    public ResponseEntity<TravelPlan> mergePatchMetadata(
+            @PathVariable UUID planId,
+            @RequestParam Integer version,
+            @RequestBody Map<String, Object> patch) {
+
+        TravelPlan updated = service.mergePatchMetadata(planId, patch, version);
+        return ResponseEntity.ok(updated);
+    }
+
+    /**
+     * Edit metadata at nested paths (JSON Pointer).
+     *
+     * PATCH /api/plans/{planId}/metadata?version=5
+     * Content-Type: application/json-patch+json
+     *
+     * Request body:
+     * [
+     *   { "op": "set", "path": "/preferences/pace", "value": "fast" },
+     *   { "op": "append", "path": "/tags", "value": "winter" },
+     *   { "op": "remove", "path": "/participants/0" }
+     * ]
+     *
+     * Response: 200 OK with updated TravelPlan
+     */
+    @PatchMapping(value = "/{planId}/metadata", consumes = "application/json-patch+json")
+    public ResponseEntity<TravelPlan> patchMetadata(
+            @PathVariable UUID planId,
+            @RequestParam Integer version,
+            @RequestBody List<JsonPathOperation> operations) {
+
+        TravelPlan updated = service.patchMetadata(planId, operations, version);
+        return ResponseEntity.ok(updated);
+    }
+
     /**
      * Delete specific key from metadata.
      *
@@ -93,35 +149,69 @@ public class TravelPlanMetadataController {
     /**
      * Search travel plans with JSONB filters.
      *
-     * GET /api/plans/search?travel_style=adventure&budget_category=moderate&is_public=true
+     * GET /api/plans/search?travel_style=adventure&tags=europe,summer&is_public=true&limit=50&cursor=...
      *
-     * Query parameters:
-     * - travel_style: Filter by metadata->preferences->travel_style
-     * - budget_category: Filter by metadata->preferences->budget_category
-     * - pace: Filter by metadata->preferences->pace (currently not supported in search)
+     * Query parameters (all optional, combined with AND):
+     * - travel_style: metadata->preferences->travel_style
+     * - budget_category: metadata->preferences->budget_category
+     * - pace: metadata->preferences->pace
+     * - tags: plans having ANY of these metadata tags
+     * - all_tags: true to require ALL of the tags instead
      * - is_public: Boolean filter
+     * - limit / cursor: keyset pagination, as in GET /api/travel-plans
      *
-     * Note: tags parameter removed due to PostgreSQL operator conflict.
-     *
-     * Response: 200 OK with array of TravelPlan
+     * Response: 200 OK
+     * {
+     *   "items": [ ... ],
+     *   "next_cursor": "..."   // null on the last page
+     * }
      */
     @GetMapping("/search")
-    public ResponseEntity<List<TravelPlan>> searchPlans(
+    public ResponseEntity<CursorPage<TravelPlanView>> searchPlans(
             @RequestParam(required = false, name = "travel_style") String travelStyle,
             @RequestParam(required = false, name = "budget_category") String budgetCategory,
             @RequestParam(required = false) String pace,
-            @RequestParam(required = false, name = "is_public") Boolean isPublic) {
+            @RequestParam(required = false) List<String> tags,
+            @RequestParam(required = false, name = "is_public") Boolean isPublic,
+            @RequestParam(defaultValue = "false", name = "all_tags") boolean allTags,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + TravelPlanService.DEFAULT_PAGE_SIZE) int limit) {
 
         TravelPlanSearchRequest searchRequest = new TravelPlanSearchRequest(
                 travelStyle,
                 budgetCategory,
                 pace,
-                null, // tags not supported
-                isPublic
+                tags,
+                isPublic,
+                allTags
         );
 
-        List<TravelPlan> results = service.searchPlans(searchRequest);
-        return ResponseEntity.ok(results);
+        return ResponseEntity.ok(service.searchPlans(searchRequest, cursor, limit));
+    }
+
+    /**
+     * Find travel plans by metadata tags.
+     *
+     * GET /api/plans/by-tags?tags=europe,summer&all_tags=true&limit=50&cursor=...
+     *
+     * Tags match ANY of the given ones, or ALL of them with all_tags=true.
+     * Same query and paging as /api/plans/search with only tags set; the
+     * match is a containment on metadata->'tags', so no ?| / ?& operator
+     * reaches JDBC.
+     *
+     * Response: 200 OK with { "items": [ ... ], "next_cursor": "..." }
+     */
+    @GetMapping("/by-tags")
+    public ResponseEntity<CursorPage<TravelPlanView>> findByTags(
+            @RequestParam List<String> tags,
+            @RequestParam(defaultValue = "false", name = "all_tags") boolean allTags,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + TravelPlanService.DEFAULT_PAGE_SIZE) int limit) {
+
+        TravelPlanSearchRequest searchRequest = new TravelPlanSearchRequest(
+                null, null, null, tags, null, allTags);
+
+        return ResponseEntity.ok(service.searchPlans(searchRequest, cursor, limit));
     }
 
     /**
@@ -134,8 +224,8 @@ public class TravelPlanMetadataController {
      * Response: 200 OK with array of TravelPlan
      */
     @GetMapping("/by-travel-style/{travelStyle}")
-    public ResponseEntity<List<TravelPlan>> findByTravelStyle(@PathVariable String travelStyle) {
-        List<TravelPlan> results = service.findByTravelStyle(travelStyle);
+    public ResponseEntity<List<TravelPlanView>> findByTravelStyle(@PathVariable String travelStyle) {
+        List<TravelPlanView> results = service.findByTravelStyle(travelStyle);
         return ResponseEntity.ok(results);
     }
 
@@ -149,8 +239,8 @@ public class TravelPlanMetadataController {
      * Response: 200 OK with array of TravelPlan
      */
     @GetMapping("/by-budget-category/{budgetCategory}")
-    public ResponseEntity<List<TravelPlan>> findByBudgetCategory(@PathVariable String budgetCategory) {
-        List<TravelPlan> results = service.findByBudgetCategory(budgetCategory);
+    public ResponseEntity<List<TravelPlanView>> findByBudgetCategory(@PathVariable String budgetCategory) {
+        List<TravelPlanView> results = service.findByBudgetCategory(budgetCategory);
         return ResponseEntity.ok(results);
     }
 }
\ No newline at end of file
@@ -0,0 +1,27 @@
+package ua.sumdu.dds.travelerapi.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Outcome of one element of a batch request, by its position in the request.
+ *
+ * Either id and version (created) or errors (rejected) are set.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BatchItemResult(
+        int index,
+        UUID id,
+        Integer version,
+        List<String> errors
+) {
+    public static BatchItemResult created(int index, UUID id, Integer version) {
+        return new BatchItemResult(index, id, version, null);
+    }
+
+    public static BatchItemResult rejected(int index, List<String> errors) {
+        return new BatchItemResult(index, null, null, errors);
+    }
+}
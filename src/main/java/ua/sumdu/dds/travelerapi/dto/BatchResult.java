@@ -0,0 +1,18 @@
+package ua.sumdu.dds.travelerapi.dto;
+
+import java.util.List;
+
+/**
+ * Response of a batch create: counts plus one result per request element,
+ * in request order.
+ */
+public record BatchResult(
+        int created,
+        int rejected,
+        List<BatchItemResult> items
+) {
+    public static BatchResult of(List<BatchItemResult> items) {
+        int created = (int) items.stream().filter(i -> i.errors() == null).count();
+        return new BatchResult(created, items.size() - created, items);
+    }
+}
@@ -0,0 +1,14 @@
+package ua.sumdu.dds.travelerapi.dto;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Response of a bulk delete: the requested ids that were deleted and
+ * those that did not exist.
+ */
+public record BulkDeleteResult(
+        List<UUID> deleted,
+        List<UUID> notFound
+) {
+}
@@ -0,0 +1,15 @@
+package ua.sumdu.dds.travelerapi.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated listing.
+ *
+ * next_cursor is null when there are no more rows.
+ */
+public record CursorPage<T>(
+        List<T> items,
+        @JsonProperty("next_cursor") String nextCursor
+) {}
@@ -0,0 +1,42 @@
+package ua.sumdu.dds.travelerapi.dto;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One edit of a JSONB document at a nested path (RFC 6902 style).
+ *
+ * path is a JSON Pointer (RFC 6901), e.g. /preferences/pace or /tags/0.
+ *
+ * - set: put value at path, creating missing parent objects
+ * - remove: delete the key or array element at path
+ * - append: add value to the end of the array at path (created if missing)
+ */
+public record JsonPathOperation(
+        @NotNull
+        @Pattern(regexp = "set|remove|append", message = "must be one of set, remove, append")
+        String op,
+
+        @NotNull
+        @Pattern(regexp = "^/.+", message = "must be a JSON pointer below the root, e.g. /preferences/pace")
+        String path,
+
+        Object value
+) {
+    /**
+     * Path segments, with JSON Pointer escapes decoded: /a~1b/0 is [a/b, 0].
+     */
+    public List<String> segments() {
+        if (path == null || !path.startsWith("/") || path.length() == 1) {
+            throw new IllegalArgumentException("Invalid path: " + path);
+        }
+        List<String> segments = new ArrayList<>();
+        for (String segment : path.substring(1).split("/", -1)) {
+            segments.add(segment.replace("~1", "/").replace("~0", "~"));
+        }
+        return segments;
+    }
+}
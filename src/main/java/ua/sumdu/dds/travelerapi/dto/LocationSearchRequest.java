@@ -4,6 +4,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.UUID;
 
 /**
  * Request DTO for searching locations with JSONB attributes filters.
@@ -14,7 +15,7 @@ import java.util.List;
  * GET /api/locations/search?category=museum
  * 
  * 2. Search by minimum rating:
- * GET /api/locations/search?minRating=4.5
+ * GET /api/locations/search?min_rating=4.5
  * 
  * 3. Search by tags (ANY match):
  * GET /api/locations/search?tags=historical,art
@@ -23,7 +24,10 @@ import java.util.List;
  * GET /api/locations/search?accessibility=wheelchair
  * 
  * 5. Combined search:
- * GET /api/locations/search?category=museum&minRating=4.0&tags=historical
+ * GET /api/locations/search?category=museum&min_rating=4.0&tags=historical
+ * 
+ * 6. Ten best-rated locations of one plan:
+ * GET /api/locations/search?plan_id=...&min_rating=4.0&limit=10
  */
 public record LocationSearchRequest(
         
@@ -48,5 +52,11 @@ public record LocationSearchRequest(
          * Filter by attributes->accessibility (contains check)
          * Example: "wheelchair" matches if accessibility array contains "wheelchair"
          */
-        String accessibility
-) {}
\ No newline at end of file
+        String accessibility,
+
+        /**
+         * Only locations of this travel plan
+         */
+        @JsonProperty("plan_id")
+        UUID planId
+) {}
@@ -0,0 +1,29 @@
+package ua.sumdu.dds.travelerapi.dto;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Read-only location row for search responses.
+ *
+ * Same JSON shape as Location, built from a JDBC row without a
+ * persistence context.
+ */
+public record LocationView(
+        UUID id,
+        UUID travelPlanId,
+        String name,
+        String address,
+        BigDecimal latitude,
+        BigDecimal longitude,
+        Integer visitOrder,
+        OffsetDateTime arrivalDate,
+        OffsetDateTime departureDate,
+        BigDecimal budget,
+        String notes,
+        Map<String, Object> attributes,
+        Integer version,
+        OffsetDateTime createdAt
+) {}
@@ -0,0 +1,14 @@
+package ua.sumdu.dds.travelerapi.dto;
+
+/**
+ * Locations of one map grid cell, drawn as a single marker.
+ *
+ * @param latitude  centroid of the cell's locations
+ * @param longitude centroid of the cell's locations
+ * @param count     number of locations in the cell
+ */
+public record MapCluster(
+        double latitude,
+        double longitude,
+        long count
+) {}
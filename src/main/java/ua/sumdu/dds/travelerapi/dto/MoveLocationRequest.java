@@ -0,0 +1,25 @@
+package ua.sumdu.dds.travelerapi.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.NotNull;
+
+import java.util.UUID;
+
+/**
+ * Move one location of a plan directly before or directly after another.
+ *
+ * Exactly one of before / after is set. version is the moved location's
+ * current version (optional, checked when present).
+ */
+public record MoveLocationRequest(
+        @NotNull @JsonProperty("location_id") UUID locationId,
+        UUID before,
+        UUID after,
+        Integer version
+) {
+    @AssertTrue(message = "exactly one of before, after must be set")
+    public boolean isAnchorValid() {
+        return (before == null) != (after == null);
+    }
+}
@@ -0,0 +1,10 @@
+package ua.sumdu.dds.travelerapi.dto;
+
+/**
+ * A location found by a nearby search and its great-circle distance from
+ * the searched point, in kilometres.
+ */
+public record NearbyLocation(
+        LocationView location,
+        double distanceKm
+) {}
@@ -0,0 +1,19 @@
+package ua.sumdu.dds.travelerapi.dto;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Visit order proposed by the route optimizer.
+ *
+ * @param locationIds        the plan's locations in the new visit order
+ * @param distanceKm         great-circle length of the route in that order
+ * @param previousDistanceKm length of the route in the order before
+ * @param applied            whether the plan's visit_order now follows locationIds
+ */
+public record OptimizedRoute(
+        List<UUID> locationIds,
+        double distanceKm,
+        double previousDistanceKm,
+        boolean applied
+) {}
@@ -18,7 +18,10 @@ import java.util.List;
  * 3. Search by budget category:
  * GET /api/plans/search?budgetCategory=moderate
  * 
- * 4. Combined search:
+ * 4. Search by tags (ALL of them):
+ * GET /api/plans/by-tags?tags=europe,summer&match=all
+ * 
+ * 5. Combined search:
  * GET /api/plans/search?travelStyle=adventure&tags=europe&isPublic=true
  */
 public record TravelPlanSearchRequest(
@@ -50,5 +53,11 @@ public record TravelPlanSearchRequest(
          * Filter by is_public field (traditional column)
          */
         @JsonProperty("is_public")
-        Boolean isPublic
+        Boolean isPublic,
+
+        /**
+         * Whether tags must ALL be present instead of ANY of them
+         */
+        @JsonProperty("all_tags")
+        boolean allTags
 ) {}
\ No newline at end of file
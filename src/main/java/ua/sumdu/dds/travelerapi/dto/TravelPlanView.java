@@ -0,0 +1,29 @@
+package ua.sumdu.dds.travelerapi.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Read-only travel plan row for list and search responses.
+ *
+ * Built straight from a JDBC row, never attached to a persistence
+ * context, so reads pay for neither entity hydration nor the JSONB
+ * snapshot Hibernate keeps for dirty checking.
+ */
+public record TravelPlanView(
+        UUID id,
+        Integer version,
+        String title,
+        String description,
+        LocalDate startDate,
+        LocalDate endDate,
+        BigDecimal budget,
+        String currency,
+        boolean isPublic,
+        Map<String, Object> metadata,
+        OffsetDateTime createdAt,
+        OffsetDateTime updatedAt
+) {}
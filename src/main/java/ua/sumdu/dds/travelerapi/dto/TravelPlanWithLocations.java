@@ -0,0 +1,52 @@
+package ua.sumdu.dds.travelerapi.dto;
+
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import ua.sumdu.dds.travelerapi.model.Location;
+import ua.sumdu.dds.travelerapi.model.TravelPlan;
+
+import java.util.List;
+
+/**
+ * Travel plan serialized together with its ordered locations.
+ *
+ * Plan fields are written at the top level, locations as a nested array:
+ * {
+ *   "id": "...",
+ *   "title": "Summer in Europe",
+ *   "version": 3,
+ *   ...
+ *   "combined_version": 9,
+ *   "locations": [ { "name": "Paris", "visit_order": 1, ... } ]
+ * }
+ *
+ * Location edits do not bump the plan version. combined_version is the
+ * plan version plus the versions of its locations (and of deleted ones,
+ * see LocationDeletion); it grows on every change of the plan or any
+ * location, for clients that lock the plan as a whole. It is also the
+ * ETag of the plan-with-locations and location list reads.
+ */
+public record TravelPlanWithLocations(
+        @JsonUnwrapped TravelPlan plan,
+        List<Location> locations,
+        int combinedVersion
+) {
+    /**
+     * @param deletedVersion version share of the plan's deleted locations
+     *                       (TravelPlanRepository.findDeletedLocationsVersionById)
+     */
+    public static TravelPlanWithLocations of(TravelPlan plan, List<Location> locations, int deletedVersion) {
+        return new TravelPlanWithLocations(plan, locations, combinedVersion(plan, locations, deletedVersion));
+    }
+
+    private static int combinedVersion(TravelPlan plan, List<Location> locations, int deletedVersion) {
+        int version = orZero(plan.getVersion()) + deletedVersion;
+        for (Location l : locations) {
+            version += orZero(l.getVersion());
+        }
+        return version;
+    }
+
+    private static int orZero(Integer value) {
+        return value != null ? value : 0;
+    }
+}
@@ -6,7 +6,10 @@ import io.hypersistence.utils.hibernate.type.json.JsonBinaryType;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
 import org.hibernate.annotations.Type;
+import ua.sumdu.dds.travelerapi.sharding.ShardedUuid;
 
 import java.math.BigDecimal;
 import java.time.OffsetDateTime;
@@ -22,11 +25,12 @@ import java.util.UUID;
 public class Location {
 
     @Id
-    @GeneratedValue
+    @ShardedUuid
     private UUID id;
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "travel_plan_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE) // plans are deleted in SQL, see TravelPlanWriteRepository.delete
     @JsonIgnore
     private TravelPlan travelPlan;
 
@@ -85,6 +89,20 @@ public class Location {
     @Builder.Default
     private Map<String, Object> attributes = new HashMap<>();
 
+    /**
+     * Row version that last changed each top-level attributes key, and that of
+     * the last full replace. Maintained by the JDBC write repository only;
+     * lets a stale merge be rebased when its keys are untouched.
+     */
+    @Type(JsonBinaryType.class)
+    @Column(name = "attribute_key_versions", columnDefinition = "jsonb", insertable = false, updatable = false)
+    @JsonIgnore
+    private Map<String, Integer> attributeKeyVersions;
+
+    @Column(name = "attributes_reset_version", insertable = false, updatable = false)
+    @JsonIgnore
+    private Integer attributesResetVersion;
+
     @Version
     private Integer version;
 
@@ -0,0 +1,36 @@
+package ua.sumdu.dds.travelerapi.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.util.UUID;
+
+/**
+ * Version share of a plan's deleted locations: the sum of (version + 1)
+ * of every location deleted from it, kept so that the plan's combined
+ * version still grows after a delete (see TravelPlanWithLocations).
+ *
+ * One row per plan, upserted by TravelPlanWriteRepository.recordLocationDeleted;
+ * it goes away with its plan. The mapping exists for the schema and the export.
+ */
+@Entity
+@Table(name = "location_deletions")
+@Getter @Setter
+@NoArgsConstructor @AllArgsConstructor
+public class LocationDeletion {
+
+    @Id
+    @Column(name = "travel_plan_id")
+    private UUID travelPlanId;
+
+    @OneToOne(fetch = FetchType.LAZY)
+    @MapsId
+    @JoinColumn(name = "travel_plan_id")
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private TravelPlan travelPlan;
+
+    @Column(nullable = false)
+    private Integer version;
+}
@@ -1,11 +1,13 @@
 package ua.sumdu.dds.travelerapi.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import io.hypersistence.utils.hibernate.type.json.JsonBinaryType;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.*;
 import org.hibernate.annotations.Type;
+import ua.sumdu.dds.travelerapi.sharding.ShardedUuid;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -23,7 +25,7 @@ import java.util.UUID;
 public class TravelPlan {
 
     @Id
-    @GeneratedValue
+    @ShardedUuid
     private UUID id;
 
     @Version
@@ -76,11 +78,33 @@ public class TravelPlan {
     @Builder.Default
     private Map<String, Object> metadata = new HashMap<>();
 
+    /**
+     * Row version that last changed each top-level metadata key, and that of
+     * the last full replace. Maintained by the JDBC write repository only;
+     * lets a stale merge be rebased when its keys are untouched.
+     */
+    @Type(JsonBinaryType.class)
+    @Column(name = "metadata_key_versions", columnDefinition = "jsonb", insertable = false, updatable = false)
+    @JsonIgnore
+    private Map<String, Integer> metadataKeyVersions;
+
+    @Column(name = "metadata_reset_version", insertable = false, updatable = false)
+    @JsonIgnore
+    private Integer metadataResetVersion;
+
     private OffsetDateTime createdAt;
     private OffsetDateTime updatedAt;
 
+    /**
+     * Lazy collection, not serialized with the entity: plans are returned
+     * detached (read cache, open-in-view off), and loading it per plan would
+     * cost one query each. GET /api/travel-plans/{id} and the export load
+     * locations explicitly and wrap the plan in TravelPlanWithLocations;
+     * list, create and update responses carry plan fields only.
+     */
     @OneToMany(mappedBy = "travelPlan", cascade = CascadeType.ALL, orphanRemoval = true)
     @OrderBy("visitOrder ASC")
+    @JsonIgnore
     private List<Location> locations;
 
     @PrePersist
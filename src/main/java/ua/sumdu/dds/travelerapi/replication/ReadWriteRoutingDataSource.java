@@ -0,0 +1,63 @@
+package ua.sumdu.dds.travelerapi.replication;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Sends connections for read-only transactions to a replica chosen by
+ * ReplicaLagMonitor, everything else to the primary.
+ *
+ * Must sit behind a LazyConnectionDataSourceProxy: the transaction manager
+ * asks for a connection before the read-only flag is bound, the proxy
+ * defers that until the first statement.
+ *
+ * Falls back to the primary when no replica is in rotation or the chosen
+ * replica refuses a connection.
+ */
+public class ReadWriteRoutingDataSource extends AbstractDataSource {
+
+    private final DataSource primary;
+    private final ReplicaLagMonitor monitor;
+
+    public ReadWriteRoutingDataSource(DataSource primary, ReplicaLagMonitor monitor) {
+        this.primary = primary;
+        this.monitor = monitor;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return route(DataSource::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return route(ds -> ds.getConnection(username, password));
+    }
+
+    private Connection route(Connect connect) throws SQLException {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return connect.to(primary);
+        }
+
+        Replica replica = monitor.choose();
+        if (replica == null) {
+            return connect.to(primary);
+        }
+
+        try {
+            return connect.to(replica.dataSource());
+        } catch (SQLException e) {
+            monitor.markDown(replica, e);
+            return connect.to(primary);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Connect {
+        Connection to(DataSource dataSource) throws SQLException;
+    }
+}
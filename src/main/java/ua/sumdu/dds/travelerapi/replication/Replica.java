@@ -0,0 +1,53 @@
+package ua.sumdu.dds.travelerapi.replication;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import java.time.Duration;
+
+/**
+ * One read replica: its connection pool and the last lag measurement.
+ *
+ * A replica starts out of rotation and joins after its first successful
+ * lag check.
+ */
+public final class Replica {
+
+    private final String name;
+    private final HikariDataSource dataSource;
+
+    private volatile Duration lag;
+    private volatile boolean healthy;
+
+    public Replica(String name, HikariDataSource dataSource) {
+        this.name = name;
+        this.dataSource = dataSource;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public HikariDataSource dataSource() {
+        return dataSource;
+    }
+
+    /**
+     * Last measured lag, or null if the replica has not answered yet.
+     */
+    public Duration lag() {
+        return lag;
+    }
+
+    public boolean healthy() {
+        return healthy;
+    }
+
+    void update(Duration lag, boolean healthy) {
+        this.lag = lag;
+        this.healthy = healthy;
+    }
+
+    void markDown() {
+        this.healthy = false;
+    }
+}
@@ -0,0 +1,142 @@
+package ua.sumdu.dds.travelerapi.replication;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures replication lag of every replica on a fixed interval and
+ * keeps replicas behind max-lag (or unreachable) out of rotation.
+ *
+ * The default lag query works on physical standbys: zero when everything
+ * received has been replayed, otherwise the age of the last replayed
+ * transaction. A node that is not in recovery (e.g. a logical subscriber)
+ * reports zero; point traveler.datasource.replica-lag-query at a
+ * heartbeat table to measure those.
+ */
+public class ReplicaLagMonitor implements MeterBinder, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    public static final String DEFAULT_LAG_QUERY = """
+            SELECT CASE
+                WHEN NOT pg_is_in_recovery() THEN 0
+                WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0)
+            END
+            """;
+
+    private final List<Replica> replicas;
+    private final Duration maxLag;
+    private final String lagQuery;
+    private final ScheduledExecutorService scheduler;
+
+    public ReplicaLagMonitor(List<Replica> replicas, Duration maxLag, Duration interval, String lagQuery) {
+        this.replicas = List.copyOf(replicas);
+        this.maxLag = maxLag;
+        this.lagQuery = lagQuery;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("replica-lag-monitor").daemon().factory());
+
+        scheduler.scheduleWithFixedDelay(this::checkAll,
+                0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Healthy replica for a read-only transaction, or null to use the primary.
+     *
+     * Two healthy replicas are sampled at random and the one with lower lag
+     * wins, which prefers fresher replicas without sending all reads to one.
+     */
+    public Replica choose() {
+        List<Replica> healthy = replicas.stream().filter(Replica::healthy).toList();
+        if (healthy.isEmpty()) {
+            return null;
+        }
+        if (healthy.size() == 1) {
+            return healthy.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Replica a = healthy.get(random.nextInt(healthy.size()));
+        Replica b = healthy.get(random.nextInt(healthy.size()));
+        return a.lag().compareTo(b.lag()) <= 0 ? a : b;
+    }
+
+    /**
+     * Take a replica out of rotation until its next successful check.
+     */
+    public void markDown(Replica replica, SQLException cause) {
+        if (replica.healthy()) {
+            log.warn("Replica {} failed, routing reads to primary: {}", replica.name(), cause.getMessage());
+        }
+        replica.markDown();
+    }
+
+    public List<Replica> replicas() {
+        return replicas;
+    }
+
+    void checkAll() {
+        replicas.forEach(this::check);
+    }
+
+    private void check(Replica replica) {
+        boolean wasHealthy = replica.healthy();
+        try (Connection conn = replica.dataSource().getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(lagQuery)) {
+
+            rs.next();
+            Duration lag = Duration.ofMillis(Math.round(rs.getDouble(1) * 1000));
+            boolean healthy = lag.compareTo(maxLag) <= 0;
+            replica.update(lag, healthy);
+
+            if (healthy != wasHealthy) {
+                log.info("Replica {} {} rotation (lag {} ms, max {} ms)", replica.name(),
+                        healthy ? "joined" : "left", lag.toMillis(), maxLag.toMillis());
+            }
+        } catch (SQLException | RuntimeException e) {
+            replica.update(null, false);
+            if (wasHealthy) {
+                log.warn("Replica {} unreachable, left rotation: {}", replica.name(), e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (Replica replica : replicas) {
+            Gauge.builder("db.replica.lag", replica, r -> r.lag() != null ? r.lag().toMillis() / 1000.0 : Double.NaN)
+                    .tag("replica", replica.name())
+                    .baseUnit("seconds")
+                    .description("Last measured replication lag")
+                    .register(registry);
+            Gauge.builder("db.replica.healthy", replica, r -> r.healthy() ? 1 : 0)
+                    .tag("replica", replica.name())
+                    .description("1 when the replica is in read rotation")
+                    .register(registry);
+        }
+    }
+
+    /**
+     * Stops lag checks and closes the replica pools.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        replicas.forEach(replica -> replica.dataSource().close());
+    }
+}
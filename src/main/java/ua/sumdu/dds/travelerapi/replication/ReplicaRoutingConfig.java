@@ -0,0 +1,87 @@
+package ua.sumdu.dds.travelerapi.replication;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Read/write splitting across the primary and its replicas.
+ *
+ * Active only when traveler.datasource.replica-urls lists at least one
+ * JDBC URL and sharding is off. Otherwise Spring Boot's single DataSource
+ * (or ShardingConfig's router) is used unchanged.
+ *
+ * Every pool, primary and replicas alike, takes its settings from
+ * spring.datasource.* and spring.datasource.hikari.*; replicas only
+ * swap the URL.
+ */
+@Configuration
+@ConditionalOnExpression("!'${traveler.datasource.replica-urls:}'.isBlank() and !${traveler.sharding.enabled:false}")
+public class ReplicaRoutingConfig {
+
+    @Bean(destroyMethod = "close")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties, Environment env) {
+        return pool(properties, env, properties.determineUrl(), "primary");
+    }
+
+    @Bean(destroyMethod = "close")
+    public ReplicaLagMonitor replicaLagMonitor(
+            DataSourceProperties properties,
+            Environment env,
+            @Value("${traveler.datasource.replica-urls}") String replicaUrls,
+            @Value("${traveler.datasource.replica-max-lag:5s}") Duration maxLag,
+            @Value("${traveler.datasource.replica-lag-check-interval:2s}") Duration interval,
+            @Value("${traveler.datasource.replica-connect-timeout:2s}") Duration connectTimeout,
+            @Value("${traveler.datasource.replica-lag-query:}") String lagQuery) {
+
+        List<String> urls = Arrays.stream(replicaUrls.split(","))
+                .map(String::trim)
+                .filter(url -> !url.isEmpty())
+                .toList();
+
+        List<Replica> replicas = new ArrayList<>();
+        for (int i = 0; i < urls.size(); i++) {
+            String name = "replica-" + i;
+            HikariDataSource pool = pool(properties, env, urls.get(i), name);
+            // A replica that is down must not block startup or hold reads for long
+            pool.setInitializationFailTimeout(-1);
+            pool.setConnectionTimeout(connectTimeout.toMillis());
+            pool.setReadOnly(true);
+            replicas.add(new Replica(name, pool));
+        }
+        return new ReplicaLagMonitor(replicas, maxLag, interval,
+                lagQuery.isBlank() ? ReplicaLagMonitor.DEFAULT_LAG_QUERY : lagQuery);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaLagMonitor replicaLagMonitor) {
+        return new LazyConnectionDataSourceProxy(
+                new ReadWriteRoutingDataSource(primaryDataSource, replicaLagMonitor));
+    }
+
+    private static HikariDataSource pool(DataSourceProperties properties, Environment env,
+                                         String url, String name) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .url(url)
+                .build();
+        Binder.get(env).bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+        pool.setPoolName("traveler-" + name);
+        return pool;
+    }
+}
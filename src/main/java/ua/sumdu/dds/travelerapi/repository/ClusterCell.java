@@ -0,0 +1,10 @@
+package ua.sumdu.dds.travelerapi.repository;
+
+/**
+ * Count and centroid of the located rows in one cell of the global grid
+ * at some level (2^level x 2^level cells over longitude x latitude).
+ *
+ * @param x column, from longitude -180
+ * @param y row, from latitude -90
+ */
+public record ClusterCell(long x, long y, long count, double latitude, double longitude) {}
@@ -0,0 +1,79 @@
+package ua.sumdu.dds.travelerapi.repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Column readers and parameter writers shared by the JDBC repositories.
+ */
+final class JdbcRows {
+
+    private static final TypeReference<Map<String, Object>> JSON_OBJECT = new TypeReference<>() {};
+
+    private JdbcRows() {}
+
+    /**
+     * JSONB object column as an unmodifiable map (empty for SQL NULL).
+     */
+    static Map<String, Object> jsonObject(ObjectMapper mapper, ResultSet rs, String column) throws SQLException {
+        String json = rs.getString(column);
+        if (json == null) {
+            return Map.of();
+        }
+        try {
+            return Collections.unmodifiableMap(mapper.readValue(json, JSON_OBJECT));
+        } catch (JsonProcessingException e) {
+            throw new SQLException("Invalid JSON in column " + column, e);
+        }
+    }
+
+    /**
+     * TIMESTAMP column in the JVM time zone, as Hibernate maps OffsetDateTime.
+     */
+    static OffsetDateTime offsetDateTime(ResultSet rs, String column) throws SQLException {
+        Timestamp ts = rs.getTimestamp(column);
+        return ts != null ? OffsetDateTime.ofInstant(ts.toInstant(), ZoneId.systemDefault()) : null;
+    }
+
+    /**
+     * JSONB object of integers (key versions), empty for SQL NULL.
+     */
+    static Map<String, Integer> keyVersions(ObjectMapper mapper, ResultSet rs, String column) throws SQLException {
+        Map<String, Integer> versions = new HashMap<>();
+        jsonObject(mapper, rs, column).forEach((key, value) -> versions.put(key, ((Number) value).intValue()));
+        return versions;
+    }
+
+    static LocalDate localDate(ResultSet rs, String column) throws SQLException {
+        return rs.getObject(column, LocalDate.class);
+    }
+
+    /**
+     * JSON text of a value, for a CAST(:param AS jsonb) parameter.
+     */
+    static String json(ObjectMapper mapper, Object value) {
+        try {
+            return mapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Value is not serializable as JSON", e);
+        }
+    }
+
+    /**
+     * OffsetDateTime as a TIMESTAMP in the JVM time zone, the inverse of offsetDateTime.
+     */
+    static Timestamp timestamp(OffsetDateTime value) {
+        return value != null ? Timestamp.from(value.toInstant()) : null;
+    }
+}
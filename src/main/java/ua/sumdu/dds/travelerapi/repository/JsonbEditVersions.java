@@ -0,0 +1,60 @@
+package ua.sumdu.dds.travelerapi.repository;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import ua.sumdu.dds.travelerapi.dto.JsonPathOperation;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Current version of a row and the versions at which the top-level keys
+ * of its JSONB document (metadata or attributes) last changed.
+ *
+ * @param version      row version now
+ * @param resetVersion version of the last full replace of the document
+ * @param keyVersions  top-level key to the version that last set or removed it
+ */
+public record JsonbEditVersions(int version, int resetVersion, Map<String, Integer> keyVersions) {
+
+    /**
+     * Whether the document or any of keys changed after base, i.e. whether
+     * an edit of those keys made against base conflicts with the row now.
+     */
+    public boolean changedSince(int base, Collection<String> keys) {
+        if (base > version || resetVersion > base) {
+            return true;
+        }
+        return keys.stream().anyMatch(key -> keyVersions.getOrDefault(key, 0) > base);
+    }
+
+    /**
+     * Top-level keys changed by path operations: the first segment of each path.
+     */
+    public static Set<String> topLevelKeys(List<JsonPathOperation> operations) {
+        Set<String> keys = new HashSet<>();
+        operations.forEach(operation -> keys.add(operation.segments().get(0)));
+        return keys;
+    }
+
+    /**
+     * SET items (with a trailing comma) recording that this write changes
+     * keys, or the whole document when keys is null. Runs in the same
+     * UPDATE, so version is the version before the write.
+     */
+    static String track(String keyVersionsColumn, String resetColumn,
+                        Collection<String> keys, MapSqlParameterSource params) {
+        if (keys == null) {
+            return keyVersionsColumn + " = CAST('{}' AS jsonb), " + resetColumn + " = version + 1, ";
+        }
+        if (keys.isEmpty()) {
+            return "";
+        }
+        params.addValue("changedKeys", List.copyOf(keys));
+        return keyVersionsColumn + " = COALESCE(" + keyVersionsColumn + ", CAST('{}' AS jsonb))"
+                + " || (SELECT jsonb_object_agg(k, version + 1)"
+                + " FROM unnest(CAST(ARRAY[:changedKeys] AS text[])) AS t(k)), ";
+    }
+}
@@ -0,0 +1,148 @@
+package ua.sumdu.dds.travelerapi.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import ua.sumdu.dds.travelerapi.dto.JsonPathOperation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static ua.sumdu.dds.travelerapi.repository.JdbcRows.json;
+
+/**
+ * Compiles JSONB edits into one SQL expression over a jsonb column.
+ *
+ * Every edit becomes a jsonb_set / #- call on the result of the previous
+ * one, so PostgreSQL applies the whole patch inside the UPDATE and only
+ * the changed values travel over the wire. Paths and values are bound as
+ * parameters (p0, v0, ...) in the given parameter source.
+ *
+ * Edits that need the current document more than once (create a missing
+ * object or array) read it through a one-row subquery, which keeps the
+ * expression linear in the size of the patch.
+ */
+final class JsonbPatch {
+
+    private final ObjectMapper mapper;
+    private final MapSqlParameterSource params;
+    private String expression;
+    private int next;
+
+    JsonbPatch(String column, ObjectMapper mapper, MapSqlParameterSource params) {
+        this.expression = column;
+        this.mapper = mapper;
+        this.params = params;
+    }
+
+    /**
+     * JSON Merge Patch (RFC 7396): objects are merged recursively, a null
+     * member removes the key, any other value replaces it.
+     */
+    JsonbPatch merge(Map<String, Object> patch) {
+        mergeAt(List.of(), patch);
+        return this;
+    }
+
+    /**
+     * Path operations, applied in order.
+     */
+    JsonbPatch apply(List<JsonPathOperation> operations) {
+        for (JsonPathOperation operation : operations) {
+            List<String> path = operation.segments();
+            switch (operation.op()) {
+                case "set" -> {
+                    createParents(path);
+                    set(path, operation.value());
+                }
+                case "remove" -> remove(path);
+                case "append" -> {
+                    createParents(path);
+                    append(path, operation.value());
+                }
+                default -> throw new IllegalArgumentException("Unsupported operation: " + operation.op());
+            }
+        }
+        return this;
+    }
+
+    String sql() {
+        return expression;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void mergeAt(List<String> path, Map<String, Object> patch) {
+        for (Map.Entry<String, Object> member : patch.entrySet()) {
+            List<String> child = child(path, member.getKey());
+            Object value = member.getValue();
+            if (value == null) {
+                remove(child);
+            } else if (value instanceof Map<?, ?> nested) {
+                replaceUnlessObject(child);
+                mergeAt(child, (Map<String, Object>) nested);
+            } else {
+                set(child, value);
+            }
+        }
+    }
+
+    private void set(List<String> path, Object value) {
+        expression = "jsonb_set(" + expression + ", " + path(path) + ", " + value(value) + ", true)";
+    }
+
+    private void remove(List<String> path) {
+        expression = "(" + expression + " #- " + path(path) + ")";
+    }
+
+    private void append(List<String> path, Object value) {
+        String p = path(path);
+        withDocument("jsonb_set(d, " + p + ", COALESCE(d #> " + p + ", CAST('[]' AS jsonb))"
+                + " || jsonb_build_array(" + value(value) + "), true)");
+    }
+
+    /**
+     * RFC 7396: a merge into a member that is not an object starts from {}.
+     */
+    private void replaceUnlessObject(List<String> path) {
+        String p = path(path);
+        withDocument("CASE WHEN jsonb_typeof(d #> " + p + ") = 'object' THEN d"
+                + " ELSE jsonb_set(d, " + p + ", CAST('{}' AS jsonb), true) END");
+    }
+
+    /**
+     * jsonb_set only creates the last key of a path, so missing parents
+     * are added first as empty objects.
+     */
+    private void createParents(List<String> path) {
+        for (int depth = 1; depth < path.size(); depth++) {
+            String p = path(path.subList(0, depth));
+            withDocument("CASE WHEN d #> " + p + " IS NULL"
+                    + " THEN jsonb_set(d, " + p + ", CAST('{}' AS jsonb), true) ELSE d END");
+        }
+    }
+
+    /**
+     * Evaluate the current expression once and name it d.
+     */
+    private void withDocument(String edit) {
+        expression = "(SELECT " + edit + " FROM (SELECT " + expression + ") AS doc(d))";
+    }
+
+    private String path(List<String> path) {
+        String name = "p" + next++;
+        params.addValue(name, List.copyOf(path));
+        return "CAST(ARRAY[:" + name + "] AS text[])";
+    }
+
+    private String value(Object value) {
+        String name = "v" + next++;
+        params.addValue(name, json(mapper, value));
+        return "CAST(:" + name + " AS jsonb)";
+    }
+
+    private static List<String> child(List<String> path, String key) {
+        List<String> child = new ArrayList<>(path);
+        child.add(key);
+        return child;
+    }
+}
@@ -0,0 +1,207 @@
+package ua.sumdu.dds.travelerapi.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ua.sumdu.dds.travelerapi.dto.LocationSearchRequest;
+import ua.sumdu.dds.travelerapi.dto.LocationView;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static ua.sumdu.dds.travelerapi.repository.JdbcRows.*;
+
+/**
+ * JDBC read model for location search endpoints.
+ *
+ * Same predicates as the LocationRepository search queries, but rows are
+ * mapped to immutable LocationView records instead of managed entities.
+ */
+@Repository
+@RequiredArgsConstructor
+public class LocationReadRepository {
+
+    static final String COLUMNS = """
+            id, travel_plan_id, name, address, latitude, longitude, visit_order,
+            arrival_date, departure_date, budget, notes, attributes, version, created_at
+            """;
+
+    /** Expression of idx_locations_geo. */
+    private static final String GEO_POINT = "point(CAST(longitude AS float8), CAST(latitude AS float8))";
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final ObjectMapper objectMapper;
+
+    public List<LocationView> findByCategory(String category) {
+        return jdbc.query("SELECT " + COLUMNS + """
+                FROM locations
+                WHERE attributes->>'category' = :category
+                ORDER BY visit_order ASC
+                """, Map.of("category", category), this::map);
+    }
+
+    /**
+     * All criteria of the request in one statement, starting after the
+     * given row when afterId is not null.
+     *
+     * With min_rating the rows come best-rated first, in
+     * (rating, id) DESC order, so the first page is the top-K; otherwise
+     * in id order. category and rating are written exactly as the
+     * idx_locations_attributes_category / _rating expressions, and
+     * accessibility and tags are containments answered by the GIN index
+     * on attributes.
+     *
+     * @param afterRating rating of the last row of the previous page (min_rating searches only)
+     */
+    public List<LocationView> search(LocationSearchRequest filter, BigDecimal afterRating, UUID afterId, int limit) {
+        SearchQuery query = new SearchQuery(objectMapper);
+
+        if (filter.planId() != null) {
+            query.where("travel_plan_id = {}", filter.planId());
+        }
+        if (filter.category() != null && !filter.category().isBlank()) {
+            query.where("attributes->>'category' = {}", filter.category());
+        }
+        if (filter.accessibility() != null && !filter.accessibility().isBlank()) {
+            query.contains("attributes", Map.of("accessibility", List.of(filter.accessibility())));
+        }
+        if (filter.tags() != null && !filter.tags().isEmpty()) {
+            query.containsAny("attributes", filter.tags().stream()
+                    .map(tag -> Map.of("tags", List.of(tag)))
+                    .toList());
+        }
+
+        if (filter.minRating() == null) {
+            if (afterId != null) {
+                query.where("id > {}", afterId);
+            }
+            return jdbc.query(query.sql(COLUMNS, "locations", "id", limit), query.params(), this::map);
+        }
+
+        query.where("CAST(attributes->>'rating' AS numeric) >= {}", filter.minRating());
+        if (afterId != null) {
+            query.where("(CAST(attributes->>'rating' AS numeric), id) < ({}, {})", afterRating, afterId);
+        }
+        return jdbc.query(query.sql(COLUMNS, "locations",
+                "CAST(attributes->>'rating' AS numeric) DESC, id DESC", limit), query.params(), this::map);
+    }
+
+    public List<LocationView> findTopRatedInPlan(UUID planId, BigDecimal minRating) {
+        return jdbc.query("SELECT " + COLUMNS + """
+                FROM locations
+                WHERE travel_plan_id = :planId
+                AND jsonb_exists(attributes, 'rating')
+                AND CAST(attributes->>'rating' AS numeric) >= :minRating
+                ORDER BY CAST(attributes->>'rating' AS numeric) DESC, visit_order ASC
+                """, Map.of("planId", planId, "minRating", minRating), this::map);
+    }
+
+    /**
+     * Up to limit located rows inside the box, nearest to (lat, lon) first.
+     *
+     * Both the box filter and the order come from idx_locations_geo. The
+     * order is by planar distance in degrees, so it is only an approximation
+     * of the great-circle one; callers refine it.
+     */
+    public List<LocationView> findNearest(double lat, double lon, double minLat, double maxLat,
+                                          double minLon, double maxLon, int limit) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("lat", lat);
+        params.put("lon", lon);
+        params.put("minLat", minLat);
+        params.put("maxLat", maxLat);
+        params.put("minLon", minLon);
+        params.put("maxLon", maxLon);
+        params.put("limit", limit);
+        return jdbc.query("SELECT " + COLUMNS + """
+                FROM locations
+                WHERE latitude IS NOT NULL AND longitude IS NOT NULL
+                AND %1$s <@ box(point(:minLon, :minLat), point(:maxLon, :maxLat))
+                ORDER BY %1$s <-> point(:lon, :lat)
+                LIMIT :limit
+                """.formatted(GEO_POINT), params, this::map);
+    }
+
+    /**
+     * Located rows inside the box, counted per cell of the global grid at
+     * level (see ClusterCell), with the centroid of each cell.
+     *
+     * The box filter comes from idx_locations_geo. Cells are computed as
+     * floor((lon + 180) / 360 * 2^level), the same arithmetic as MapTile,
+     * so a cell always falls in the tile that contains its points.
+     *
+     * @param planId   only locations of this plan, or null
+     * @param category only locations of this attributes->category, or null
+     */
+    public List<ClusterCell> clusterCells(int level, double minLat, double minLon, double maxLat, double maxLon,
+                                          UUID planId, String category) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("cells", 1L << level)
+                .addValue("minLat", minLat)
+                .addValue("minLon", minLon)
+                .addValue("maxLat", maxLat)
+                .addValue("maxLon", maxLon);
+        StringBuilder sql = new StringBuilder("""
+                SELECT CAST(LEAST(floor((CAST(longitude AS float8) + 180) / 360 * :cells), :cells - 1) AS bigint) AS x,
+                       CAST(LEAST(floor((CAST(latitude AS float8) + 90) / 180 * :cells), :cells - 1) AS bigint) AS y,
+                       count(*) AS n,
+                       avg(CAST(latitude AS float8)) AS lat,
+                       avg(CAST(longitude AS float8)) AS lon
+                FROM locations
+                WHERE latitude IS NOT NULL AND longitude IS NOT NULL
+                AND %s <@ box(point(:minLon, :minLat), point(:maxLon, :maxLat))
+                """.formatted(GEO_POINT));
+        if (planId != null) {
+            sql.append(" AND travel_plan_id = :planId");
+            params.addValue("planId", planId);
+        }
+        if (category != null) {
+            sql.append(" AND attributes->>'category' = :category");
+            params.addValue("category", category);
+        }
+        sql.append(" GROUP BY 1, 2 ORDER BY 2, 1");
+        return jdbc.query(sql.toString(), params, (rs, rowNum) -> new ClusterCell(
+                rs.getLong("x"),
+                rs.getLong("y"),
+                rs.getLong("n"),
+                rs.getDouble("lat"),
+                rs.getDouble("lon")));
+    }
+
+    /**
+     * The location, read without the persistence context.
+     */
+    public Optional<LocationView> findById(UUID planId, UUID id) {
+        return jdbc.query("SELECT " + COLUMNS + """
+                FROM locations
+                WHERE id = :id AND travel_plan_id = :planId
+                """, Map.of("id", id, "planId", planId), this::map).stream().findFirst();
+    }
+
+    private LocationView map(ResultSet rs, int rowNum) throws SQLException {
+        return new LocationView(
+                rs.getObject("id", UUID.class),
+                rs.getObject("travel_plan_id", UUID.class),
+                rs.getString("name"),
+                rs.getString("address"),
+                rs.getBigDecimal("latitude"),
+                rs.getBigDecimal("longitude"),
+                rs.getObject("visit_order", Integer.class),
+                offsetDateTime(rs, "arrival_date"),
+                offsetDateTime(rs, "departure_date"),
+                rs.getBigDecimal("budget"),
+                rs.getString("notes"),
+                jsonObject(objectMapper, rs, "attributes"),
+                rs.getInt("version"),
+                offsetDateTime(rs, "created_at")
+        );
+    }
+}
@@ -1,18 +1,96 @@
 package ua.sumdu.dds.travelerapi.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import ua.sumdu.dds.travelerapi.model.Location;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 public interface LocationRepository extends JpaRepository<Location, UUID> {
 
     List<Location> findByTravelPlan_IdOrderByVisitOrderAsc(UUID travelPlanId);
 
+    /**
+     * Highest visit_order of the plan, 0 when it has no locations.
+     * Answered from the (travel_plan_id, visit_order) index.
+     */
+    @Query("SELECT COALESCE(MAX(l.visitOrder), 0) FROM Location l WHERE l.travelPlan.id = :planId")
+    int findMaxVisitOrder(@Param("planId") UUID planId);
+
+    /* -------- Gapped visit_order (moves) -------- */
+
+    /**
+     * visit_order of the location right before :visitOrder, ignoring
+     * location :excludeId (the one being moved); 0 when there is none.
+     */
+    @Query("""
+            SELECT COALESCE(MAX(l.visitOrder), 0) FROM Location l
+            WHERE l.travelPlan.id = :planId AND l.visitOrder < :visitOrder AND l.id <> :excludeId
+            """)
+    int findPrevVisitOrder(@Param("planId") UUID planId,
+                           @Param("visitOrder") int visitOrder,
+                           @Param("excludeId") UUID excludeId);
+
+    /**
+     * visit_order of the location right after :visitOrder, ignoring
+     * location :excludeId; null when there is none.
+     */
+    @Query("""
+            SELECT MIN(l.visitOrder) FROM Location l
+            WHERE l.travelPlan.id = :planId AND l.visitOrder > :visitOrder AND l.id <> :excludeId
+            """)
+    Integer findNextVisitOrder(@Param("planId") UUID planId,
+                               @Param("visitOrder") int visitOrder,
+                               @Param("excludeId") UUID excludeId);
+
+    @Query("SELECT l.id FROM Location l WHERE l.travelPlan.id = :planId")
+    List<UUID> findIdsByTravelPlanId(@Param("planId") UUID planId);
+
+    /**
+     * First half of a rebalance: move the plan's keys out of the positive
+     * range, so that renumbering cannot collide with unique_plan_order.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "UPDATE locations SET visit_order = -visit_order WHERE travel_plan_id = :planId",
+            nativeQuery = true)
+    int negateVisitOrders(@Param("planId") UUID planId);
+
+    /**
+     * Second half of a rebalance: renumber the plan's locations
+     * gap, 2 * gap, ... in their current order. Each row gets a new version.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = """
+            UPDATE locations l
+            SET visit_order = r.rn * :gap, version = l.version + 1
+            FROM (
+                SELECT id, row_number() OVER (ORDER BY visit_order DESC NULLS LAST) AS rn
+                FROM locations
+                WHERE travel_plan_id = :planId
+            ) r
+            WHERE l.id = r.id
+            """, nativeQuery = true)
+    int respaceVisitOrders(@Param("planId") UUID planId, @Param("gap") int gap);
+
+    /* -------- Version probe (ETag / If-None-Match) -------- */
+
+    interface VersionProbe {
+        UUID getTravelPlanId();
+        Integer getVersion();
+    }
+
+    @Query("""
+            SELECT l.travelPlan.id AS travelPlanId, l.version AS version
+            FROM Location l
+            WHERE l.id = :id
+            """)
+    Optional<VersionProbe> findVersionById(@Param("id") UUID id);
+
     @Query(value = """
             SELECT * FROM locations
             WHERE attributes->>'category' = :category
@@ -29,7 +107,7 @@ public interface LocationRepository extends JpaRepository<Location, UUID> {
 
     @Query(value = """
             SELECT * FROM locations
-            WHERE attributes->'accessibility' @> jsonb_build_array(:feature)
+            WHERE attributes @> jsonb_build_object('accessibility', jsonb_build_array(CAST(:feature AS text)))
             ORDER BY visit_order ASC
             """, nativeQuery = true)
     List<Location> findByAccessibilityFeature(@Param("feature") String feature);
@@ -0,0 +1,203 @@
+package ua.sumdu.dds.travelerapi.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ua.sumdu.dds.travelerapi.dto.JsonPathOperation;
+import ua.sumdu.dds.travelerapi.dto.UpdateLocationRequest;
+import ua.sumdu.dds.travelerapi.model.Location;
+import ua.sumdu.dds.travelerapi.model.TravelPlan;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import static ua.sumdu.dds.travelerapi.repository.JdbcRows.*;
+
+/**
+ * JDBC write model for location updates.
+ *
+ * Same approach as TravelPlanWriteRepository: one statement checks the
+ * version, applies the change and returns the new row. The location must
+ * also belong to the given plan. The plan row is not written: concurrent
+ * edits of different locations of one plan do not contend on it, and
+ * clients that lock the whole plan use its combined version
+ * (TravelPlanWithLocations).
+ *
+ * An empty result means no row matched: the location does not exist, is
+ * in another plan, or its version has moved on. Callers tell these apart
+ * with LocationRepository.findVersionById.
+ *
+ * Returned locations are detached; travelPlan only carries the plan id.
+ */
+@Repository
+@RequiredArgsConstructor
+public class LocationWriteRepository {
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Set the non-null fields of the request. A null version skips the
+     * version check.
+     */
+    public Optional<Location> update(UUID planId, UUID id, UpdateLocationRequest r) {
+        MapSqlParameterSource params = keyParams(planId, id, r.version())
+                .addValue("name", r.name(), Types.VARCHAR)
+                .addValue("address", r.address(), Types.VARCHAR)
+                .addValue("latitude", r.latitude(), Types.NUMERIC)
+                .addValue("longitude", r.longitude(), Types.NUMERIC)
+                .addValue("arrivalDate", timestamp(r.arrivalDate()), Types.TIMESTAMP)
+                .addValue("departureDate", timestamp(r.departureDate()), Types.TIMESTAMP)
+                .addValue("budget", r.budget(), Types.NUMERIC)
+                .addValue("notes", r.notes(), Types.VARCHAR);
+
+        return single("""
+                version        = version + 1,
+                name           = COALESCE(:name, name),
+                address        = COALESCE(:address, address),
+                latitude       = COALESCE(:latitude, latitude),
+                longitude      = COALESCE(:longitude, longitude),
+                arrival_date   = COALESCE(:arrivalDate, arrival_date),
+                departure_date = COALESCE(:departureDate, departure_date),
+                budget         = COALESCE(:budget, budget),
+                notes          = COALESCE(:notes, notes)
+                """, params);
+    }
+
+    /**
+     * Shallow merge at root level: attributes || patch.
+     */
+    public Optional<Location> mergeAttributes(UUID planId, UUID id, int version, Map<String, Object> patch) {
+        return setAttributes("attributes || CAST(:attributes AS jsonb)", patch.keySet(),
+                keyParams(planId, id, version)
+                        .addValue("attributes", json(objectMapper, patch), Types.VARCHAR));
+    }
+
+    public Optional<Location> replaceAttributes(UUID planId, UUID id, int version, Map<String, Object> attributes) {
+        return setAttributes("CAST(:attributes AS jsonb)", null,
+                keyParams(planId, id, version)
+                        .addValue("attributes", json(objectMapper, attributes), Types.VARCHAR));
+    }
+
+    public Optional<Location> deleteAttributeKey(UUID planId, UUID id, int version, String key) {
+        return setAttributes("attributes - CAST(:key AS text)", Set.of(key),
+                keyParams(planId, id, version).addValue("key", key, Types.VARCHAR));
+    }
+
+    /**
+     * Deep merge (RFC 7396), compiled to jsonb_set / #- by JsonbPatch.
+     */
+    public Optional<Location> mergePatchAttributes(UUID planId, UUID id, int version, Map<String, Object> patch) {
+        MapSqlParameterSource params = keyParams(planId, id, version);
+        return setAttributes(new JsonbPatch("attributes", objectMapper, params).merge(patch).sql(),
+                patch.keySet(), params);
+    }
+
+    /**
+     * Path operations (set / remove / append), compiled by JsonbPatch.
+     */
+    public Optional<Location> patchAttributes(UUID planId, UUID id, int version, List<JsonPathOperation> operations) {
+        MapSqlParameterSource params = keyParams(planId, id, version);
+        return setAttributes(new JsonbPatch("attributes", objectMapper, params).apply(operations).sql(),
+                JsonbEditVersions.topLevelKeys(operations), params);
+    }
+
+    /**
+     * Versions needed to decide whether a stale attributes edit can be
+     * rebased; empty when the location is not in the plan.
+     */
+    public Optional<JsonbEditVersions> findAttributeVersions(UUID planId, UUID id) {
+        return jdbc.query("""
+                SELECT version, attributes_reset_version, attribute_key_versions
+                FROM locations
+                WHERE id = :id AND travel_plan_id = :planId
+                """, Map.of("id", id, "planId", planId), (rs, rowNum) -> new JsonbEditVersions(
+                        rs.getInt("version"),
+                        rs.getInt("attributes_reset_version"),
+                        keyVersions(objectMapper, rs, "attribute_key_versions")
+                )).stream().findFirst();
+    }
+
+    /**
+     * Renumber the plan's locations gap, 2 * gap, ... in the order of ids,
+     * in one statement; each row gets a new version. The plan's visit_order
+     * values must be negated first (LocationRepository.negateVisitOrders),
+     * so that no row collides with unique_plan_order on the way.
+     *
+     * @return number of rows renumbered
+     */
+    public int reorder(UUID planId, List<UUID> ids, int gap) {
+        return jdbc.update("""
+                UPDATE locations l
+                SET visit_order = o.n * :gap, version = l.version + 1
+                FROM unnest(CAST(ARRAY[:ids] AS uuid[])) WITH ORDINALITY AS o(id, n)
+                WHERE l.id = o.id AND l.travel_plan_id = :planId
+                """, new MapSqlParameterSource()
+                .addValue("planId", planId)
+                .addValue("ids", ids)
+                .addValue("gap", gap));
+    }
+
+    /**
+     * Attributes UPDATE that also records which top-level keys it changes
+     * (all of them when keys is null), see JsonbEditVersions.
+     */
+    private Optional<Location> setAttributes(String expression, Collection<String> keys,
+                                             MapSqlParameterSource params) {
+        return single("attributes = " + expression + ", "
+                + JsonbEditVersions.track("attribute_key_versions", "attributes_reset_version", keys, params)
+                + "version = version + 1", params);
+    }
+
+    private static MapSqlParameterSource keyParams(UUID planId, UUID id, Integer version) {
+        return new MapSqlParameterSource()
+                .addValue("planId", planId)
+                .addValue("id", id)
+                .addValue("version", version, Types.INTEGER);
+    }
+
+    /**
+     * Conditional location UPDATE with the given SET list (which bumps the
+     * version).
+     */
+    private Optional<Location> single(String set, MapSqlParameterSource params) {
+        String sql = """
+                UPDATE locations SET
+                """ + set + """
+
+                WHERE id = :id AND travel_plan_id = :planId
+                  AND (CAST(:version AS integer) IS NULL OR version = CAST(:version AS integer))
+                RETURNING
+                """ + LocationReadRepository.COLUMNS;
+        return jdbc.query(sql, params, this::map).stream().findFirst();
+    }
+
+    private Location map(ResultSet rs, int rowNum) throws SQLException {
+        return Location.builder()
+                .id(rs.getObject("id", UUID.class))
+                .travelPlan(TravelPlan.builder().id(rs.getObject("travel_plan_id", UUID.class)).build())
+                .name(rs.getString("name"))
+                .address(rs.getString("address"))
+                .latitude(rs.getBigDecimal("latitude"))
+                .longitude(rs.getBigDecimal("longitude"))
+                .visitOrder((Integer) rs.getObject("visit_order"))
+                .arrivalDate(offsetDateTime(rs, "arrival_date"))
+                .departureDate(offsetDateTime(rs, "departure_date"))
+                .budget(rs.getBigDecimal("budget"))
+                .notes(rs.getString("notes"))
+                .attributes(new HashMap<>(jsonObject(objectMapper, rs, "attributes")))
+                .version(rs.getInt("version"))
+                .createdAt(offsetDateTime(rs, "created_at"))
+                .build();
+    }
+}
@@ -0,0 +1,92 @@
+package ua.sumdu.dds.travelerapi.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static ua.sumdu.dds.travelerapi.repository.JdbcRows.json;
+
+/**
+ * Builds one SELECT from optional search criteria, ANDed together.
+ *
+ * Each criterion adds a predicate and binds its values as parameters
+ * (s0, s1, ...), so every filter runs in PostgreSQL in a single statement.
+ * JSONB criteria are written as containment (@>), which the GIN index on
+ * the column answers; the ?, ?| and ?& operators are avoided because JDBC
+ * reads ? as a parameter placeholder.
+ */
+final class SearchQuery {
+
+    private final ObjectMapper mapper;
+    private final List<String> conditions = new ArrayList<>();
+    private final MapSqlParameterSource params = new MapSqlParameterSource();
+    private int next;
+
+    SearchQuery(ObjectMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    /**
+     * Add a predicate; each {} in it is replaced, in order, by a parameter
+     * bound to the next value.
+     */
+    SearchQuery where(String predicate, Object... values) {
+        StringBuilder condition = new StringBuilder();
+        int from = 0;
+        for (Object value : values) {
+            int at = predicate.indexOf("{}", from);
+            condition.append(predicate, from, at).append(bind(value));
+            from = at + 2;
+        }
+        conditions.add(condition.append(predicate.substring(from)).toString());
+        return this;
+    }
+
+    /**
+     * column @> document.
+     */
+    SearchQuery contains(String column, Object document) {
+        conditions.add(containment(column, document));
+        return this;
+    }
+
+    /**
+     * column @> any of documents: one containment per document, ORed, which
+     * PostgreSQL runs as a BitmapOr over the GIN index.
+     */
+    SearchQuery containsAny(String column, List<?> documents) {
+        List<String> any = new ArrayList<>(documents.size());
+        for (Object document : documents) {
+            any.add(containment(column, document));
+        }
+        conditions.add("(" + String.join(" OR ", any) + ")");
+        return this;
+    }
+
+    /**
+     * SELECT columns FROM table WHERE ... ORDER BY orderBy LIMIT limit.
+     */
+    String sql(String columns, String table, String orderBy, int limit) {
+        StringBuilder sql = new StringBuilder("SELECT ").append(columns).append(" FROM ").append(table);
+        if (!conditions.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        return sql.append(" ORDER BY ").append(orderBy).append(" LIMIT ").append(bind(limit)).toString();
+    }
+
+    MapSqlParameterSource params() {
+        return params;
+    }
+
+    private String containment(String column, Object document) {
+        return column + " @> CAST(" + bind(json(mapper, document)) + " AS jsonb)";
+    }
+
+    private String bind(Object value) {
+        String name = "s" + next++;
+        params.addValue(name, value);
+        return ":" + name;
+    }
+}
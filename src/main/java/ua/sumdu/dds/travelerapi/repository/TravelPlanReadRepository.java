@@ -0,0 +1,114 @@
+package ua.sumdu.dds.travelerapi.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ua.sumdu.dds.travelerapi.dto.TravelPlanSearchRequest;
+import ua.sumdu.dds.travelerapi.dto.TravelPlanView;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static ua.sumdu.dds.travelerapi.repository.JdbcRows.*;
+
+/**
+ * JDBC read model for travel plan list and search endpoints.
+ *
+ * Same predicates as the TravelPlanRepository search queries, but rows are
+ * mapped to immutable TravelPlanView records instead of managed entities.
+ */
+@Repository
+@RequiredArgsConstructor
+public class TravelPlanReadRepository {
+
+    static final String COLUMNS = """
+            id, version, title, description, start_date, end_date, budget,
+            currency, is_public, metadata, created_at, updated_at
+            """;
+
+    /** Expression of idx_travel_plans_metadata_tags (jsonb_path_ops). */
+    private static final String TAGS = "(metadata->'tags')";
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final ObjectMapper objectMapper;
+
+    public List<TravelPlanView> findByTravelStyle(String travelStyle) {
+        return jdbc.query("SELECT " + COLUMNS + """
+                FROM travel_plans
+                WHERE metadata->'preferences'->>'travel_style' = :travelStyle
+                """, Map.of("travelStyle", travelStyle), this::map);
+    }
+
+    public List<TravelPlanView> findByBudgetCategory(String budgetCategory) {
+        return jdbc.query("SELECT " + COLUMNS + """
+                FROM travel_plans
+                WHERE metadata->'preferences'->>'budget_category' = :budgetCategory
+                """, Map.of("budgetCategory", budgetCategory), this::map);
+    }
+
+    /**
+     * All criteria of the request in one statement, in (created_at, id)
+     * order, starting after the given row when after is not null.
+     *
+     * Preference filters are one containment of {"preferences": {...}}, served
+     * by the GIN index on metadata. Tags are containments of metadata->'tags'
+     * in idx_travel_plans_metadata_tags: all-of is one array of every tag,
+     * any-of one single-tag array per tag, ORed.
+     */
+    public List<TravelPlanView> search(TravelPlanSearchRequest filter, OffsetDateTime afterCreatedAt,
+                                       UUID afterId, int limit) {
+        SearchQuery query = new SearchQuery(objectMapper);
+
+        Map<String, Object> preferences = new LinkedHashMap<>();
+        putIfPresent(preferences, "travel_style", filter.travelStyle());
+        putIfPresent(preferences, "budget_category", filter.budgetCategory());
+        putIfPresent(preferences, "pace", filter.pace());
+        if (!preferences.isEmpty()) {
+            query.contains("metadata", Map.of("preferences", preferences));
+        }
+        if (filter.tags() != null && !filter.tags().isEmpty()) {
+            if (filter.allTags()) {
+                query.contains(TAGS, filter.tags());
+            } else {
+                query.containsAny(TAGS, filter.tags().stream().map(List::of).toList());
+            }
+        }
+        if (filter.isPublic() != null) {
+            query.where("is_public = {}", filter.isPublic());
+        }
+        if (afterId != null) {
+            query.where("(created_at, id) > ({}, {})", timestamp(afterCreatedAt), afterId);
+        }
+
+        return jdbc.query(query.sql(COLUMNS, "travel_plans", "created_at, id", limit), query.params(), this::map);
+    }
+
+    private static void putIfPresent(Map<String, Object> map, String key, String value) {
+        if (value != null && !value.isBlank()) {
+            map.put(key, value);
+        }
+    }
+
+    private TravelPlanView map(ResultSet rs, int rowNum) throws SQLException {
+        return new TravelPlanView(
+                rs.getObject("id", UUID.class),
+                rs.getInt("version"),
+                rs.getString("title"),
+                rs.getString("description"),
+                localDate(rs, "start_date"),
+                localDate(rs, "end_date"),
+                rs.getBigDecimal("budget"),
+                rs.getString("currency"),
+                rs.getBoolean("is_public"),
+                jsonObject(objectMapper, rs, "metadata"),
+                offsetDateTime(rs, "created_at"),
+                offsetDateTime(rs, "updated_at")
+        );
+    }
+}
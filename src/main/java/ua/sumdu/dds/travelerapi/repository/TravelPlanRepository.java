@@ -1,15 +1,89 @@
 package ua.sumdu.dds.travelerapi.repository;
 
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import ua.sumdu.dds.travelerapi.model.TravelPlan;
 
+import java.time.OffsetDateTime;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 public interface TravelPlanRepository extends JpaRepository<TravelPlan, UUID> {
 
+    /**
+     * Loads a plan together with its locations in a single query.
+     * Locations come back in visit_order (see @OrderBy on TravelPlan.locations).
+     */
+    @Query("""
+            SELECT p FROM TravelPlan p
+            LEFT JOIN FETCH p.locations
+            WHERE p.id = :id
+            """)
+    Optional<TravelPlan> findWithLocationsById(@Param("id") UUID id);
+
+    /* -------- Version probes (ETag / If-None-Match) -------- */
+
+    /**
+     * Plan with its row locked (SELECT ... FOR UPDATE) until the transaction
+     * ends, so concurrent writers of the plan's locations queue up.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM TravelPlan p WHERE p.id = :id")
+    Optional<TravelPlan> findByIdForUpdate(@Param("id") UUID id);
+
+    @Query("SELECT p.version FROM TravelPlan p WHERE p.id = :id")
+    Optional<Integer> findVersionById(@Param("id") UUID id);
+
+    /**
+     * Combined version of a plan and its locations (see
+     * TravelPlanWithLocations.combinedVersion). Grows whenever the plan or
+     * any of its locations is added, updated or removed.
+     */
+    @Query(value = """
+            SELECT CAST(p.version
+                        + coalesce((SELECT d.version FROM location_deletions d WHERE d.travel_plan_id = p.id), 0)
+                        + coalesce(sum(l.version), 0) AS text)
+            FROM travel_plans p
+            LEFT JOIN locations l ON l.travel_plan_id = p.id
+            WHERE p.id = :id
+            GROUP BY p.id, p.version
+            """, nativeQuery = true)
+    Optional<String> findLocationsVersionById(@Param("id") UUID id);
+
+    /**
+     * Version share of the plan's deleted locations, the part of the
+     * combined version that is not on the plan or location rows.
+     */
+    @Query(value = """
+            SELECT coalesce((SELECT version FROM location_deletions WHERE travel_plan_id = :id), 0)
+            """, nativeQuery = true)
+    int findDeletedLocationsVersionById(@Param("id") UUID id);
+
+    /* -------- Keyset pagination on (created_at, id) -------- */
+
+    @Query(value = """
+            SELECT * FROM travel_plans
+            ORDER BY created_at, id
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<TravelPlan> findFirstPage(@Param("limit") int limit);
+
+    @Query(value = """
+            SELECT * FROM travel_plans
+            WHERE (created_at, id) > (:createdAt, :id)
+            ORDER BY created_at, id
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<TravelPlan> findPageAfter(
+            @Param("createdAt") OffsetDateTime createdAt,
+            @Param("id") UUID id,
+            @Param("limit") int limit
+    );
+
     @Query(value = """
             SELECT * FROM travel_plans
             WHERE metadata->'preferences'->>'travel_style' = :travelStyle
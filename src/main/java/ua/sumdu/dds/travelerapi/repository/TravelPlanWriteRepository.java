@@ -0,0 +1,208 @@
+package ua.sumdu.dds.travelerapi.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ua.sumdu.dds.travelerapi.dto.JsonPathOperation;
+import ua.sumdu.dds.travelerapi.dto.UpdateTravelPlanRequest;
+import ua.sumdu.dds.travelerapi.model.TravelPlan;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import static ua.sumdu.dds.travelerapi.repository.JdbcRows.*;
+
+/**
+ * JDBC write model for travel plan updates.
+ *
+ * Each method is a single conditional UPDATE ... WHERE id = :id AND
+ * version = :version RETURNING the new row, so the version check, the
+ * change and the version bump happen in one round trip. JSONB edits are
+ * applied by PostgreSQL (||, -, jsonb_set, #-) instead of being merged in
+ * Java.
+ *
+ * An empty result means no row matched: the plan does not exist or its
+ * version has moved on. Callers tell the two apart with
+ * TravelPlanRepository.findVersionById.
+ *
+ * Metadata writes also record the top-level keys they change
+ * (JsonbEditVersions), so a stale merge of other keys can be rebased.
+ *
+ * Returned plans are detached; their locations are not loaded.
+ */
+@Repository
+@RequiredArgsConstructor
+public class TravelPlanWriteRepository {
+
+    private static final String RETURNING = " RETURNING " + TravelPlanReadRepository.COLUMNS;
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Set the non-null fields of the request.
+     */
+    public Optional<TravelPlan> update(UUID id, UpdateTravelPlanRequest r) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("id", id)
+                .addValue("version", r.version())
+                .addValue("title", r.title(), Types.VARCHAR)
+                .addValue("description", r.description(), Types.VARCHAR)
+                .addValue("startDate", r.startDate(), Types.DATE)
+                .addValue("endDate", r.endDate(), Types.DATE)
+                .addValue("budget", r.budget(), Types.NUMERIC)
+                .addValue("currency", r.currency(), Types.VARCHAR)
+                .addValue("isPublic", r.isPublic(), Types.BOOLEAN);
+
+        return single("""
+                UPDATE travel_plans SET
+                    title       = COALESCE(:title, title),
+                    description = COALESCE(:description, description),
+                    start_date  = COALESCE(:startDate, start_date),
+                    end_date    = COALESCE(:endDate, end_date),
+                    budget      = COALESCE(:budget, budget),
+                    currency    = COALESCE(:currency, currency),
+                    is_public   = COALESCE(:isPublic, is_public),
+                    version     = version + 1,
+                    updated_at  = LOCALTIMESTAMP
+                WHERE id = :id AND version = :version
+                """, params);
+    }
+
+    /**
+     * Shallow merge at root level: metadata || patch.
+     */
+    public Optional<TravelPlan> mergeMetadata(UUID id, int version, Map<String, Object> patch) {
+        MapSqlParameterSource params = keyParams(id, version)
+                .addValue("metadata", json(objectMapper, patch), Types.VARCHAR);
+        return setMetadata("metadata || CAST(:metadata AS jsonb)", patch.keySet(), params);
+    }
+
+    public Optional<TravelPlan> replaceMetadata(UUID id, int version, Map<String, Object> metadata) {
+        MapSqlParameterSource params = keyParams(id, version)
+                .addValue("metadata", json(objectMapper, metadata), Types.VARCHAR);
+        return setMetadata("CAST(:metadata AS jsonb)", null, params);
+    }
+
+    public Optional<TravelPlan> deleteMetadataKey(UUID id, int version, String key) {
+        MapSqlParameterSource params = keyParams(id, version)
+                .addValue("key", key, Types.VARCHAR);
+        return setMetadata("metadata - CAST(:key AS text)", Set.of(key), params);
+    }
+
+    /**
+     * Deep merge (RFC 7396), compiled to jsonb_set / #- by JsonbPatch.
+     */
+    public Optional<TravelPlan> mergePatchMetadata(UUID id, int version, Map<String, Object> patch) {
+        MapSqlParameterSource params = keyParams(id, version);
+        return setMetadata(new JsonbPatch("metadata", objectMapper, params).merge(patch).sql(),
+                patch.keySet(), params);
+    }
+
+    /**
+     * Path operations (set / remove / append), compiled by JsonbPatch.
+     */
+    public Optional<TravelPlan> patchMetadata(UUID id, int version, List<JsonPathOperation> operations) {
+        MapSqlParameterSource params = keyParams(id, version);
+        return setMetadata(new JsonbPatch("metadata", objectMapper, params).apply(operations).sql(),
+                JsonbEditVersions.topLevelKeys(operations), params);
+    }
+
+    /**
+     * Delete plans with one statement; their locations go with them through
+     * ON DELETE CASCADE, without being loaded.
+     *
+     * @return ids of the plans that existed and were deleted
+     */
+    public List<UUID> delete(Collection<UUID> ids) {
+        return jdbc.queryForList("DELETE FROM travel_plans WHERE id IN (:ids) RETURNING id",
+                Map.of("ids", ids), UUID.class);
+    }
+
+    /**
+     * Keep the combined version growing when a location is deleted: its
+     * version leaves the sum, so the plan's location_deletions row gets
+     * version + 1 added back (created on the first delete). travel_plans
+     * is not written; the upsert only takes the FOR KEY SHARE lock of its
+     * foreign key, like a location insert. Deletes in one plan queue on
+     * its location_deletions row, not on the plan row.
+     */
+    public void recordLocationDeleted(UUID planId, int deletedVersion) {
+        jdbc.update("""
+                INSERT INTO location_deletions (travel_plan_id, version)
+                VALUES (:planId, :deletedVersion + 1)
+                ON CONFLICT (travel_plan_id) DO UPDATE
+                SET version = location_deletions.version + EXCLUDED.version
+                """, Map.of("planId", planId, "deletedVersion", deletedVersion));
+    }
+
+    /**
+     * Versions needed to decide whether a stale metadata edit can be rebased.
+     */
+    public Optional<JsonbEditVersions> findMetadataVersions(UUID id) {
+        return jdbc.query("""
+                SELECT version, metadata_reset_version, metadata_key_versions
+                FROM travel_plans
+                WHERE id = :id
+                """, Map.of("id", id), (rs, rowNum) -> new JsonbEditVersions(
+                        rs.getInt("version"),
+                        rs.getInt("metadata_reset_version"),
+                        keyVersions(objectMapper, rs, "metadata_key_versions")
+                )).stream().findFirst();
+    }
+
+    /**
+     * Metadata UPDATE that also records which top-level keys it changes
+     * (all of them when keys is null), see JsonbEditVersions.
+     */
+    private Optional<TravelPlan> setMetadata(String expression, Collection<String> keys,
+                                             MapSqlParameterSource params) {
+        return single("""
+                UPDATE travel_plans SET
+                    metadata   = %s,
+                    %s
+                    version    = version + 1,
+                    updated_at = LOCALTIMESTAMP
+                WHERE id = :id AND version = :version
+                """.formatted(expression,
+                JsonbEditVersions.track("metadata_key_versions", "metadata_reset_version", keys, params)),
+                params);
+    }
+
+    private static MapSqlParameterSource keyParams(UUID id, int version) {
+        return new MapSqlParameterSource()
+                .addValue("id", id)
+                .addValue("version", version);
+    }
+
+    private Optional<TravelPlan> single(String update, MapSqlParameterSource params) {
+        return jdbc.query(update + RETURNING, params, this::map).stream().findFirst();
+    }
+
+    private TravelPlan map(ResultSet rs, int rowNum) throws SQLException {
+        return TravelPlan.builder()
+                .id(rs.getObject("id", UUID.class))
+                .version(rs.getInt("version"))
+                .title(rs.getString("title"))
+                .description(rs.getString("description"))
+                .startDate(localDate(rs, "start_date"))
+                .endDate(localDate(rs, "end_date"))
+                .budget(rs.getBigDecimal("budget"))
+                .currency(rs.getString("currency"))
+                .isPublic(rs.getBoolean("is_public"))
+                .metadata(new HashMap<>(jsonObject(objectMapper, rs, "metadata")))
+                .createdAt(offsetDateTime(rs, "created_at"))
+                .updatedAt(offsetDateTime(rs, "updated_at"))
+                .build();
+    }
+}
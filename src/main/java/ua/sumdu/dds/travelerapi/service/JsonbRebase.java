@@ -0,0 +1,97 @@
+package ua.sumdu.dds.travelerapi.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ua.sumdu.dds.travelerapi.exception.VersionConflictException;
+import ua.sumdu.dds.travelerapi.repository.JsonbEditVersions;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Rebases stale JSONB edits that commute with what changed since.
+ *
+ * A merge, key delete or path edit made against version N only touches
+ * some top-level keys. When its conditional UPDATE misses because the row
+ * moved on, but none of those keys (and no full replace) changed after N,
+ * the edit gives the same result on the current version, so it is retried
+ * there, up to max-rebase-attempts times. Otherwise the client gets 409 as
+ * before. Full replaces (keys == null) are never rebased.
+ *
+ * Outcomes are counted in jsonb.edit.rebase (outcome=applied / conflict /
+ * exhausted).
+ */
+@Component
+public class JsonbRebase implements MeterBinder {
+
+    private final int maxAttempts;
+    private final AtomicLong applied = new AtomicLong();
+    private final AtomicLong conflicts = new AtomicLong();
+    private final AtomicLong exhausted = new AtomicLong();
+
+    public JsonbRebase(@Value("${traveler.jsonb.max-rebase-attempts:3}") int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        counter(registry, applied, "applied", "Stale JSONB edits applied on a newer version");
+        counter(registry, conflicts, "conflict", "Stale JSONB edits rejected, their keys changed");
+        counter(registry, exhausted, "exhausted", "Stale JSONB edits rejected after max-rebase-attempts");
+    }
+
+    private static void counter(MeterRegistry registry, AtomicLong count, String outcome, String description) {
+        FunctionCounter.builder("jsonb.edit.rebase", count, AtomicLong::get)
+                .tag("outcome", outcome)
+                .description(description)
+                .register(registry);
+    }
+
+    /**
+     * Run a conditional write at version, rebasing it when it misses.
+     *
+     * @param version client's version; null writes unconditionally, so there is nothing to rebase
+     * @param keys    top-level keys the edit changes, null for a full replace
+     * @param write   the conditional write at a given version, empty when no row matched
+     * @param current the row's versions now, empty when the row is gone
+     * @param missed  the error for a write that did not rebase (404 / 409)
+     */
+    public <T> T write(Integer version, Collection<String> keys, Function<Integer, Optional<T>> write,
+                       Supplier<Optional<JsonbEditVersions>> current, Supplier<RuntimeException> missed) {
+        Optional<T> written = write.apply(version);
+        if (written.isPresent()) {
+            return written.get();
+        }
+        if (version == null || keys == null) {
+            throw missed.get();
+        }
+
+        int attempted = version;
+        for (int attempt = 0; attempt < maxAttempts; attempt++) {
+            JsonbEditVersions now = current.get().orElseThrow(missed);
+            if (now.version() == attempted) {
+                throw missed.get();
+            }
+            if (now.changedSince(version, keys)) {
+                conflicts.incrementAndGet();
+                throw new VersionConflictException(now.version());
+            }
+            attempted = now.version();
+            written = write.apply(attempted);
+            if (written.isPresent()) {
+                applied.incrementAndGet();
+                return written.get();
+            }
+        }
+        exhausted.incrementAndGet();
+        throw current.get()
+                .<RuntimeException>map(now -> new VersionConflictException(now.version()))
+                .orElseGet(missed);
+    }
+}
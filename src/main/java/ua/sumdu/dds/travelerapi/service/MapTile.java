@@ -0,0 +1,88 @@
+package ua.sumdu.dds.travelerapi.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tile of an equirectangular quad-tree over the globe.
+ *
+ * At zoom z the globe is split into 2^z x 2^z tiles of 360 / 2^z degrees
+ * of longitude (the span of a web-map tile at that zoom) by 180 / 2^z
+ * degrees of latitude; x counts from longitude -180, y from latitude -90.
+ * Each tile is clustered on a grid of 2^CLUSTER_BITS x 2^CLUSTER_BITS cells.
+ */
+public record MapTile(int zoom, long x, long y) {
+
+    /** Deepest zoom; its cluster cells are then about 5 m wide. */
+    public static final int MAX_ZOOM = 20;
+
+    public static final int CLUSTER_BITS = 3;
+
+    /**
+     * The tile containing the point; points on the east / north edge of
+     * the globe belong to the last tile.
+     */
+    public static MapTile of(int zoom, double lat, double lon) {
+        long n = 1L << zoom;
+        return new MapTile(zoom, index((lon + 180) / 360 * n, n), index((lat + 90) / 180 * n, n));
+    }
+
+    /**
+     * Tiles covering the bounding box, row by row.
+     */
+    public static List<MapTile> covering(int zoom, double minLat, double minLon, double maxLat, double maxLon) {
+        MapTile from = of(zoom, minLat, minLon);
+        MapTile to = of(zoom, maxLat, maxLon);
+        List<MapTile> tiles = new ArrayList<>();
+        for (long y = from.y; y <= to.y; y++) {
+            for (long x = from.x; x <= to.x; x++) {
+                tiles.add(new MapTile(zoom, x, y));
+            }
+        }
+        return tiles;
+    }
+
+    /**
+     * Number of tiles covering the bounding box, without listing them.
+     */
+    public static long count(int zoom, double minLat, double minLon, double maxLat, double maxLon) {
+        MapTile from = of(zoom, minLat, minLon);
+        MapTile to = of(zoom, maxLat, maxLon);
+        return (to.x - from.x + 1) * (to.y - from.y + 1);
+    }
+
+    /**
+     * The tile of a cell of the cluster grid at zoom + CLUSTER_BITS.
+     */
+    public static MapTile ofCell(int zoom, long cellX, long cellY) {
+        return new MapTile(zoom, cellX >> CLUSTER_BITS, cellY >> CLUSTER_BITS);
+    }
+
+    public double minLon() {
+        return -180 + x * width();
+    }
+
+    public double maxLon() {
+        return minLon() + width();
+    }
+
+    public double minLat() {
+        return -90 + y * height();
+    }
+
+    public double maxLat() {
+        return minLat() + height();
+    }
+
+    private double width() {
+        return 360.0 / (1L << zoom);
+    }
+
+    private double height() {
+        return 180.0 / (1L << zoom);
+    }
+
+    private static long index(double position, long n) {
+        return Math.max(0, Math.min(n - 1, (long) Math.floor(position)));
+    }
+}
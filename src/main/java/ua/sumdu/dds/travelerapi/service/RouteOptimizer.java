@@ -0,0 +1,357 @@
+package ua.sumdu.dds.travelerapi.service;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+/**
+ * Short open route through a plan's stops: a nearest-neighbour seed, then
+ * 2-opt and Or-opt moves until neither shortens the route.
+ *
+ * Stops are indexes into primitive coordinate arrays, and great-circle
+ * distances are precomputed into one n x n matrix, so scoring a move takes
+ * a few array reads. Stop 0 is where the route starts and never moves.
+ *
+ * Stops with a fixed time (arrival or departure date) are visited in time
+ * order, ties in index order. The seed only steps to the earliest unvisited
+ * one of them; 2-opt never reverses a segment holding two or more of them
+ * and Or-opt never moves one past another, so every route on the way is
+ * feasible and no repair step is needed.
+ *
+ * Not thread-safe; one instance per plan.
+ */
+final class RouteOptimizer {
+
+    /** Time of a stop that may be visited at any point after the start. */
+    static final long FREE = Long.MIN_VALUE;
+
+    /** Rank of a stop without a fixed time. */
+    private static final int UNRANKED = -1;
+
+    /** Longest segment an Or-opt move relocates. */
+    private static final int MAX_SEGMENT = 3;
+
+    /** Candidate stops per stop: moves only create edges to these nearest ones. */
+    private static final int NEIGHBOURS = 12;
+
+    /** Smallest gain in km worth a move, so rounding cannot make moves cycle. */
+    private static final double EPSILON = 1e-9;
+
+    private final int n;
+    private final double[] distance;
+    private final int[] rank;
+    private final int neighbours;
+    /** nearest[s * neighbours ..]: the stops nearest to s, nearest first. */
+    private final int[] nearest;
+    private final int[] route;
+    /** position[s]: where stop s is in route. */
+    private final int[] position;
+    /** fixedBefore[p]: number of fixed stops at positions before p. */
+    private final int[] fixedBefore;
+
+    /**
+     * @param latitude  latitude of each stop, in degrees
+     * @param longitude longitude of each stop, in degrees
+     * @param fixedAt   time (e.g. epoch seconds) each stop is fixed at, or FREE; ignored for stop 0
+     */
+    RouteOptimizer(double[] latitude, double[] longitude, long[] fixedAt) {
+        n = latitude.length;
+        distance = new double[n * n];
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                double d = TravelPlanService.distanceKm(latitude[i], longitude[i], latitude[j], longitude[j]);
+                distance[i * n + j] = d;
+                distance[j * n + i] = d;
+            }
+        }
+
+        rank = new int[n];
+        Arrays.fill(rank, UNRANKED);
+        int[] fixed = IntStream.range(1, n)
+                .filter(stop -> fixedAt[stop] != FREE)
+                .boxed()
+                .sorted(Comparator.comparingLong(stop -> fixedAt[stop]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        for (int r = 0; r < fixed.length; r++) {
+            rank[fixed[r]] = r;
+        }
+
+        neighbours = Math.min(NEIGHBOURS, Math.max(n - 1, 0));
+        nearest = new int[n * neighbours];
+        for (int s = 0; s < n; s++) {
+            nearest(s);
+        }
+
+        route = new int[n];
+        position = new int[n];
+        fixedBefore = new int[n + 1];
+    }
+
+    /**
+     * Visit order as stop indexes, starting with stop 0.
+     */
+    int[] solve() {
+        if (n == 0) {
+            return new int[0];
+        }
+        seed();
+        boolean improved = true;
+        while (improved) {
+            while (twoOpt()) {
+                // repeat until no reversal helps
+            }
+            improved = orOpt();
+        }
+        return route.clone();
+    }
+
+    /**
+     * Length of an open route in km.
+     */
+    double length(int[] order) {
+        double total = 0;
+        for (int p = 1; p < order.length; p++) {
+            total += distance[order[p - 1] * n + order[p]];
+        }
+        return total;
+    }
+
+    /**
+     * Whether order starts at stop 0 and visits the fixed stops in time order.
+     */
+    boolean feasible(int[] order) {
+        if (order.length != n || (n > 0 && order[0] != 0)) {
+            return false;
+        }
+        int next = 0;
+        for (int stop : order) {
+            if (rank[stop] != UNRANKED && rank[stop] != next++) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Fill the nearest stops of s by insertion into its slice of nearest.
+     */
+    private void nearest(int s) {
+        int base = s * neighbours;
+        int found = 0;
+        for (int stop = 0; stop < n; stop++) {
+            if (stop == s) {
+                continue;
+            }
+            double d = distance[s * n + stop];
+            if (found == neighbours && d >= distance[s * n + nearest[base + found - 1]]) {
+                continue;
+            }
+            int k = found < neighbours ? found++ : found - 1;
+            while (k > 0 && distance[s * n + nearest[base + k - 1]] > d) {
+                nearest[base + k] = nearest[base + k - 1];
+                k--;
+            }
+            nearest[base + k] = stop;
+        }
+    }
+
+    /**
+     * Nearest neighbour from stop 0; of the fixed stops only the next one
+     * in time order is a candidate.
+     */
+    private void seed() {
+        boolean[] visited = new boolean[n];
+        visited[0] = true;
+        int current = 0;
+        int nextRank = 0;
+        for (int p = 1; p < n; p++) {
+            int best = -1;
+            double bestDistance = Double.POSITIVE_INFINITY;
+            int row = current * n;
+            for (int stop = 1; stop < n; stop++) {
+                if (!visited[stop] && (rank[stop] == UNRANKED || rank[stop] == nextRank)
+                        && distance[row + stop] < bestDistance) {
+                    best = stop;
+                    bestDistance = distance[row + stop];
+                }
+            }
+            if (rank[best] != UNRANKED) {
+                nextRank++;
+            }
+            visited[best] = true;
+            route[p] = best;
+            current = best;
+        }
+        reindex();
+    }
+
+    /**
+     * One pass of reversals, applying each one that shortens the route.
+     * Only reversals that create an edge to one of the NEIGHBOURS nearest
+     * stops, shorter than the edge it replaces, are tried. Returns whether
+     * any reversal was made.
+     */
+    private boolean twoOpt() {
+        boolean improved = false;
+        for (int i = 1; i < n; i++) {
+            // New edge route[i - 1] - c, reversing route[i..position of c]
+            int a = route[i - 1];
+            int b = route[i];
+            double ab = distance[a * n + b];
+            for (int k = a * neighbours; k < (a + 1) * neighbours; k++) {
+                int c = nearest[k];
+                double ac = distance[a * n + c];
+                if (ac >= ab) {
+                    break;
+                }
+                int j = position[c];
+                if (j <= i || fixedIn(i, j) > 1) {
+                    continue;
+                }
+                double delta = ac - ab;
+                if (j + 1 < n) {
+                    int d = route[j + 1];
+                    delta += distance[b * n + d] - distance[c * n + d];
+                }
+                if (delta < -EPSILON) {
+                    reverse(i, j);
+                    improved = true;
+                    break;
+                }
+            }
+
+            // New edge c - route[i], reversing route[position of c + 1..i]
+            b = route[i];
+            int next = i + 1 < n ? route[i + 1] : -1;
+            double bNext = next < 0 ? Double.POSITIVE_INFINITY : distance[b * n + next];
+            for (int k = b * neighbours; k < (b + 1) * neighbours; k++) {
+                int c = nearest[k];
+                double bc = distance[b * n + c];
+                if (bc >= bNext) {
+                    break;
+                }
+                int j = position[c];
+                if (j >= i - 1 || fixedIn(j + 1, i) > 1) {
+                    continue;
+                }
+                int e = route[j + 1];
+                double delta = bc - distance[c * n + e];
+                if (next >= 0) {
+                    delta += distance[e * n + next] - bNext;
+                }
+                if (delta < -EPSILON) {
+                    reverse(j + 1, i);
+                    improved = true;
+                    break;
+                }
+            }
+        }
+        return improved;
+    }
+
+    /**
+     * One pass of segment moves: each segment of 1..MAX_SEGMENT stops is
+     * moved, possibly reversed, next to one of the nearest stops of its
+     * ends when that shortens the route. Returns whether any move was made.
+     */
+    private boolean orOpt() {
+        boolean improved = false;
+        for (int length = 1; length <= MAX_SEGMENT; length++) {
+            segments:
+            for (int from = 1; from + length <= n; from++) {
+                int to = from + length - 1;
+                int prev = route[from - 1];
+                int first = route[from];
+                int last = route[to];
+                int next = to + 1 < n ? route[to + 1] : -1;
+                double removed = distance[prev * n + first]
+                        + (next < 0 ? 0 : distance[last * n + next] - distance[prev * n + next]);
+                if (removed <= EPSILON) {
+                    continue; // inserting elsewhere costs at least as much
+                }
+                int fixed = fixedIn(from, to);
+
+                for (int end : new int[] {first, last}) {
+                    for (int k = end * neighbours; k < (end + 1) * neighbours; k++) {
+                        int c = nearest[k];
+                        for (int after = position[c] - 1; after <= position[c]; after++) {
+                            if (after < 0 || (after >= from - 1 && after <= to)) {
+                                continue;
+                            }
+                            if (fixed > 0
+                                    && (after < from ? fixedIn(after + 1, from - 1) : fixedIn(to + 1, after)) > 0) {
+                                continue;
+                            }
+                            int u = route[after];
+                            int v = after + 1 < n ? route[after + 1] : -1;
+                            double uv = v < 0 ? 0 : distance[u * n + v];
+                            double forward = distance[u * n + first] + (v < 0 ? 0 : distance[last * n + v]) - uv;
+                            if (forward - removed < -EPSILON) {
+                                move(from, to, after, false);
+                                improved = true;
+                                continue segments;
+                            }
+                            if (length > 1 && fixed <= 1) {
+                                double backward = distance[u * n + last] + (v < 0 ? 0 : distance[first * n + v]) - uv;
+                                if (backward - removed < -EPSILON) {
+                                    move(from, to, after, true);
+                                    improved = true;
+                                    continue segments;
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return improved;
+    }
+
+    private void reverse(int i, int j) {
+        for (; i < j; i++, j--) {
+            int stop = route[i];
+            route[i] = route[j];
+            route[j] = stop;
+        }
+        reindex();
+    }
+
+    /**
+     * Move route[from..to] right after position after (outside the segment).
+     */
+    private void move(int from, int to, int after, boolean reversed) {
+        int length = to - from + 1;
+        int[] segment = Arrays.copyOfRange(route, from, to + 1);
+        int at;
+        if (after < from) {
+            System.arraycopy(route, after + 1, route, after + 1 + length, from - after - 1);
+            at = after + 1;
+        } else {
+            System.arraycopy(route, to + 1, route, from, after - to);
+            at = after - length + 1;
+        }
+        for (int k = 0; k < length; k++) {
+            route[at + k] = segment[reversed ? length - 1 - k : k];
+        }
+        reindex();
+    }
+
+    /**
+     * Recompute position and fixedBefore after route changed; O(n), done
+     * once per applied move, which is rare next to scored ones.
+     */
+    private void reindex() {
+        for (int p = 0; p < n; p++) {
+            position[route[p]] = p;
+            fixedBefore[p + 1] = fixedBefore[p] + (rank[route[p]] == UNRANKED ? 0 : 1);
+        }
+    }
+
+    /**
+     * Fixed stops at positions from..to, inclusive; 0 for an empty range.
+     */
+    private int fixedIn(int from, int to) {
+        return to < from ? 0 : fixedBefore[to + 1] - fixedBefore[from];
+    }
+}
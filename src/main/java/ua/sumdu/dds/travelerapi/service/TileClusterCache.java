@@ -0,0 +1,120 @@
+package ua.sumdu.dds.travelerapi.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ua.sumdu.dds.travelerapi.dto.MapCluster;
+import ua.sumdu.dds.travelerapi.model.Location;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Bounded in-process cache of map clusters, one entry per tile and filter.
+ *
+ * A location write evicts every cached tile that contains the location's
+ * point (before and after the write), at every zoom and for every filter.
+ * That is one pass over the keys, which keeps the cache free of any
+ * secondary index; writes are rare next to map reads. Deleting whole
+ * plans clears the cache, since the points of their locations are not
+ * known. As in TravelPlanCache, evictions are repeated after commit.
+ *
+ * Hit, miss and eviction counters are published as cache.* meters
+ * (cache=cluster_tiles).
+ */
+@Component
+public class TileClusterCache implements MeterBinder {
+
+    /**
+     * Clusters of one tile, for locations of planId (or all plans) in
+     * category (or any).
+     */
+    record Key(MapTile tile, UUID planId, String category) {}
+
+    private final Cache<Key, List<MapCluster>> tiles;
+
+    public TileClusterCache(@Value("${traveler.clusters.cache.max-size:10000}") long maxSize,
+                            @Value("${traveler.clusters.cache.ttl:10m}") Duration ttl) {
+        this.tiles = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, tiles, "cluster_tiles", Tags.empty());
+    }
+
+    /**
+     * Clusters of all tiles, in tile order. Tiles that are not cached are
+     * handed to the loader together, which must return an entry (possibly
+     * empty) for each of them.
+     */
+    public List<MapCluster> clusters(List<MapTile> wanted, UUID planId, String category,
+                                     Function<Collection<MapTile>, Map<MapTile, List<MapCluster>>> loader) {
+        List<Key> keys = wanted.stream().map(tile -> new Key(tile, planId, category)).toList();
+        Map<Key, List<MapCluster>> found = tiles.getAll(keys, missing -> {
+            Set<MapTile> missingTiles = missing.stream().map(Key::tile).collect(Collectors.toSet());
+            return loader.apply(missingTiles).entrySet().stream()
+                    .collect(Collectors.toMap(e -> new Key(e.getKey(), planId, category), Map.Entry::getValue));
+        });
+
+        List<MapCluster> clusters = new ArrayList<>();
+        keys.forEach(key -> clusters.addAll(found.getOrDefault(key, List.of())));
+        return clusters;
+    }
+
+    /**
+     * Drop every tile containing the point; no-op for a location without
+     * coordinates.
+     */
+    public void evict(BigDecimal latitude, BigDecimal longitude) {
+        Set<MapTile> stale = new HashSet<>();
+        addTiles(stale, latitude, longitude);
+        evictTiles(stale);
+    }
+
+    /**
+     * Drop every tile containing any of the locations, in one pass.
+     */
+    public void evict(Collection<Location> locations) {
+        Set<MapTile> stale = new HashSet<>();
+        locations.forEach(location -> addTiles(stale, location.getLatitude(), location.getLongitude()));
+        evictTiles(stale);
+    }
+
+    private void evictTiles(Set<MapTile> stale) {
+        if (stale.isEmpty()) return;
+        Runnable evict = () -> tiles.asMap().keySet().removeIf(key -> stale.contains(key.tile()));
+        evict.run();
+        TravelPlanCache.afterCommit(evict);
+    }
+
+    private static void addTiles(Set<MapTile> tiles, BigDecimal latitude, BigDecimal longitude) {
+        if (latitude == null || longitude == null) return;
+        for (int zoom = 0; zoom <= MapTile.MAX_ZOOM; zoom++) {
+            tiles.add(MapTile.of(zoom, latitude.doubleValue(), longitude.doubleValue()));
+        }
+    }
+
+    public void evictAll() {
+        tiles.invalidateAll();
+        TravelPlanCache.afterCommit(tiles::invalidateAll);
+    }
+}
@@ -0,0 +1,191 @@
+package ua.sumdu.dds.travelerapi.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ua.sumdu.dds.travelerapi.dto.TravelPlanWithLocations;
+import ua.sumdu.dds.travelerapi.model.Location;
+import ua.sumdu.dds.travelerapi.model.TravelPlan;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Bounded in-process read cache for plans, locations and plans with their
+ * locations, keyed by plan or location id.
+ *
+ * Caffeine's W-TinyLFU policy limits each cache to max-size entries, and
+ * entries expire ttl after they were written. An entry is only ever
+ * replaced by one with the same or a higher @Version, so a slow reader
+ * cannot overwrite a newer committed write.
+ *
+ * Writers refresh or evict after their transaction commits, which keeps
+ * uncommitted state out of the cache.
+ *
+ * Plan and location entries are not checked against the database on a
+ * normal read: only the version probes of the ETag reads drop a stale one
+ * (evictPlanIfStale, evictLocationIfStale). Until then a write made by
+ * another instance is seen after ttl at the latest. A plan with its
+ * locations is served only while its combined version matches the one
+ * the caller just probed, so it is validated on every read.
+ *
+ * Hit, miss and eviction counters are published as cache.* meters
+ * (cache=travel_plans / cache=locations / cache=travel_plans_with_locations).
+ */
+@Component
+public class TravelPlanCache implements MeterBinder {
+
+    private final Cache<UUID, TravelPlan> plans;
+    private final Cache<UUID, Location> locations;
+    private final Cache<UUID, TravelPlanWithLocations> withLocations;
+
+    public TravelPlanCache(@Value("${traveler.cache.max-size:10000}") long maxSize,
+                           @Value("${traveler.cache.ttl:5m}") Duration ttl) {
+        this.plans = build(maxSize, ttl);
+        this.locations = build(maxSize, ttl);
+        this.withLocations = build(maxSize, ttl);
+    }
+
+    private static <V> Cache<UUID, V> build(long maxSize, Duration ttl) {
+        return Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, plans, "travel_plans", Tags.empty());
+        CaffeineCacheMetrics.monitor(registry, locations, "locations", Tags.empty());
+        CaffeineCacheMetrics.monitor(registry, withLocations, "travel_plans_with_locations", Tags.empty());
+    }
+
+    /* -------- Plans -------- */
+
+    /**
+     * Cached plan, or the result of the loader on a miss.
+     * Misses are not cached.
+     */
+    public Optional<TravelPlan> plan(UUID id, Function<UUID, Optional<TravelPlan>> loader) {
+        return Optional.ofNullable(plans.get(id, key -> loader.apply(key).orElse(null)));
+    }
+
+    /**
+     * Store a written plan once the current transaction commits.
+     */
+    public void refreshPlan(TravelPlan plan) {
+        if (plan.getId() == null) return;
+        afterCommit(() -> plans.asMap().merge(plan.getId(), plan, TravelPlanCache::newerPlan));
+    }
+
+    public void evictPlan(UUID id) {
+        plans.invalidate(id);
+        withLocations.invalidate(id);
+        afterCommit(() -> {
+            plans.invalidate(id);
+            withLocations.invalidate(id);
+        });
+    }
+
+    /**
+     * Drop the cached plan if its version differs from the database.
+     */
+    public void evictPlanIfStale(UUID id, Integer version) {
+        plans.asMap().computeIfPresent(id, (key, cached) ->
+                Objects.equals(cached.getVersion(), version) ? cached : null);
+    }
+
+    /* -------- Plans with locations -------- */
+
+    /**
+     * Cached plan with its locations if its combined version is the given
+     * one, otherwise the result of the loader, which is then cached.
+     * Location changes do not evict: they raise the combined version.
+     *
+     * @param combinedVersion current combined version, as probed by the caller
+     */
+    public TravelPlanWithLocations planWithLocations(UUID id, String combinedVersion,
+                                                     Function<UUID, TravelPlanWithLocations> loader) {
+        TravelPlanWithLocations cached = withLocations.getIfPresent(id);
+        if (cached != null && String.valueOf(cached.combinedVersion()).equals(combinedVersion)) {
+            return cached;
+        }
+        TravelPlanWithLocations loaded = loader.apply(id);
+        withLocations.asMap().merge(id, loaded, (current, read) ->
+                current.combinedVersion() > read.combinedVersion() ? current : read);
+        return loaded;
+    }
+
+    /* -------- Locations -------- */
+
+    /**
+     * Cached location, or the result of the loader on a miss.
+     * Misses are not cached.
+     */
+    public Optional<Location> location(UUID id, Function<UUID, Optional<Location>> loader) {
+        return Optional.ofNullable(locations.get(id, key -> loader.apply(key).orElse(null)));
+    }
+
+    /**
+     * Store a written location once the current transaction commits.
+     */
+    public void refreshLocation(Location location) {
+        if (location.getId() == null) return;
+        afterCommit(() -> locations.asMap().merge(location.getId(), location, TravelPlanCache::newerLocation));
+    }
+
+    public void evictLocation(UUID id) {
+        locations.invalidate(id);
+        afterCommit(() -> locations.invalidate(id));
+    }
+
+    /**
+     * Drop the cached location if its version differs from the database.
+     */
+    public void evictLocationIfStale(UUID id, Integer version) {
+        locations.asMap().computeIfPresent(id, (key, cached) ->
+                Objects.equals(cached.getVersion(), version) ? cached : null);
+    }
+
+    /* -------- Helpers -------- */
+
+    private static TravelPlan newerPlan(TravelPlan cached, TravelPlan written) {
+        return isOlder(written.getVersion(), cached.getVersion()) ? cached : written;
+    }
+
+    private static Location newerLocation(Location cached, Location written) {
+        return isOlder(written.getVersion(), cached.getVersion()) ? cached : written;
+    }
+
+    private static boolean isOlder(Integer version, Integer than) {
+        return version != null && than != null && version < than;
+    }
+
+    /**
+     * Runs the action after commit, or right away outside a transaction.
+     * Rolled back transactions leave the cache untouched.
+     */
+    static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
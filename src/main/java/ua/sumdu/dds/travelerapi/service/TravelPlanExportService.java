@@ -0,0 +1,138 @@
+package ua.sumdu.dds.travelerapi.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Hibernate;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import ua.sumdu.dds.travelerapi.dto.TravelPlanWithLocations;
+import ua.sumdu.dds.travelerapi.model.Location;
+import ua.sumdu.dds.travelerapi.model.TravelPlan;
+import ua.sumdu.dds.travelerapi.sharding.ScatterGather;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bulk NDJSON export of all travel plans with their locations.
+ *
+ * Three server-side cursors are opened in one REPEATABLE READ transaction
+ * (plans ordered by id, locations ordered by travel_plan_id, visit_order,
+ * deleted-location versions ordered by travel_plan_id) and merge-joined
+ * while writing, so the export is a consistent snapshot and heap usage
+ * does not depend on the number of rows.
+ *
+ * With sharding, the shards are exported one after the other, each in its
+ * own transaction (see ScatterGather.each): plans come out ordered by id
+ * within a shard, and every shard is a snapshot of its own.
+ */
+@Service
+@RequiredArgsConstructor
+public class TravelPlanExportService {
+
+    /** Rows per round trip for each cursor. */
+    static final int FETCH_SIZE = 1000;
+
+    /** Plans written between persistence context clears. */
+    static final int CLEAR_INTERVAL = 500;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final EntityManager entityManager;
+    private final PlatformTransactionManager transactionManager;
+    private final ObjectMapper objectMapper;
+    private final ScatterGather shards;
+
+    /**
+     * Write every plan as one JSON line with its locations nested.
+     *
+     * @param out Response stream; flushed but not closed
+     */
+    public void exportNdjson(OutputStream out) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setReadOnly(true);
+        tx.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+
+        BufferedOutputStream buffered = new BufferedOutputStream(out, BUFFER_SIZE);
+        shards.each(() -> tx.executeWithoutResult(status -> {
+            try {
+                writePlans(buffered);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }));
+
+        try {
+            buffered.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writePlans(BufferedOutputStream out) throws IOException {
+        Session session = entityManager.unwrap(Session.class);
+        ObjectWriter writer = objectMapper.writerFor(TravelPlanWithLocations.class);
+
+        try (ScrollableResults<TravelPlan> planRows = session
+                     .createSelectionQuery("from TravelPlan p order by p.id", TravelPlan.class)
+                     .setFetchSize(FETCH_SIZE)
+                     .setReadOnly(true)
+                     .scroll(ScrollMode.FORWARD_ONLY);
+             ScrollableResults<Location> locationRows = session
+                     .createSelectionQuery("from Location l order by l.travelPlan.id, l.visitOrder", Location.class)
+                     .setFetchSize(FETCH_SIZE)
+                     .setReadOnly(true)
+                     .scroll(ScrollMode.FORWARD_ONLY);
+             ScrollableResults<Object[]> deletionRows = session
+                     .createSelectionQuery(
+                             "select d.travelPlanId, d.version from LocationDeletion d order by d.travelPlanId",
+                             Object[].class)
+                     .setFetchSize(FETCH_SIZE)
+                     .setReadOnly(true)
+                     .scroll(ScrollMode.FORWARD_ONLY)) {
+
+            // All cursors are ordered by plan id, so each plan's locations
+            // are the next contiguous run of the location cursor, and its
+            // deleted-location version (at most one row) the next deletion row.
+            Location pending = locationRows.next() ? locationRows.get() : null;
+            Object[] pendingDeletion = deletionRows.next() ? deletionRows.get() : null;
+            int written = 0;
+
+            while (planRows.next()) {
+                // A location read ahead of its plan leaves a proxy in the
+                // persistence context; the plan row initializes it.
+                TravelPlan plan = (TravelPlan) Hibernate.unproxy(planRows.get());
+
+                List<Location> planLocations = new ArrayList<>();
+                while (pending != null && pending.getTravelPlanId().equals(plan.getId())) {
+                    planLocations.add(pending);
+                    pending = locationRows.next() ? locationRows.get() : null;
+                }
+
+                int deletedVersion = 0;
+                if (pendingDeletion != null && pendingDeletion[0].equals(plan.getId())) {
+                    deletedVersion = (Integer) pendingDeletion[1];
+                    pendingDeletion = deletionRows.next() ? deletionRows.get() : null;
+                }
+
+                out.write(writer.writeValueAsBytes(TravelPlanWithLocations.of(plan, planLocations, deletedVersion)));
+                out.write('\n');
+
+                if (++written % CLEAR_INTERVAL == 0) {
+                    session.clear();
+                }
+            }
+        }
+    }
+}
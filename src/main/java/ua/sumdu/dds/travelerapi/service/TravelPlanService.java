@@ -1,6 +1,9 @@
 package ua.sumdu.dds.travelerapi.service;
 
+import jakarta.persistence.EntityManager;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ua.sumdu.dds.travelerapi.dto.*;
@@ -9,36 +12,368 @@ import ua.sumdu.dds.travelerapi.exception.ValidationException;
 import ua.sumdu.dds.travelerapi.exception.VersionConflictException;
 import ua.sumdu.dds.travelerapi.model.Location;
 import ua.sumdu.dds.travelerapi.model.TravelPlan;
+import ua.sumdu.dds.travelerapi.repository.ClusterCell;
+import ua.sumdu.dds.travelerapi.repository.JsonbEditVersions;
+import ua.sumdu.dds.travelerapi.repository.LocationReadRepository;
 import ua.sumdu.dds.travelerapi.repository.LocationRepository;
+import ua.sumdu.dds.travelerapi.repository.LocationWriteRepository;
+import ua.sumdu.dds.travelerapi.repository.TravelPlanReadRepository;
 import ua.sumdu.dds.travelerapi.repository.TravelPlanRepository;
+import ua.sumdu.dds.travelerapi.repository.TravelPlanWriteRepository;
+import ua.sumdu.dds.travelerapi.sharding.AssignShard;
+import ua.sumdu.dds.travelerapi.sharding.ScatterGather;
+import ua.sumdu.dds.travelerapi.sharding.ShardKey;
 
 import java.math.BigDecimal;
-import java.time.LocalDate;
 import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 @Service
 @RequiredArgsConstructor
 public class TravelPlanService {
 
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+    public static final int MAX_BATCH_SIZE = 1000;
+
+    /** Tags per plan search; each one is an OR branch of the query. */
+    public static final int MAX_SEARCH_TAGS = 20;
+
+    /** Tiles per cluster request; a bigger box should be asked at a lower zoom. */
+    public static final int MAX_CLUSTER_TILES = 64;
+
+    /** Largest radius of a nearby search. */
+    public static final double MAX_NEARBY_RADIUS_KM = 500;
+
+    /**
+     * Candidates fetched per requested nearby result in the first round, and
+     * the growth of that number in each further round: the index orders by
+     * planar distance in degrees, which overstates east-west distances, so
+     * the true nearest ones can rank a little further down.
+     */
+    private static final int NEARBY_OVERFETCH = 4;
+
+    private static final double EARTH_RADIUS_KM = 6371.0088;
+    private static final double KM_PER_DEGREE = Math.PI * EARTH_RADIUS_KM / 180;
+
+    /** Path operations per metadata / attributes patch; each one nests the SQL expression further. */
+    public static final int MAX_PATCH_OPERATIONS = 100;
+
+    /** Spacing of visit_order values, so a move fits between two neighbours. */
+    public static final int VISIT_ORDER_GAP = 1000;
+
+    /** Locations per route optimization; the distance matrix holds n^2 doubles. */
+    public static final int MAX_ROUTE_STOPS = 1000;
+
+    private static final String END_BEFORE_START = "end_date must be after or equal to start_date";
+    private static final String DEPARTURE_BEFORE_ARRIVAL = "departure_date must be after or equal to arrival_date";
+
+    /** Flush and clear the persistence context every this many inserts (= hibernate.jdbc.batch_size). */
+    private static final int FLUSH_EVERY = 50;
+
+    /** Order of the per-shard by-category query. */
+    private static final Comparator<LocationView> BY_VISIT_ORDER =
+            Comparator.comparing(LocationView::visitOrder, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    /**
+     * Order of the per-shard plan search: (created_at, id), with ids compared
+     * as text to match PostgreSQL's byte order of uuid.
+     */
+    private static final Comparator<TravelPlanView> BY_CREATED_AT =
+            Comparator.comparing(TravelPlanView::createdAt)
+                    .thenComparing(view -> view.id().toString());
+
+    /** Order of the per-shard plan list: (created_at, id), as BY_CREATED_AT. */
+    private static final Comparator<TravelPlan> PLAN_BY_CREATED_AT =
+            Comparator.comparing(TravelPlan::getCreatedAt)
+                    .thenComparing(plan -> plan.getId().toString());
+
+    /** Order of the per-shard location search without min_rating: id, as text (see BY_CREATED_AT). */
+    private static final Comparator<LocationView> BY_ID =
+            Comparator.comparing(view -> view.id().toString());
+
+    /** Order of the per-shard location search with min_rating: (rating, id) DESC. */
+    private static final Comparator<LocationView> BY_RATING_DESC =
+            Comparator.comparing(TravelPlanService::rating, Comparator.nullsLast(Comparator.reverseOrder()))
+                    .thenComparing(view -> view.id().toString(), Comparator.reverseOrder());
+
     private final TravelPlanRepository plans;
     private final LocationRepository locations;
+    private final TravelPlanCache cache;
+    private final TileClusterCache clusters;
+    private final TravelPlanReadRepository planViews;
+    private final LocationReadRepository locationViews;
+    private final TravelPlanWriteRepository planWrites;
+    private final LocationWriteRepository locationWrites;
+    private final JsonbRebase rebase;
+    private final ScatterGather shards;
+    private final EntityManager entityManager;
+    private final Validator validator;
 
     /* -------- Travel Plans -------- */
 
-    public List<TravelPlan> listAll() {
-        return plans.findAll();
+    /**
+     * List travel plans page by page, ordered by (created_at, id).
+     *
+     * Uses keyset pagination, so every page costs one index range scan
+     * and memory is bounded by the page size, not by the table size.
+     * With sharding, each shard returns its first limit + 1 rows after the
+     * cursor and the parts are merged (see ScatterGather).
+     *
+     * @param cursor next_cursor of the previous page, or null for the first page
+     * @param limit Page size (capped at MAX_PAGE_SIZE)
+     * @return Page of plans with the cursor of the next page
+     */
+    @Transactional(readOnly = true)
+    public CursorPage<TravelPlan> listPage(String cursor, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be >= 1");
+        }
+        int pageSize = Math.min(limit, MAX_PAGE_SIZE);
+
+        // Fetch one extra row to know whether another page exists
+        Supplier<List<TravelPlan>> query;
+        if (cursor == null || cursor.isBlank()) {
+            query = () -> plans.findFirstPage(pageSize + 1);
+        } else {
+            PageCursor after = PageCursor.decode(cursor);
+            OffsetDateTime afterCreatedAt = parseCreatedAt(after.sortKey());
+            query = () -> plans.findPageAfter(afterCreatedAt, after.id(), pageSize + 1);
+        }
+        List<TravelPlan> rows = shards.merged(query, PLAN_BY_CREATED_AT, pageSize + 1);
+
+        if (rows.size() <= pageSize) {
+            return new CursorPage<>(rows, null);
+        }
+
+        List<TravelPlan> page = rows.subList(0, pageSize);
+        TravelPlan last = page.get(pageSize - 1);
+        String next = new PageCursor(last.getCreatedAt().toString(), last.getId()).encode();
+        return new CursorPage<>(page, next);
+    }
+
+    private OffsetDateTime parseCreatedAt(String value) {
+        try {
+            return OffsetDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
     }
 
-    public TravelPlan getById(UUID id) {
+    public TravelPlan getById(@ShardKey UUID id) {
+        return cache.plan(id, plans::findById)
+                .orElseThrow(() -> new NotFoundException("Travel plan not found"));
+    }
+
+    /* -------- Version probes (ETag / If-None-Match) -------- */
+
+    /**
+     * Current plan version, read without loading the entity.
+     * A cached copy with a different version is dropped.
+     */
+    public int getPlanVersion(@ShardKey UUID id) {
+        Integer version = plans.findVersionById(id)
+                .orElseThrow(() -> new NotFoundException("Travel plan not found"));
+        cache.evictPlanIfStale(id, version);
+        return version;
+    }
+
+    /**
+     * Version token for a plan's location list.
+     */
+    public String getLocationsVersion(@ShardKey UUID planId) {
+        return plans.findLocationsVersionById(planId)
+                .orElseThrow(() -> new NotFoundException("Travel plan not found"));
+    }
+
+    /**
+     * Current location version, read without loading the location or its
+     * plan: the probe carries the plan id. Only when the location is
+     * missing is the plan probed, to tell which of the two is.
+     * A cached copy with a different version is dropped.
+     */
+    public int getLocationVersion(@ShardKey UUID planId, UUID locationId) {
+        LocationRepository.VersionProbe probe = locations.findVersionById(locationId)
+                .orElseThrow(() -> plans.findVersionById(planId).isPresent()
+                        ? new NotFoundException("Location not found")
+                        : new NotFoundException("Travel plan not found"));
+
+        if (!probe.getTravelPlanId().equals(planId)) {
+            throw new NotFoundException("Location not found in travel plan");
+        }
+
+        cache.evictLocationIfStale(locationId, probe.getVersion());
+        return probe.getVersion();
+    }
+
+    /**
+     * Plan attached to the current transaction, for write paths.
+     * Always read from the database, never from the cache.
+     */
+    private TravelPlan managedPlan(UUID id) {
         return plans.findById(id)
                 .orElseThrow(() -> new NotFoundException("Travel plan not found"));
     }
 
+    private Location managedLocation(UUID planId, UUID locationId) {
+        Location l = locations.findById(locationId)
+                .orElseThrow(() -> new NotFoundException("Location not found"));
+
+        if (!l.getTravelPlan().getId().equals(planId)) {
+            throw new NotFoundException("Location not found in travel plan");
+        }
+        return l;
+    }
+
+    /**
+     * Why a conditional plan UPDATE matched no row: the plan is gone
+     * (404) or its version has moved on (409).
+     */
+    private RuntimeException planWriteMissed(UUID id) {
+        return plans.findVersionById(id)
+                .<RuntimeException>map(VersionConflictException::new)
+                .orElseGet(() -> new NotFoundException("Travel plan not found"));
+    }
+
+    /**
+     * Why a conditional location UPDATE matched no row, with the same
+     * messages as managedPlan / managedLocation.
+     */
+    private RuntimeException locationWriteMissed(UUID planId, UUID locationId) {
+        Optional<LocationRepository.VersionProbe> probe = locations.findVersionById(locationId);
+        if (probe.isEmpty()) {
+            return plans.findVersionById(planId).isPresent()
+                    ? new NotFoundException("Location not found")
+                    : new NotFoundException("Travel plan not found");
+        }
+        if (!probe.get().getTravelPlanId().equals(planId)) {
+            return new NotFoundException("Location not found in travel plan");
+        }
+        return new VersionConflictException(probe.get().getVersion());
+    }
+
+    private static boolean violates(DataIntegrityViolationException e, String constraint) {
+        String message = e.getMostSpecificCause().getMessage();
+        return message != null && message.contains(constraint);
+    }
+
+    /**
+     * Plan with its locations, from the cache while its combined version
+     * is combinedVersion (see TravelPlanCache.planWithLocations).
+     *
+     * @param combinedVersion current combined version (getLocationsVersion)
+     */
+    @Transactional(readOnly = true)
+    public TravelPlanWithLocations getWithLocations(@ShardKey UUID id, String combinedVersion) {
+        return cache.planWithLocations(id, combinedVersion, this::loadWithLocations);
+    }
+
+    private TravelPlanWithLocations loadWithLocations(UUID id) {
+        TravelPlan plan = plans.findWithLocationsById(id)
+                .orElseThrow(() -> new NotFoundException("Travel plan not found"));
+        return TravelPlanWithLocations.of(plan, List.copyOf(plan.getLocations()),
+                plans.findDeletedLocationsVersionById(id));
+    }
+
+    @AssignShard
     @Transactional
     public TravelPlan create(CreateTravelPlanRequest r) {
+        TravelPlan saved = plans.save(newPlan(r));
+        cache.refreshPlan(saved);
+        return saved;
+    }
 
-        TravelPlan p = TravelPlan.builder()
+    /**
+     * Create many plans in one transaction with batched INSERTs.
+     *
+     * Every element is validated on its own; invalid ones are reported
+     * by index and skipped, the rest are inserted. Ids are generated
+     * in the application, so Hibernate can send the inserts in JDBC
+     * batches of hibernate.jdbc.batch_size. The new plans are not put
+     * into the read cache.
+     *
+     * With sharding, all plans of one batch go to the same (random) shard.
+     *
+     * @param requests Plans to create, at most MAX_BATCH_SIZE
+     * @return One result per request element, in request order
+     */
+    @AssignShard
+    @Transactional
+    public BatchResult createBatch(List<CreateTravelPlanRequest> requests) {
+        if (requests == null || requests.isEmpty()) {
+            throw new ValidationException(List.of("batch must not be empty"));
+        }
+        if (requests.size() > MAX_BATCH_SIZE) {
+            throw new ValidationException(List.of("batch must not exceed " + MAX_BATCH_SIZE + " items"));
+        }
+
+        List<BatchItemResult> results = new ArrayList<>(requests.size());
+        int pending = 0;
+        for (int i = 0; i < requests.size(); i++) {
+            CreateTravelPlanRequest r = requests.get(i);
+            if (r == null) {
+                results.add(BatchItemResult.rejected(i, List.of("item must not be null")));
+                continue;
+            }
+
+            List<String> errors = violations(r);
+            TravelPlan p = null;
+            if (errors.isEmpty()) {
+                p = newPlan(r);
+                errors = violations(p);
+            }
+            if (!errors.isEmpty()) {
+                results.add(BatchItemResult.rejected(i, errors));
+                continue;
+            }
+
+            entityManager.persist(p);
+            results.add(BatchItemResult.created(i, p.getId(), p.getVersion()));
+
+            if (++pending == FLUSH_EVERY) {
+                entityManager.flush();
+                entityManager.clear();
+                pending = 0;
+            }
+        }
+        return BatchResult.of(results);
+    }
+
+    private List<String> violations(Object target) {
+        return validator.validate(target).stream()
+                .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                .sorted()
+                .toList();
+    }
+
+    private void checkOperations(List<JsonPathOperation> operations) {
+        if (operations == null || operations.isEmpty()) {
+            throw new ValidationException(List.of("at least one operation is required"));
+        }
+        if (operations.size() > MAX_PATCH_OPERATIONS) {
+            throw new ValidationException(List.of("at most " + MAX_PATCH_OPERATIONS + " operations per request"));
+        }
+
+        List<String> errors = new ArrayList<>();
+        for (int i = 0; i < operations.size(); i++) {
+            if (operations.get(i) == null) {
+                errors.add("[" + i + "] operation must not be null");
+                continue;
+            }
+            for (String error : violations(operations.get(i))) {
+                errors.add("[" + i + "] " + error);
+            }
+        }
+        if (!errors.isEmpty()) {
+            throw new ValidationException(errors);
+        }
+    }
+
+    private TravelPlan newPlan(CreateTravelPlanRequest r) {
+        return TravelPlan.builder()
                 .title(r.title())
                 .description(r.description())
                 .startDate(r.startDate())
@@ -49,44 +384,77 @@ public class TravelPlanService {
                 .version(1)
                 .metadata(new HashMap<>()) // Initialize empty metadata
                 .build();
-
-        return plans.save(p);
     }
 
+    /**
+     * One conditional UPDATE ... RETURNING; see TravelPlanWriteRepository.
+     */
     @Transactional
-    public TravelPlan update(UUID id, UpdateTravelPlanRequest r) {
-        TravelPlan p = getById(id); // 404
-
-        LocalDate newStart = r.startDate() != null ? r.startDate() : p.getStartDate();
-        LocalDate newEnd   = r.endDate() != null   ? r.endDate()   : p.getEndDate();
-
-        if (newStart != null && newEnd != null && newEnd.isBefore(newStart)) {
-            throw new IllegalArgumentException("end_date must be after or equal to start_date");
+    public TravelPlan update(@ShardKey UUID id, UpdateTravelPlanRequest r) {
+        if (r.title() != null && r.title().isBlank()) {
+            throw new ValidationException(List.of("title must not be blank"));
         }
-
-        if (!p.getVersion().equals(r.version())) {
-            throw new VersionConflictException(p.getVersion());
+        if (r.startDate() != null && r.endDate() != null && r.endDate().isBefore(r.startDate())) {
+            throw new IllegalArgumentException(END_BEFORE_START);
         }
 
-        if (r.title() != null)       p.setTitle(r.title());
-        if (r.description() != null) p.setDescription(r.description());
-        if (r.startDate() != null)   p.setStartDate(r.startDate());
-        if (r.endDate() != null)     p.setEndDate(r.endDate());
-        if (r.budget() != null)      p.setBudget(r.budget());
-        if (r.currency() != null)    p.setCurrency(r.currency());
-        if (r.isPublic() != null)    p.setPublic(r.isPublic());
-
-        p.setVersion(p.getVersion() + 1);
+        TravelPlan saved;
+        try {
+            saved = planWrites.update(id, r).orElseThrow(() -> planWriteMissed(id));
+        } catch (DataIntegrityViolationException e) {
+            // Only one of the dates was sent and it crosses the stored one
+            if (violates(e, "check_dates")) {
+                throw new IllegalArgumentException(END_BEFORE_START);
+            }
+            throw e;
+        }
 
-        return plans.save(p);
+        cache.refreshPlan(saved);
+        return saved;
     }
 
+    /**
+     * One DELETE ... RETURNING id; locations are removed by ON DELETE
+     * CASCADE instead of being loaded and deleted one by one.
+     */
     @Transactional
-    public void delete(UUID id) {
-        if (!plans.existsById(id)) {
+    public void delete(@ShardKey UUID id) {
+        if (planWrites.delete(List.of(id)).isEmpty()) {
             throw new NotFoundException("Travel plan not found");
         }
-        plans.deleteById(id);
+        cache.evictPlan(id);
+        clusters.evictAll();
+    }
+
+    /**
+     * Delete up to MAX_BATCH_SIZE plans with their locations.
+     *
+     * Ids that do not exist are reported, not an error. With sharding the
+     * DELETE runs on every shard at once (each one only matches its own
+     * plans), and each shard commits on its own.
+     */
+    @Transactional
+    public BulkDeleteResult deleteBatch(List<UUID> ids) {
+        if (ids == null || ids.isEmpty()) {
+            throw new ValidationException(List.of("ids must not be empty"));
+        }
+        if (ids.size() > MAX_BATCH_SIZE) {
+            throw new ValidationException(List.of("ids must not exceed " + MAX_BATCH_SIZE + " items"));
+        }
+        if (ids.stream().anyMatch(Objects::isNull)) {
+            throw new ValidationException(List.of("ids must not contain null"));
+        }
+
+        Set<UUID> requested = new LinkedHashSet<>(ids);
+        Set<UUID> deleted = new HashSet<>(shards.all(() -> planWrites.delete(requested)));
+        deleted.forEach(cache::evictPlan);
+        if (!deleted.isEmpty()) {
+            clusters.evictAll();
+        }
+
+        List<UUID> notFound = requested.stream().filter(id -> !deleted.contains(id)).toList();
+        return new BulkDeleteResult(
+                requested.stream().filter(deleted::contains).toList(), notFound);
     }
 
     /* -------- JSONB Metadata Operations -------- */
@@ -98,34 +466,49 @@ public class TravelPlanService {
      * 1. MERGE (default): Shallow merge at root level, preserves other keys
      * 2. REPLACE: Complete replacement of metadata object
      *
+     * A stale merge whose keys did not change since its version is
+     * rebased (see JsonbRebase); a stale replace is always a conflict.
+     *
      * @param id Travel plan ID
      * @param request Metadata update request with merge flag
      * @return Updated travel plan
      */
     @Transactional
-    public TravelPlan updateMetadata(UUID id, MetadataUpdateRequest request) {
-        TravelPlan p = getById(id);
-
-        // Optimistic locking check
-        if (!p.getVersion().equals(request.version())) {
-            throw new VersionConflictException(p.getVersion());
-        }
-
-        Map<String, Object> newMetadata;
-
-        if (Boolean.TRUE.equals(request.merge())) {
-            // MERGE mode: preserve existing keys, update only provided keys
-            newMetadata = new HashMap<>(p.getMetadata());
-            newMetadata.putAll(request.metadata());
-        } else {
-            // REPLACE mode: complete replacement
-            newMetadata = new HashMap<>(request.metadata());
-        }
+    public TravelPlan updateMetadata(@ShardKey UUID id, MetadataUpdateRequest request) {
+        TravelPlan saved = Boolean.TRUE.equals(request.merge())
+                ? metadataWrite(id, request.version(), request.metadata().keySet(),
+                        v -> planWrites.mergeMetadata(id, v, request.metadata()))
+                : metadataWrite(id, request.version(), null,
+                        v -> planWrites.replaceMetadata(id, v, request.metadata()));
+        cache.refreshPlan(saved);
+        return saved;
+    }
 
-        p.setMetadata(newMetadata);
-        p.setVersion(p.getVersion() + 1);
+    /**
+     * Deep merge of metadata (JSON Merge Patch, RFC 7396).
+     *
+     * Nested objects are merged instead of replaced and a null member
+     * removes its key, so a client only sends what changed. The patch is
+     * applied in the UPDATE itself (jsonb_set / #-).
+     */
+    @Transactional
+    public TravelPlan mergePatchMetadata(@ShardKey UUID id, Map<String, Object> patch, Integer version) {
+        TravelPlan saved = metadataWrite(id, version, patch.keySet(),
+                v -> planWrites.mergePatchMetadata(id, v, patch));
+        cache.refreshPlan(saved);
+        return saved;
+    }
 
-        return plans.save(p);
+    /**
+     * Apply set / remove / append operations at nested metadata paths, in order.
+     */
+    @Transactional
+    public TravelPlan patchMetadata(@ShardKey UUID id, List<JsonPathOperation> operations, Integer version) {
+        checkOperations(operations);
+        TravelPlan saved = metadataWrite(id, version, JsonbEditVersions.topLevelKeys(operations),
+                v -> planWrites.patchMetadata(id, v, operations));
+        cache.refreshPlan(saved);
+        return saved;
     }
 
     /**
@@ -135,7 +518,7 @@ public class TravelPlanService {
      * @return Metadata map
      */
     @Transactional(readOnly = true)
-    public Map<String, Object> getMetadata(UUID id) {
+    public Map<String, Object> getMetadata(@ShardKey UUID id) {
         TravelPlan p = getById(id);
         return p.getMetadata() != null ? p.getMetadata() : new HashMap<>();
     }
@@ -149,205 +532,394 @@ public class TravelPlanService {
      * @return Updated travel plan
      */
     @Transactional
-    public TravelPlan deleteMetadataKey(UUID id, String key, Integer version) {
-        TravelPlan p = getById(id);
-
-        if (!p.getVersion().equals(version)) {
-            throw new VersionConflictException(p.getVersion());
-        }
-
-        Map<String, Object> metadata = new HashMap<>(p.getMetadata());
-        metadata.remove(key);
-
-        p.setMetadata(metadata);
-        p.setVersion(p.getVersion() + 1);
+    public TravelPlan deleteMetadataKey(@ShardKey UUID id, String key, Integer version) {
+        TravelPlan saved = metadataWrite(id, version, Set.of(key),
+                v -> planWrites.deleteMetadataKey(id, v, key));
+        cache.refreshPlan(saved);
+        return saved;
+    }
 
-        return plans.save(p);
+    private TravelPlan metadataWrite(UUID id, Integer version, Collection<String> keys,
+                                     Function<Integer, Optional<TravelPlan>> write) {
+        return rebase.write(version, keys, write,
+                () -> planWrites.findMetadataVersions(id), () -> planWriteMissed(id));
     }
 
     /* -------- JSONB Search Operations -------- */
 
     /**
-     * Search travel plans by travel style.
+     * Search travel plans by all criteria at once, a page at a time.
      *
-     * Note: Full searchWithFilters was removed due to PostgreSQL ?/?| operator
-     * conflicts with JDBC. Use individual find methods instead.
+     * Every filter of the request (preferences, tags - any or all of them,
+     * is_public) goes into
+     * one SQL statement (TravelPlanReadRepository.search) in (created_at, id)
+     * order, and pages are keyset-paginated like listPage. With sharding,
+     * each shard returns its first limit + 1 rows after the cursor and the
+     * parts are merged (see ScatterGather).
      *
-     * @param searchRequest Search criteria (only travelStyle and budgetCategory supported)
-     * @return List of matching travel plans
+     * @param searchRequest Search criteria; absent ones match everything
+     * @param cursor next_cursor of the previous page, or null
+     * @param limit Page size, capped at MAX_PAGE_SIZE
+     * @return One page of matching plans
      */
     @Transactional(readOnly = true)
-    public List<TravelPlan> searchPlans(TravelPlanSearchRequest searchRequest) {
-        // Start with travel style filter if provided
-        if (searchRequest.travelStyle() != null) {
-            List<TravelPlan> results = plans.findByTravelStyle(searchRequest.travelStyle());
-
-            // Apply additional filters in Java
-            return results.stream()
-                    .filter(p -> matchesBudgetCategory(p, searchRequest.budgetCategory()))
-                    .filter(p -> matchesPublicFlag(p, searchRequest.isPublic()))
-                    .toList();
+    public CursorPage<TravelPlanView> searchPlans(TravelPlanSearchRequest searchRequest, String cursor, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be >= 1");
+        }
+        int pageSize = Math.min(limit, MAX_PAGE_SIZE);
+
+        List<String> tags = searchRequest.tags() == null ? null : searchRequest.tags().stream()
+                .filter(tag -> tag != null && !tag.isBlank())
+                .distinct()
+                .toList();
+        if (tags != null && tags.size() > MAX_SEARCH_TAGS) {
+            throw new ValidationException(List.of("at most " + MAX_SEARCH_TAGS + " tags per search"));
         }
+        TravelPlanSearchRequest filter = new TravelPlanSearchRequest(searchRequest.travelStyle(),
+                searchRequest.budgetCategory(), searchRequest.pace(), tags, searchRequest.isPublic(),
+                searchRequest.allTags());
 
-        // Fall back to budget category if no travel style
-        if (searchRequest.budgetCategory() != null) {
-            List<TravelPlan> results = plans.findByBudgetCategory(searchRequest.budgetCategory());
+        PageCursor after = cursor == null || cursor.isBlank() ? null : PageCursor.decode(cursor);
+        OffsetDateTime afterCreatedAt = after != null ? parseCreatedAt(after.sortKey()) : null;
+        UUID afterId = after != null ? after.id() : null;
 
-            return results.stream()
-                    .filter(p -> matchesPublicFlag(p, searchRequest.isPublic()))
-                    .toList();
+        // One extra row tells whether another page exists
+        List<TravelPlanView> rows = shards.merged(
+                () -> planViews.search(filter, afterCreatedAt, afterId, pageSize + 1), BY_CREATED_AT, pageSize + 1);
+
+        if (rows.size() <= pageSize) {
+            return new CursorPage<>(rows, null);
         }
+        List<TravelPlanView> page = rows.subList(0, pageSize);
+        TravelPlanView last = page.get(pageSize - 1);
+        return new CursorPage<>(page, new PageCursor(last.createdAt().toString(), last.id()).encode());
+    }
 
-        // If no JSONB filters, return all (optionally filtered by isPublic)
-        List<TravelPlan> all = plans.findAll();
-        if (searchRequest.isPublic() != null) {
-            return all.stream()
-                    .filter(p -> p.isPublic() == searchRequest.isPublic())
-                    .toList();
+    /**
+     * Find travel plans by specific travel style.
+     */
+    @Transactional(readOnly = true)
+    public List<TravelPlanView> findByTravelStyle(String travelStyle) {
+        return shards.all(() -> planViews.findByTravelStyle(travelStyle));
+    }
+
+    /**
+     * Find travel plans by budget category.
+     */
+    @Transactional(readOnly = true)
+    public List<TravelPlanView> findByBudgetCategory(String budgetCategory) {
+        return shards.all(() -> planViews.findByBudgetCategory(budgetCategory));
+    }
+
+    /* -------- Locations -------- */
+
+    @Transactional
+    public Location addLocation(@ShardKey UUID planId, CreateLocationRequest r) {
+        if (r.arrivalDate() != null && r.departureDate() != null &&
+                r.departureDate().isBefore(r.arrivalDate())) {
+            throw new ValidationException(List.of(DEPARTURE_BEFORE_ARRIVAL));
         }
-        return all;
+
+        // As in addLocations and moveLocation: concurrent appends would read
+        // the same last visit_order, and a rebalance must not run mid-move
+        TravelPlan p = plans.findByIdForUpdate(planId)
+                .orElseThrow(() -> new NotFoundException("Travel plan not found"));
+        int nextOrder = appendOrder(planId, 1);
+
+        Location saved = locations.save(newLocation(p, r, nextOrder));
+        cache.refreshLocation(saved);
+        clusters.evict(saved.getLatitude(), saved.getLongitude());
+        return saved;
     }
 
-    private boolean matchesBudgetCategory(TravelPlan plan, String budgetCategory) {
-        if (budgetCategory == null) return true;
+    /**
+     * Append many locations to a plan in one transaction, in request order.
+     *
+     * The plan row is locked, the last visit_order is read once and the
+     * locations get consecutive slots after it. They are inserted in
+     * JDBC batches; the plan row is only locked, not written.
+     * Any invalid element rejects the batch; errors are prefixed with
+     * the element index.
+     *
+     * @param planId Travel plan ID
+     * @param requests Locations to add, at most MAX_BATCH_SIZE
+     * @return Created locations, in request order
+     */
+    @Transactional
+    public List<Location> addLocations(@ShardKey UUID planId, List<CreateLocationRequest> requests) {
+        if (requests == null || requests.isEmpty()) {
+            throw new ValidationException(List.of("batch must not be empty"));
+        }
+        if (requests.size() > MAX_BATCH_SIZE) {
+            throw new ValidationException(List.of("batch must not exceed " + MAX_BATCH_SIZE + " items"));
+        }
 
-        Map<String, Object> metadata = plan.getMetadata();
-        if (metadata == null) return false;
+        List<String> errors = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            if (requests.get(i) == null) {
+                errors.add("[" + i + "] item must not be null");
+                continue;
+            }
+            for (String error : violations(requests.get(i))) {
+                errors.add("[" + i + "] " + error);
+            }
+        }
+        if (!errors.isEmpty()) {
+            throw new ValidationException(errors);
+        }
 
-        @SuppressWarnings("unchecked")
-        Map<String, Object> preferences = (Map<String, Object>) metadata.get("preferences");
-        if (preferences == null) return false;
+        TravelPlan p = plans.findByIdForUpdate(planId)
+                .orElseThrow(() -> new NotFoundException("Travel plan not found"));
+        int firstOrder = appendOrder(planId, requests.size());
 
-        return budgetCategory.equals(preferences.get("budget_category"));
+        List<Location> created = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            Location l = newLocation(p, requests.get(i), firstOrder + i * VISIT_ORDER_GAP);
+            entityManager.persist(l);
+            created.add(l);
+        }
+        clusters.evict(created);
+        return created;
     }
 
-    private boolean matchesPublicFlag(TravelPlan plan, Boolean isPublic) {
-        if (isPublic == null) return true;
-        return plan.isPublic() == isPublic;
+    /**
+     * Move a location directly before or after another one of the same plan.
+     *
+     * visit_order values are spaced VISIT_ORDER_GAP apart, so the moved
+     * location takes the midpoint between its new neighbours and no other
+     * row is written. Only when two neighbours are adjacent numbers is the
+     * whole plan respaced first (see rebalance).
+     *
+     * @param planId Travel plan ID
+     * @param request Location to move, its anchor and optional version
+     * @return Moved location
+     */
+    @Transactional
+    public Location moveLocation(@ShardKey UUID planId, MoveLocationRequest request) {
+        List<String> errors = violations(request);
+        if (!errors.isEmpty()) {
+            throw new ValidationException(errors);
+        }
+
+        // Concurrent moves in one plan would compute the same free slot
+        plans.findByIdForUpdate(planId)
+                .orElseThrow(() -> new NotFoundException("Travel plan not found"));
+
+        UUID locationId = request.locationId();
+        Location l = managedLocation(planId, locationId);
+        if (request.version() != null && !l.getVersion().equals(request.version())) {
+            throw new VersionConflictException(l.getVersion());
+        }
+
+        boolean before = request.before() != null;
+        UUID anchorId = before ? request.before() : request.after();
+        if (anchorId.equals(locationId)) {
+            throw new ValidationException(List.of("a location cannot be moved relative to itself"));
+        }
+
+        Integer order = freeSlot(planId, locationId, anchorId, before);
+        if (order == null) {
+            rebalance(planId);
+            order = freeSlot(planId, locationId, anchorId, before);
+        }
+
+        l = managedLocation(planId, locationId);
+
+        l.setVisitOrder(order);
+        l.setVersion(l.getVersion() + 1);
+
+        cache.refreshLocation(l);
+        return l;
     }
 
     /**
-     * Find travel plans by specific travel style.
+     * Free visit_order right before / after the anchor (ignoring the moved
+     * location itself), or null when the neighbours leave no gap.
      */
-    @Transactional(readOnly = true)
-    public List<TravelPlan> findByTravelStyle(String travelStyle) {
-        return plans.findByTravelStyle(travelStyle);
+    private Integer freeSlot(UUID planId, UUID movingId, UUID anchorId, boolean before) {
+        int anchor = managedLocation(planId, anchorId).getVisitOrder();
+
+        long lower;
+        long upper;
+        if (before) {
+            lower = locations.findPrevVisitOrder(planId, anchor, movingId);
+            upper = anchor;
+        } else {
+            Integer next = locations.findNextVisitOrder(planId, anchor, movingId);
+            lower = anchor;
+            upper = next != null ? next : Math.min((long) anchor + 2L * VISIT_ORDER_GAP, Integer.MAX_VALUE + 1L);
+        }
+
+        if (upper - lower < 2) {
+            return null;
+        }
+        return (int) (lower + (upper - lower) / 2);
     }
 
     /**
-     * Find travel plans by budget category.
+     * First of count slots after the plan's last location, VISIT_ORDER_GAP
+     * apart. The plan is respaced first if the slots would overflow.
      */
-    @Transactional(readOnly = true)
-    public List<TravelPlan> findByBudgetCategory(String budgetCategory) {
-        return plans.findByBudgetCategory(budgetCategory);
+    private int appendOrder(UUID planId, int count) {
+        long last = locations.findMaxVisitOrder(planId);
+        if (last + (long) count * VISIT_ORDER_GAP > Integer.MAX_VALUE) {
+            rebalance(planId);
+            last = locations.findMaxVisitOrder(planId);
+        }
+        return (int) last + VISIT_ORDER_GAP;
     }
 
-    /* -------- Locations -------- */
+    /**
+     * Respace the plan's locations to VISIT_ORDER_GAP, 2 * VISIT_ORDER_GAP, ...
+     * keeping their order. Runs only when a gap is exhausted.
+     *
+     * Clears the persistence context: managed entities must be loaded again.
+     */
+    private void rebalance(UUID planId) {
+        List<UUID> ids = locations.findIdsByTravelPlanId(planId);
+        locations.negateVisitOrders(planId);
+        locations.respaceVisitOrders(planId, VISIT_ORDER_GAP);
+        ids.forEach(cache::evictLocation);
+    }
 
+    /**
+     * Shorter visit order for a plan's locations (see RouteOptimizer).
+     *
+     * The first location stays first: it is where the trip starts. Locations
+     * with an arrival or departure date are visited in date order (arrival
+     * first, departure when only that is set); the others go wherever the
+     * route is shortest. The current order is kept when it already respects
+     * the dates and is not longer.
+     *
+     * With apply the plan row is locked, as in moveLocation, and all its
+     * locations are renumbered VISIT_ORDER_GAP apart in the new order.
+     *
+     * @param planId Travel plan ID
+     * @param apply  write the new visit_order, or only propose it
+     * @return Locations in the new order and the route length before and after
+     */
     @Transactional
-    public Location addLocation(UUID planId, CreateLocationRequest r) {
-        TravelPlan p = getById(planId);
+    public OptimizedRoute optimizeRoute(@ShardKey UUID planId, boolean apply) {
+        if (apply) {
+            plans.findByIdForUpdate(planId)
+                    .orElseThrow(() -> new NotFoundException("Travel plan not found"));
+        } else {
+            getById(planId);
+        }
 
-        int nextOrder = locations.findByTravelPlan_IdOrderByVisitOrderAsc(planId)
-                .stream()
-                .map(Location::getVisitOrder)
-                .max(Comparator.naturalOrder())
-                .orElse(0) + 1;
+        List<Location> stops = locations.findByTravelPlan_IdOrderByVisitOrderAsc(planId);
+        if (stops.size() > MAX_ROUTE_STOPS) {
+            throw new ValidationException(List.of("a route can have at most " + MAX_ROUTE_STOPS + " locations"));
+        }
+        List<String> errors = stops.stream()
+                .filter(l -> l.getLatitude() == null || l.getLongitude() == null)
+                .map(l -> "location " + l.getId() + " has no latitude / longitude")
+                .toList();
+        if (!errors.isEmpty()) {
+            throw new ValidationException(errors);
+        }
 
-        OffsetDateTime arrival = r.arrivalDate();
-        OffsetDateTime departure = r.departureDate();
+        int n = stops.size();
+        double[] latitude = new double[n];
+        double[] longitude = new double[n];
+        long[] fixedAt = new long[n];
+        for (int i = 0; i < n; i++) {
+            Location l = stops.get(i);
+            latitude[i] = l.getLatitude().doubleValue();
+            longitude[i] = l.getLongitude().doubleValue();
+            OffsetDateTime at = l.getArrivalDate() != null ? l.getArrivalDate() : l.getDepartureDate();
+            fixedAt[i] = at != null ? at.toEpochSecond() : RouteOptimizer.FREE;
+        }
 
-        if (r.arrivalDate() != null && r.departureDate() != null &&
-                r.departureDate().isBefore(r.arrivalDate())) {
-            throw new ValidationException(
-                    List.of("departure_date must be after or equal to arrival_date")
-            );
+        RouteOptimizer optimizer = new RouteOptimizer(latitude, longitude, fixedAt);
+        int[] current = new int[n];
+        Arrays.setAll(current, i -> i);
+        int[] order = optimizer.solve();
+        if (optimizer.feasible(current) && optimizer.length(current) <= optimizer.length(order)) {
+            order = current;
         }
 
-        Location l = Location.builder()
+        List<UUID> ids = Arrays.stream(order).mapToObj(i -> stops.get(i).getId()).toList();
+        if (apply && !Arrays.equals(order, current)) {
+            locations.negateVisitOrders(planId);
+            locationWrites.reorder(planId, ids, VISIT_ORDER_GAP);
+            ids.forEach(cache::evictLocation);
+        }
+        return new OptimizedRoute(ids, optimizer.length(order), optimizer.length(current), apply);
+    }
+
+    private Location newLocation(TravelPlan p, CreateLocationRequest r, int visitOrder) {
+        return Location.builder()
                 .travelPlan(p)
                 .name(r.name())
                 .address(r.address())
                 .latitude(r.latitude())
                 .longitude(r.longitude())
-                .arrivalDate(arrival)
-                .departureDate(departure)
+                .arrivalDate(r.arrivalDate())
+                .departureDate(r.departureDate())
                 .budget(r.budget() != null ? r.budget() : BigDecimal.ZERO)
                 .notes(r.notes())
-                .visitOrder(nextOrder)
+                .visitOrder(visitOrder)
                 .version(1)
                 .attributes(new HashMap<>()) // Initialize empty attributes
                 .build();
-
-        return locations.save(l);
     }
 
+    /**
+     * One conditional UPDATE ... RETURNING of the location row only;
+     * see LocationWriteRepository.
+     */
     @Transactional
-    public Location updateLocation(UUID planId,
+    public Location updateLocation(@ShardKey UUID planId,
                                    UUID locationId,
                                    UpdateLocationRequest r) {
 
-        TravelPlan p = getById(planId);
-
-        Location l = locations.findById(locationId)
-                .orElseThrow(() -> new NotFoundException("Location not found"));
-
-        if (!l.getTravelPlan().getId().equals(p.getId())) {
-            throw new NotFoundException("Location not found in travel plan");
+        if (r.name() != null && r.name().isBlank()) {
+            throw new ValidationException(List.of("name must not be blank"));
         }
-
-        if (r.version() != null && !l.getVersion().equals(r.version())) {
-            throw new VersionConflictException(l.getVersion());
+        if (r.arrivalDate() != null && r.departureDate() != null &&
+                r.departureDate().isBefore(r.arrivalDate())) {
+            throw new ValidationException(List.of(DEPARTURE_BEFORE_ARRIVAL));
         }
 
-        OffsetDateTime newArrival =
-                r.arrivalDate() != null ? r.arrivalDate() : l.getArrivalDate();
-        OffsetDateTime newDeparture =
-                r.departureDate() != null ? r.departureDate() : l.getDepartureDate();
-
-        if (newArrival != null && newDeparture != null &&
-                newDeparture.isBefore(newArrival)) {
-            throw new ValidationException(
-                    List.of("departure_date must be after or equal to arrival_date")
-            );
+        // The old point's tiles go stale too when the location moves on the map
+        if (r.latitude() != null || r.longitude() != null) {
+            locationViews.findById(planId, locationId)
+                    .ifPresent(old -> clusters.evict(old.latitude(), old.longitude()));
         }
 
-        if (r.name() != null)      l.setName(r.name());
-        if (r.address() != null)   l.setAddress(r.address());
-        if (r.latitude() != null)  l.setLatitude(r.latitude());
-        if (r.longitude() != null) l.setLongitude(r.longitude());
-        if (r.budget() != null)    l.setBudget(r.budget());
-        if (r.notes() != null)     l.setNotes(r.notes());
-
-        l.setArrivalDate(newArrival);
-        l.setDepartureDate(newDeparture);
-
-        // optimistic locking: child + parent
-        l.setVersion(l.getVersion() + 1);
-        p.setVersion(p.getVersion() + 1);
+        Location saved;
+        try {
+            saved = locationWrites.update(planId, locationId, r)
+                    .orElseThrow(() -> locationWriteMissed(planId, locationId));
+        } catch (DataIntegrityViolationException e) {
+            if (violates(e, "check_location_dates")) {
+                throw new ValidationException(List.of(DEPARTURE_BEFORE_ARRIVAL));
+            }
+            throw e;
+        }
 
-        return l;
+        cache.refreshLocation(saved);
+        clusters.evict(saved.getLatitude(), saved.getLongitude());
+        return saved;
     }
 
     @Transactional
-    public void deleteLocation(UUID planId,
+    public void deleteLocation(@ShardKey UUID planId,
                                UUID locationId) {
 
-        TravelPlan p = getById(planId);
-
-        Location l = locations.findById(locationId)
-                .orElseThrow(() -> new NotFoundException("Location not found"));
-
-        if (!l.getTravelPlan().getId().equals(p.getId())) {
-            throw new NotFoundException("Location not found in travel plan");
-        }
+        managedPlan(planId);
+        Location l = managedLocation(planId, locationId);
 
         locations.delete(l);
+        planWrites.recordLocationDeleted(planId, l.getVersion());
 
-        p.setVersion(p.getVersion() + 1);
+        cache.evictLocation(locationId);
+        clusters.evict(l.getLatitude(), l.getLongitude());
     }
 
-    public List<Location> listLocations(UUID planId) {
+    public List<Location> listLocations(@ShardKey UUID planId) {
         getById(planId);
         return locations.findByTravelPlan_IdOrderByVisitOrderAsc(planId);
     }
@@ -361,43 +933,48 @@ public class TravelPlanService {
      * 1. MERGE (default): Shallow merge at root level, preserves other keys
      * 2. REPLACE: Complete replacement of attributes object
      *
+     * Stale merges are rebased as in updateMetadata.
+     *
      * @param planId Travel plan ID
      * @param locationId Location ID
      * @param request Attributes update request with merge flag
      * @return Updated location
      */
     @Transactional
-    public Location updateLocationAttributes(UUID planId, UUID locationId, AttributesUpdateRequest request) {
-        TravelPlan p = getById(planId);
-
-        Location l = locations.findById(locationId)
-                .orElseThrow(() -> new NotFoundException("Location not found"));
-
-        if (!l.getTravelPlan().getId().equals(p.getId())) {
-            throw new NotFoundException("Location not found in travel plan");
-        }
-
-        // Optimistic locking check
-        if (!l.getVersion().equals(request.version())) {
-            throw new VersionConflictException(l.getVersion());
-        }
-
-        Map<String, Object> newAttributes;
-
-        if (Boolean.TRUE.equals(request.merge())) {
-            // MERGE mode: preserve existing keys, update only provided keys
-            newAttributes = new HashMap<>(l.getAttributes());
-            newAttributes.putAll(request.attributes());
-        } else {
-            // REPLACE mode: complete replacement
-            newAttributes = new HashMap<>(request.attributes());
-        }
+    public Location updateLocationAttributes(@ShardKey UUID planId, UUID locationId, AttributesUpdateRequest request) {
+        Location saved = Boolean.TRUE.equals(request.merge())
+                ? attributesWrite(planId, locationId, request.version(), request.attributes().keySet(),
+                        v -> locationWrites.mergeAttributes(planId, locationId, v, request.attributes()))
+                : attributesWrite(planId, locationId, request.version(), null,
+                        v -> locationWrites.replaceAttributes(planId, locationId, v, request.attributes()));
+        cache.refreshLocation(saved);
+        return saved;
+    }
 
-        l.setAttributes(newAttributes);
-        l.setVersion(l.getVersion() + 1);
-        p.setVersion(p.getVersion() + 1);
+    /**
+     * Deep merge of location attributes (JSON Merge Patch, RFC 7396).
+     * See mergePatchMetadata.
+     */
+    @Transactional
+    public Location mergePatchLocationAttributes(@ShardKey UUID planId, UUID locationId,
+                                                 Map<String, Object> patch, Integer version) {
+        Location saved = attributesWrite(planId, locationId, version, patch.keySet(),
+                v -> locationWrites.mergePatchAttributes(planId, locationId, v, patch));
+        cache.refreshLocation(saved);
+        return saved;
+    }
 
-        return locations.save(l);
+    /**
+     * Apply set / remove / append operations at nested attribute paths, in order.
+     */
+    @Transactional
+    public Location patchLocationAttributes(@ShardKey UUID planId, UUID locationId,
+                                            List<JsonPathOperation> operations, Integer version) {
+        checkOperations(operations);
+        Location saved = attributesWrite(planId, locationId, version, JsonbEditVersions.topLevelKeys(operations),
+                v -> locationWrites.patchAttributes(planId, locationId, v, operations));
+        cache.refreshLocation(saved);
+        return saved;
     }
 
     /**
@@ -408,10 +985,10 @@ public class TravelPlanService {
      * @return Attributes map
      */
     @Transactional(readOnly = true)
-    public Map<String, Object> getLocationAttributes(UUID planId, UUID locationId) {
+    public Map<String, Object> getLocationAttributes(@ShardKey UUID planId, UUID locationId) {
         TravelPlan p = getById(planId);
 
-        Location l = locations.findById(locationId)
+        Location l = cache.location(locationId, locations::findById)
                 .orElseThrow(() -> new NotFoundException("Location not found"));
 
         if (!l.getTravelPlan().getId().equals(p.getId())) {
@@ -431,119 +1008,282 @@ public class TravelPlanService {
      * @return Updated location
      */
     @Transactional
-    public Location deleteLocationAttributeKey(UUID planId, UUID locationId, String key, Integer version) {
-        TravelPlan p = getById(planId);
-
-        Location l = locations.findById(locationId)
-                .orElseThrow(() -> new NotFoundException("Location not found"));
-
-        if (!l.getTravelPlan().getId().equals(p.getId())) {
-            throw new NotFoundException("Location not found in travel plan");
-        }
-
-        if (!l.getVersion().equals(version)) {
-            throw new VersionConflictException(l.getVersion());
-        }
-
-        Map<String, Object> attributes = new HashMap<>(l.getAttributes());
-        attributes.remove(key);
-
-        l.setAttributes(attributes);
-        l.setVersion(l.getVersion() + 1);
-        p.setVersion(p.getVersion() + 1);
+    public Location deleteLocationAttributeKey(@ShardKey UUID planId, UUID locationId, String key, Integer version) {
+        Location saved = attributesWrite(planId, locationId, version, Set.of(key),
+                v -> locationWrites.deleteAttributeKey(planId, locationId, v, key));
+        cache.refreshLocation(saved);
+        return saved;
+    }
 
-        return locations.save(l);
+    /**
+     * Conditional attributes write, rebased when stale (see JsonbRebase).
+     * The location's map tiles are evicted, as its category may change.
+     */
+    private Location attributesWrite(UUID planId, UUID locationId, Integer version, Collection<String> keys,
+                                     Function<Integer, Optional<Location>> write) {
+        Location saved = rebase.write(version, keys, write,
+                () -> locationWrites.findAttributeVersions(planId, locationId),
+                () -> locationWriteMissed(planId, locationId));
+        clusters.evict(saved.getLatitude(), saved.getLongitude());
+        return saved;
     }
 
     /* -------- JSONB Location Search Operations -------- */
 
     /**
-     * Search locations with JSONB attributes filters.
+     * Search locations by all criteria at once, a page at a time.
      *
-     * Note: Full searchWithFilters was removed due to PostgreSQL ?/?| operator
-     * conflicts with JDBC. Uses findByCategory + findByMinRating with Java filtering.
+     * Every filter of the request (plan, category, min_rating, accessibility,
+     * tags) goes into one SQL statement (LocationReadRepository.search), so
+     * only matching rows leave the database. With min_rating the pages run
+     * best-rated first and the first one is the top-K; otherwise they run in
+     * id order. With sharding, each shard returns its first limit + 1 rows
+     * after the cursor and the parts are merged (see ScatterGather).
      *
-     * @param searchRequest Search criteria
-     * @return List of matching locations
+     * @param searchRequest Search criteria; absent ones match everything
+     * @param cursor next_cursor of the previous page, or null
+     * @param limit Page size, capped at MAX_PAGE_SIZE
+     * @return One page of matching locations
      */
     @Transactional(readOnly = true)
-    public List<Location> searchLocations(LocationSearchRequest searchRequest) {
-        // Start with category filter if provided
-        if (searchRequest.category() != null) {
-            List<Location> results = locations.findByCategory(searchRequest.category());
-
-            // Apply additional filters in Java
-            return results.stream()
-                    .filter(loc -> matchesMinRating(loc, searchRequest.minRating()))
-                    .filter(loc -> matchesAccessibility(loc, searchRequest.accessibility()))
-                    .toList();
+    public CursorPage<LocationView> searchLocations(LocationSearchRequest searchRequest, String cursor, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be >= 1");
         }
+        int pageSize = Math.min(limit, MAX_PAGE_SIZE);
+
+        List<String> tags = searchRequest.tags() == null ? null : searchRequest.tags().stream()
+                .filter(tag -> tag != null && !tag.isBlank())
+                .distinct()
+                .toList();
+        if (tags != null && tags.size() > MAX_SEARCH_TAGS) {
+            throw new ValidationException(List.of("at most " + MAX_SEARCH_TAGS + " tags per search"));
+        }
+        LocationSearchRequest filter = new LocationSearchRequest(searchRequest.category(),
+                searchRequest.minRating(), tags, searchRequest.accessibility(), searchRequest.planId());
+        boolean byRating = filter.minRating() != null;
 
-        // Fall back to minRating if no category
-        if (searchRequest.minRating() != null) {
-            List<Location> results = locations.findByMinRating(searchRequest.minRating());
+        PageCursor after = cursor == null || cursor.isBlank() ? null : PageCursor.decode(cursor);
+        BigDecimal afterRating = after != null && byRating ? parseRating(after.sortKey()) : null;
+        UUID afterId = after != null ? after.id() : null;
 
-            return results.stream()
-                    .filter(loc -> matchesAccessibility(loc, searchRequest.accessibility()))
-                    .toList();
-        }
+        // One extra row tells whether another page exists
+        List<LocationView> rows = shards.merged(
+                () -> locationViews.search(filter, afterRating, afterId, pageSize + 1),
+                byRating ? BY_RATING_DESC : BY_ID, pageSize + 1);
 
-        // If only accessibility filter, get all and filter
-        if (searchRequest.accessibility() != null) {
-            return locations.findByAccessibilityFeature(searchRequest.accessibility());
+        if (rows.size() <= pageSize) {
+            return new CursorPage<>(rows, null);
         }
-
-        // No filters - return empty (or could return all)
-        return List.of();
+        List<LocationView> page = rows.subList(0, pageSize);
+        LocationView last = page.get(pageSize - 1);
+        String sortKey = byRating ? rating(last).toPlainString() : last.id().toString();
+        return new CursorPage<>(page, new PageCursor(sortKey, last.id()).encode());
     }
 
-    private boolean matchesMinRating(Location location, BigDecimal minRating) {
-        if (minRating == null) return true;
+    private BigDecimal parseRating(String value) {
+        try {
+            return new BigDecimal(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
 
-        Map<String, Object> attributes = location.getAttributes();
-        if (attributes == null) return false;
+    private static BigDecimal rating(LocationView location) {
+        Object rating = location.attributes() != null ? location.attributes().get("rating") : null;
+        return rating instanceof Number ? new BigDecimal(rating.toString()) : null;
+    }
 
-        Object ratingObj = attributes.get("rating");
-        if (ratingObj == null) return false;
+    /**
+     * Find locations by category.
+     */
+    @Transactional(readOnly = true)
+    public List<LocationView> findLocationsByCategory(String category) {
+        return shards.merged(() -> locationViews.findByCategory(category), BY_VISIT_ORDER, null);
+    }
 
-        BigDecimal rating;
-        if (ratingObj instanceof Number) {
-            rating = new BigDecimal(ratingObj.toString());
-        } else {
-            return false;
+    /**
+     * Locations within radiusKm of (lat, lon), nearest first.
+     *
+     * The database narrows the search to the bounding box of the circle and
+     * returns the candidates nearest in planar degrees (idx_locations_geo),
+     * limit * NEARBY_OVERFETCH of them per shard. Their great-circle
+     * distances are then computed here, those outside the circle dropped
+     * and the rest sorted.
+     *
+     * The result is exact: a location within the great-circle distance of
+     * the last result lies within planarDegrees of it, so when every shard
+     * either ran out of rows or returned its last candidate beyond that
+     * planar distance, nothing nearer was left out. Otherwise the search is
+     * repeated with NEARBY_OVERFETCH times as many candidates.
+     */
+    @Transactional(readOnly = true)
+    public List<NearbyLocation> findNearbyLocations(double lat, double lon, double radiusKm, int limit) {
+        List<String> errors = new ArrayList<>();
+        if (!(lat >= -90 && lat <= 90)) {
+            errors.add("lat must be between -90 and 90");
         }
+        if (!(lon >= -180 && lon <= 180)) {
+            errors.add("lon must be between -180 and 180");
+        }
+        if (!(radiusKm > 0 && radiusKm <= MAX_NEARBY_RADIUS_KM)) {
+            errors.add("radius_km must be greater than 0 and at most " + MAX_NEARBY_RADIUS_KM);
+        }
+        if (limit < 1) {
+            errors.add("limit must be >= 1");
+        }
+        if (!errors.isEmpty()) {
+            throw new ValidationException(errors);
+        }
+        int size = Math.min(limit, MAX_PAGE_SIZE);
+
+        double dLat = radiusKm / KM_PER_DEGREE;
+        double minLat = Math.max(-90, lat - dLat);
+        double maxLat = Math.min(90, lat + dLat);
+        // Longitude degrees shrink towards the poles; near a pole or across
+        // the antimeridian the box spans every longitude
+        double cos = Math.cos(Math.toRadians(Math.max(Math.abs(minLat), Math.abs(maxLat))));
+        double dLon = cos > 0 ? radiusKm / (KM_PER_DEGREE * cos) : 360;
+        boolean allLongitudes = lon - dLon < -180 || lon + dLon > 180;
+        double minLon = allLongitudes ? -180 : lon - dLon;
+        double maxLon = allLongitudes ? 180 : lon + dLon;
+
+        long candidates = (long) size * NEARBY_OVERFETCH;
+        while (true) {
+            int fetch = (int) Math.min(candidates, Integer.MAX_VALUE);
+            // One list per shard: each shard's planar cut-off is checked on its own
+            List<List<LocationView>> parts = shards.all(() ->
+                    List.of(locationViews.findNearest(lat, lon, minLat, maxLat, minLon, maxLon, fetch)));
+
+            List<NearbyLocation> nearest = parts.stream()
+                    .flatMap(List::stream)
+                    .map(location -> new NearbyLocation(location, distanceKm(lat, lon,
+                            location.latitude().doubleValue(), location.longitude().doubleValue())))
+                    .filter(nearby -> nearby.distanceKm() <= radiusKm)
+                    .sorted(Comparator.comparingDouble(NearbyLocation::distanceKm))
+                    .limit(size)
+                    .toList();
 
-        return rating.compareTo(minRating) >= 0;
+            // Unfetched rows of a full shard are at least its last row's planar distance away
+            double cutOff = Double.POSITIVE_INFINITY;
+            for (List<LocationView> part : parts) {
+                if (part.size() == fetch) {
+                    LocationView last = part.get(fetch - 1);
+                    cutOff = Math.min(cutOff, Math.hypot(last.latitude().doubleValue() - lat,
+                            last.longitude().doubleValue() - lon));
+                }
+            }
+            double kthKm = nearest.size() == size ? nearest.get(size - 1).distanceKm() : radiusKm;
+            if (cutOff == Double.POSITIVE_INFINITY || planarDegrees(lat, kthKm, allLongitudes) < cutOff) {
+                return nearest;
+            }
+            candidates *= NEARBY_OVERFETCH;
+        }
     }
 
-    private boolean matchesAccessibility(Location location, String accessibility) {
-        if (accessibility == null) return true;
-
-        Map<String, Object> attributes = location.getAttributes();
-        if (attributes == null) return false;
-
-        Object accessibilityObj = attributes.get("accessibility");
-        if (accessibilityObj instanceof List<?> list) {
-            return list.contains(accessibility);
+    /**
+     * Largest planar distance in degrees from (lat, any longitude) of a point
+     * within km great-circle distance of it, by the same bounds as the
+     * search box; infinite when the bound covers a pole. With allLongitudes
+     * the box wraps around, where planar distance says nothing, so the bound
+     * spans every longitude.
+     */
+    static double planarDegrees(double lat, double km, boolean allLongitudes) {
+        double dLat = km / KM_PER_DEGREE;
+        double cos = Math.cos(Math.toRadians(Math.min(90, Math.abs(lat) + dLat)));
+        if (cos <= 0) {
+            return Double.POSITIVE_INFINITY;
         }
+        double dLon = allLongitudes ? 360 : Math.min(360, km / (KM_PER_DEGREE * cos));
+        return Math.hypot(dLat, dLon);
+    }
 
-        return false;
+    /**
+     * Great-circle (haversine) distance in kilometres.
+     */
+    static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
     }
 
     /**
-     * Find locations by category.
+     * Map clusters of the locations inside a bounding box at a zoom level.
+     *
+     * The box is covered with MapTile tiles of that zoom; each tile is
+     * clustered on a 2^CLUSTER_BITS x 2^CLUSTER_BITS grid and answered from
+     * TileClusterCache when possible. Tiles that are not cached are counted
+     * with one GROUP BY over their combined box (idx_locations_geo); with
+     * sharding the cells of all shards are merged, centroids weighted by
+     * count. Clusters of tiles partly outside the box are returned whole.
+     *
+     * @param planId   only locations of this plan, or null for all
+     * @param category only locations of this category, or null for any
      */
     @Transactional(readOnly = true)
-    public List<Location> findLocationsByCategory(String category) {
-        return locations.findByCategory(category);
+    public List<MapCluster> findClusters(int zoom, double minLat, double minLon, double maxLat, double maxLon,
+                                         UUID planId, String category) {
+        List<String> errors = new ArrayList<>();
+        if (zoom < 0 || zoom > MapTile.MAX_ZOOM) {
+            errors.add("zoom must be between 0 and " + MapTile.MAX_ZOOM);
+        }
+        if (!(minLat >= -90 && maxLat <= 90 && minLat <= maxLat)) {
+            errors.add("min_lat and max_lat must be between -90 and 90, min_lat <= max_lat");
+        }
+        if (!(minLon >= -180 && maxLon <= 180 && minLon <= maxLon)) {
+            errors.add("min_lon and max_lon must be between -180 and 180, min_lon <= max_lon");
+        }
+        if (errors.isEmpty() && MapTile.count(zoom, minLat, minLon, maxLat, maxLon) > MAX_CLUSTER_TILES) {
+            errors.add("bounding box covers more than " + MAX_CLUSTER_TILES + " tiles at zoom " + zoom);
+        }
+        if (!errors.isEmpty()) {
+            throw new ValidationException(errors);
+        }
+        String filterCategory = category == null || category.isBlank() ? null : category;
+
+        return clusters.clusters(MapTile.covering(zoom, minLat, minLon, maxLat, maxLon), planId, filterCategory,
+                missing -> loadClusters(zoom, missing, planId, filterCategory));
+    }
+
+    private Map<MapTile, List<MapCluster>> loadClusters(int zoom, Collection<MapTile> tiles,
+                                                        UUID planId, String category) {
+        double minLat = tiles.stream().mapToDouble(MapTile::minLat).min().orElseThrow();
+        double minLon = tiles.stream().mapToDouble(MapTile::minLon).min().orElseThrow();
+        double maxLat = tiles.stream().mapToDouble(MapTile::maxLat).max().orElseThrow();
+        double maxLon = tiles.stream().mapToDouble(MapTile::maxLon).max().orElseThrow();
+
+        // Same cell on several shards: add counts, weight centroids by count
+        Map<List<Long>, ClusterCell> cells = new LinkedHashMap<>();
+        for (ClusterCell cell : shards.all(() -> locationViews.clusterCells(zoom + MapTile.CLUSTER_BITS,
+                minLat, minLon, maxLat, maxLon, planId, category))) {
+            cells.merge(List.of(cell.x(), cell.y()), cell, (a, b) -> {
+                long count = a.count() + b.count();
+                return new ClusterCell(a.x(), a.y(), count,
+                        (a.latitude() * a.count() + b.latitude() * b.count()) / count,
+                        (a.longitude() * a.count() + b.longitude() * b.count()) / count);
+            });
+        }
+
+        Map<MapTile, List<MapCluster>> result = new HashMap<>();
+        tiles.forEach(tile -> result.put(tile, new ArrayList<>()));
+        for (ClusterCell cell : cells.values()) {
+            List<MapCluster> tileClusters = result.get(MapTile.ofCell(zoom, cell.x(), cell.y()));
+            if (tileClusters != null) {
+                tileClusters.add(new MapCluster(cell.latitude(), cell.longitude(), cell.count()));
+            }
+        }
+        return result;
     }
 
     /**
      * Find top-rated locations within a travel plan.
      */
     @Transactional(readOnly = true)
-    public List<Location> findTopRatedLocations(UUID planId, BigDecimal minRating) {
+    public List<LocationView> findTopRatedLocations(@ShardKey UUID planId, BigDecimal minRating) {
         getById(planId); // Ensure plan exists
-        return locations.findTopRatedInPlan(planId, minRating);
+        return locationViews.findTopRatedInPlan(planId, minRating);
     }
 }
\ No newline at end of file
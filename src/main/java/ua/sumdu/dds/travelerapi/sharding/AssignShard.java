@@ -0,0 +1,17 @@
+package ua.sumdu.dds.travelerapi.sharding;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a service call that creates a new plan.
+ *
+ * A random shard is bound for the call, and ids generated inside it are
+ * made to route back to that shard.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface AssignShard {
+}
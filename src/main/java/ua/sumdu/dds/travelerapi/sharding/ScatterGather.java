@@ -0,0 +1,186 @@
+package ua.sumdu.dds.travelerapi.sharding;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Runs a query that is not keyed by a plan id on every shard at once.
+ *
+ * Each shard's part runs on its own virtual thread with that shard bound
+ * in ShardContext, so it takes a connection from the shard's pool. The
+ * number of queries in flight per shard is therefore capped by that
+ * pool, and the whole call takes about as long as the slowest shard.
+ *
+ * A failing or timed-out shard fails the whole call; the other parts
+ * are cancelled.
+ *
+ * Without sharding the query simply runs once on the calling thread.
+ */
+@Component
+public class ScatterGather {
+
+    private final boolean enabled;
+    private final Duration timeout;
+    private final ExecutorService executor;
+
+    public ScatterGather(@Value("${traveler.sharding.enabled:false}") boolean enabled,
+                         @Value("${traveler.sharding.scatter-timeout:10s}") Duration timeout) {
+        this.enabled = enabled;
+        this.timeout = timeout;
+        this.executor = enabled
+                ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("shard-scatter-", 0).factory())
+                : null;
+    }
+
+    /**
+     * Rows of every shard, in the order the shards answer.
+     */
+    public <T> List<T> all(Supplier<List<T>> query) {
+        if (!enabled) {
+            return query.get();
+        }
+        List<T> rows = new ArrayList<>();
+        scatter(query, rows::addAll);
+        return rows;
+    }
+
+    /**
+     * Rows of every shard merged into one ordered list, cut at limit.
+     *
+     * Each shard must return its rows already sorted by order (and may
+     * itself stop at limit); the parts are then k-way merged, so no more
+     * than limit rows are copied.
+     *
+     * @param limit maximum number of rows, or null for all of them
+     */
+    public <T> List<T> merged(Supplier<List<T>> query, Comparator<? super T> order, Integer limit) {
+        if (!enabled) {
+            List<T> rows = query.get();
+            return limit != null && rows.size() > limit ? rows.subList(0, limit) : rows;
+        }
+        List<List<T>> parts = new ArrayList<>();
+        scatter(query, parts::add);
+        return merge(parts, order, limit);
+    }
+
+    /**
+     * Run part once per shard, one shard after the other, on the calling
+     * thread with that shard bound in ShardContext. For work that writes
+     * into one stream and so cannot run concurrently (the NDJSON export).
+     * Shards are visited in key order; no timeout applies.
+     */
+    public void each(Runnable part) {
+        if (!enabled) {
+            part.run();
+            return;
+        }
+        for (String hexKey : shardKeys()) {
+            String previous = ShardContext.bind(hexKey);
+            try {
+                part.run();
+            } finally {
+                ShardContext.restore(previous);
+            }
+        }
+    }
+
+    /**
+     * k-way merge of sorted lists.
+     */
+    static <T> List<T> merge(List<List<T>> parts, Comparator<? super T> order, Integer limit) {
+        record Head<T>(T row, int part, int index) {}
+
+        PriorityQueue<Head<T>> heads = new PriorityQueue<>(
+                Math.max(1, parts.size()), (a, b) -> order.compare(a.row(), b.row()));
+        for (int i = 0; i < parts.size(); i++) {
+            if (!parts.get(i).isEmpty()) {
+                heads.add(new Head<>(parts.get(i).get(0), i, 0));
+            }
+        }
+
+        int max = limit != null ? limit : Integer.MAX_VALUE;
+        List<T> rows = new ArrayList<>();
+        while (!heads.isEmpty() && rows.size() < max) {
+            Head<T> head = heads.poll();
+            rows.add(head.row());
+
+            List<T> part = parts.get(head.part());
+            int next = head.index() + 1;
+            if (next < part.size()) {
+                heads.add(new Head<>(part.get(next), head.part(), next));
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Run the query on every shard and hand each part to the sink as soon
+     * as it arrives, on the calling thread.
+     */
+    private <T> void scatter(Supplier<List<T>> query, Consumer<List<T>> sink) {
+        List<String> shards = shardKeys();
+
+        CompletionService<List<T>> completion = new ExecutorCompletionService<>(executor);
+        List<Future<List<T>>> futures = new ArrayList<>(shards.size());
+        for (String hexKey : shards) {
+            futures.add(completion.submit(() -> {
+                String previous = ShardContext.bind(hexKey);
+                try {
+                    return query.get();
+                } finally {
+                    ShardContext.restore(previous);
+                }
+            }));
+        }
+
+        long deadline = System.nanoTime() + timeout.toNanos();
+        try {
+            for (int i = 0; i < shards.size(); i++) {
+                Future<List<T>> done = completion.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (done == null) {
+                    throw new QueryTimeoutException("Shard query timed out after " + timeout.toMillis() + " ms");
+                }
+                sink.accept(done.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for shards", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IllegalStateException("Shard query failed", e.getCause());
+        } finally {
+            futures.forEach(f -> f.cancel(true));
+        }
+    }
+
+    private static List<String> shardKeys() {
+        return ShardConfigLoader.getFullConfig().shards().keySet()
+                .stream().sorted().toList();
+    }
+
+    @PreDestroy
+    public void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
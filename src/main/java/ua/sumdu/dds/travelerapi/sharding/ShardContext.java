@@ -0,0 +1,54 @@
+package ua.sumdu.dds.travelerapi.sharding;
+
+import java.util.UUID;
+
+/**
+ * Shard bound to the current thread.
+ *
+ * Set by ShardingAspect around service calls that carry a @ShardKey or
+ * are marked @AssignShard; read by ShardRoutingDataSource when a
+ * connection is opened and by ShardedUuidGenerator when an id is assigned.
+ */
+public final class ShardContext {
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {}
+
+    /**
+     * Hex key (0-f) of the bound shard, or null outside any keyed call.
+     */
+    public static String current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Bind a shard and return the previous binding, to be passed to restore().
+     */
+    public static String bind(String hexKey) {
+        String previous = CURRENT.get();
+        CURRENT.set(hexKey);
+        return previous;
+    }
+
+    public static void restore(String previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * Rewrite the last hex digit of the id so that ShardRouter maps it to
+     * the bound shard. Ids are returned unchanged when nothing is bound.
+     */
+    public static UUID assignTo(UUID id) {
+        String hexKey = CURRENT.get();
+        if (hexKey == null) {
+            return id;
+        }
+        long lsb = (id.getLeastSignificantBits() & ~0xFL) | Character.digit(hexKey.charAt(0), 16);
+        return new UUID(id.getMostSignificantBits(), lsb);
+    }
+}
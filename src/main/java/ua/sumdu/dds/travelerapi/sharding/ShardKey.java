@@ -0,0 +1,17 @@
+package ua.sumdu.dds.travelerapi.sharding;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks the UUID parameter that decides which shard a service call runs on.
+ *
+ * For location operations this is the parent plan id, so a plan and its
+ * locations always share a shard.
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ShardKey {
+}
@@ -12,6 +12,13 @@ public final class ShardRouter {
      * Uses last hex character of UUID.
      */
     public static String route(UUID id) {
+        return "db_" + shardKey(id);
+    }
+
+    /**
+     * Registry key (0-f) of the shard owning the UUID.
+     */
+    public static String shardKey(UUID id) {
         if (id == null) {
             throw new IllegalArgumentException("id must not be null");
         }
@@ -24,6 +31,6 @@ public final class ShardRouter {
             throw new IllegalStateException("Invalid hex char in UUID: " + lastChar);
         }
 
-        return "db_" + Integer.toHexString(shardIndex);
+        return Integer.toHexString(shardIndex);
     }
 }
@@ -0,0 +1,98 @@
+package ua.sumdu.dds.travelerapi.sharding;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Hands out connections from the pool of the shard bound in ShardContext.
+ *
+ * One Hikari pool per shard, created on first use from the registry entry
+ * (ShardConfigLoader). When a shard moves, the registry entry changes and
+ * the old pool is replaced. A connection refused with a REVOKE-style
+ * access error reloads the registry and is retried once.
+ *
+ * Calls with no bound shard (listings and searches that span all plans)
+ * use the fallback DataSource.
+ */
+public class ShardRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardRoutingDataSource.class);
+
+    private record ShardPool(ShardInfo info, HikariDataSource pool) {}
+
+    private final DataSource fallback;
+    private final Function<ShardInfo, HikariDataSource> poolFactory;
+    private final Map<String, ShardPool> pools = new ConcurrentHashMap<>();
+
+    public ShardRoutingDataSource(DataSource fallback, Function<ShardInfo, HikariDataSource> poolFactory) {
+        this.fallback = fallback;
+        this.poolFactory = poolFactory;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return route(DataSource::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return route(ds -> ds.getConnection(username, password));
+    }
+
+    private Connection route(Connect connect) throws SQLException {
+        String hexKey = ShardContext.current();
+        if (hexKey == null) {
+            return connect.to(fallback);
+        }
+        try {
+            return connect.to(pool(hexKey));
+        } catch (SQLException e) {
+            if (!ShardConfigLoader.handleAccessError(e)) {
+                throw e;
+            }
+            return connect.to(pool(hexKey));
+        }
+    }
+
+    @FunctionalInterface
+    private interface Connect {
+        Connection to(DataSource dataSource) throws SQLException;
+    }
+
+    /**
+     * Pool for the shard's current registry entry.
+     */
+    DataSource pool(String hexKey) {
+        ShardInfo info = ShardConfigLoader.getShard(hexKey);
+        ShardPool current = pools.get(hexKey);
+        if (current != null && current.info().equals(info)) {
+            return current.pool();
+        }
+        ShardPool updated = pools.compute(hexKey, (key, existing) -> {
+            if (existing != null && existing.info().equals(info)) {
+                return existing;
+            }
+            if (existing != null) {
+                log.info("Shard {} moved to {}, replacing its pool", key, info.jdbcUrl());
+                existing.pool().close();
+            }
+            return new ShardPool(info, poolFactory.apply(info));
+        });
+        return updated.pool();
+    }
+
+    @Override
+    public void close() {
+        pools.values().forEach(p -> p.pool().close());
+        pools.clear();
+    }
+}
@@ -0,0 +1,30 @@
+package ua.sumdu.dds.travelerapi.sharding;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.EventTypeSets;
+
+import java.util.EnumSet;
+import java.util.UUID;
+
+/**
+ * Generates random (v4) UUIDs, adjusted to the shard bound in ShardContext.
+ *
+ * Only the lowest four random bits are rewritten, so version and variant
+ * bits are untouched. Without sharding nothing is bound and the id is a
+ * plain random UUID.
+ */
+public class ShardedUuidGenerator implements BeforeExecutionGenerator {
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object owner,
+                           Object currentValue, EventType eventType) {
+        return ShardContext.assignTo(UUID.randomUUID());
+    }
+
+    @Override
+    public EnumSet<EventType> getEventTypes() {
+        return EventTypeSets.INSERT_ONLY;
+    }
+}
@@ -0,0 +1,59 @@
+package ua.sumdu.dds.travelerapi.sharding;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+
+import java.lang.annotation.Annotation;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Binds the shard of a service call before its transaction starts.
+ *
+ * Runs with the highest precedence, i.e. outside @Transactional, so the
+ * connection the transaction opens is already routed to the right shard.
+ */
+@Aspect
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ShardingAspect {
+
+    private static final int SHARD_COUNT = 16;
+
+    @Around("execution(* *(.., @ua.sumdu.dds.travelerapi.sharding.ShardKey (*), ..))")
+    public Object keyed(ProceedingJoinPoint call) throws Throwable {
+        return proceedOn(ShardRouter.shardKey(shardKey(call)), call);
+    }
+
+    @Around("@annotation(ua.sumdu.dds.travelerapi.sharding.AssignShard)")
+    public Object assign(ProceedingJoinPoint call) throws Throwable {
+        String hexKey = Integer.toHexString(ThreadLocalRandom.current().nextInt(SHARD_COUNT));
+        return proceedOn(hexKey, call);
+    }
+
+    private static Object proceedOn(String hexKey, ProceedingJoinPoint call) throws Throwable {
+        String previous = ShardContext.bind(hexKey);
+        try {
+            return call.proceed();
+        } finally {
+            ShardContext.restore(previous);
+        }
+    }
+
+    private static UUID shardKey(ProceedingJoinPoint call) {
+        Annotation[][] annotations = ((MethodSignature) call.getSignature())
+                .getMethod().getParameterAnnotations();
+        Object[] args = call.getArgs();
+        for (int i = 0; i < annotations.length; i++) {
+            for (Annotation a : annotations[i]) {
+                if (a instanceof ShardKey) {
+                    return (UUID) args[i];
+                }
+            }
+        }
+        throw new IllegalStateException("No @ShardKey parameter on " + call.getSignature());
+    }
+}
@@ -0,0 +1,72 @@
+package ua.sumdu.dds.travelerapi.sharding;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Routes plan and location persistence to the shard owning the plan id.
+ *
+ * Active only when traveler.sharding.enabled=true. Shard locations come
+ * from the registry (SHARD_REGISTRY_JDBC, see ShardConfigLoader); each
+ * shard gets its own Hikari pool with the spring.datasource.hikari.*
+ * settings and traveler.sharding.pool-size connections.
+ *
+ * spring.datasource.* stays the fallback for calls without a shard key.
+ */
+@Configuration
+@ConditionalOnProperty(name = "traveler.sharding.enabled", havingValue = "true")
+public class ShardingConfig {
+
+    @Bean
+    public ShardingAspect shardingAspect() {
+        return new ShardingAspect();
+    }
+
+    @Bean(destroyMethod = "close")
+    public HikariDataSource fallbackDataSource(DataSourceProperties properties, Environment env) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        Binder.get(env).bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+        pool.setPoolName("traveler-fallback");
+        return pool;
+    }
+
+    @Bean(destroyMethod = "close")
+    public ShardRoutingDataSource shardRoutingDataSource(
+            HikariDataSource fallbackDataSource,
+            DataSourceProperties properties,
+            Environment env,
+            @Value("${traveler.sharding.pool-size:4}") int poolSize) {
+
+        return new ShardRoutingDataSource(fallbackDataSource, info -> {
+            HikariDataSource pool = properties.initializeDataSourceBuilder()
+                    .type(HikariDataSource.class)
+                    .url(info.jdbcUrl())
+                    .username(info.user())
+                    .password(info.password())
+                    .build();
+            Binder.get(env).bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+            pool.setPoolName("traveler-shard-" + info.database());
+            pool.setMaximumPoolSize(poolSize);
+            return pool;
+        });
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardRoutingDataSource shardRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(shardRoutingDataSource);
+    }
+}
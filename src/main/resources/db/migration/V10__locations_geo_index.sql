@@ -0,0 +1,15 @@
+-- =========================
+-- Nearby-locations search
+-- =========================
+
+-- GiST over the built-in point type (no PostGIS / cube / earthdistance):
+-- answers bounding-box filters (point <@ box) and k-nearest-neighbour
+-- ordering (point <-> point) straight from the index. Coordinates are
+-- plain degrees (x = longitude, y = latitude); the exact great-circle
+-- distance is computed by the application on the candidates.
+-- Supports: WHERE latitude IS NOT NULL AND longitude IS NOT NULL
+--             AND point(CAST(longitude AS float8), CAST(latitude AS float8)) <@ box(...)
+--           ORDER BY point(CAST(longitude AS float8), CAST(latitude AS float8)) <-> point(:lon, :lat)
+CREATE INDEX IF NOT EXISTS idx_locations_geo
+    ON locations USING GIST (point(CAST(longitude AS float8), CAST(latitude AS float8)))
+    WHERE latitude IS NOT NULL AND longitude IS NOT NULL;
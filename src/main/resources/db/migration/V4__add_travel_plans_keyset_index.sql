@@ -0,0 +1,7 @@
+-- =========================
+-- Keyset pagination for GET /api/travel-plans
+-- =========================
+
+-- Supports: WHERE (created_at, id) > (:created_at, :id) ORDER BY created_at, id LIMIT :n
+CREATE INDEX IF NOT EXISTS idx_travel_plans_created_at_id
+    ON travel_plans (created_at, id);
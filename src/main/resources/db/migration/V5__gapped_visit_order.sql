@@ -0,0 +1,18 @@
+-- =========================
+-- Gapped visit_order
+-- =========================
+
+-- Locations are spaced VISIT_ORDER_GAP (1000) apart, so a location can be
+-- moved between two neighbours by rewriting only its own row.
+-- Two steps because unique_plan_order is checked row by row: negating first
+-- keeps the renumbered values clear of the old ones.
+UPDATE locations SET visit_order = -visit_order WHERE visit_order IS NOT NULL;
+
+UPDATE locations l
+SET visit_order = r.rn * 1000
+FROM (
+    SELECT id, row_number() OVER (PARTITION BY travel_plan_id ORDER BY visit_order DESC NULLS LAST) AS rn
+    FROM locations
+    WHERE visit_order IS NOT NULL
+) r
+WHERE l.id = r.id;
@@ -0,0 +1,19 @@
+-- =========================
+-- Per-key change versions of metadata / attributes
+-- =========================
+
+-- *_key_versions maps each top-level key to the row version that last
+-- changed it, *_reset_version is the version of the last full replace.
+-- A merge sent against an older version can then be applied on top of the
+-- current one when none of its keys changed in between.
+ALTER TABLE travel_plans
+    ADD COLUMN metadata_key_versions JSONB DEFAULT '{}'::jsonb NOT NULL,
+    ADD COLUMN metadata_reset_version INTEGER DEFAULT 0 NOT NULL;
+
+ALTER TABLE locations
+    ADD COLUMN attribute_key_versions JSONB DEFAULT '{}'::jsonb NOT NULL,
+    ADD COLUMN attributes_reset_version INTEGER DEFAULT 0 NOT NULL;
+
+-- Earlier changes were not tracked: treat them as a replace at the current version
+UPDATE travel_plans SET metadata_reset_version = version;
+UPDATE locations SET attributes_reset_version = version;
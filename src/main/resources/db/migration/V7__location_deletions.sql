@@ -0,0 +1,15 @@
+-- =========================
+-- Location changes no longer write the plan row
+-- =========================
+
+-- Location edits only bump the location's own version. Deleting a location
+-- adds the deleted row's version + 1 to the plan's row here, so the combined
+-- version (plan version + version here + sum of location versions) still
+-- grows on every change of the plan or any of its locations. One row per
+-- plan, upserted: the table does not grow with the number of deletes.
+-- The upsert only takes the FOR KEY SHARE lock that any child insert
+-- (e.g. a new location) takes on travel_plans.
+CREATE TABLE location_deletions (
+    travel_plan_id UUID PRIMARY KEY REFERENCES travel_plans (id) ON DELETE CASCADE,
+    version        INTEGER NOT NULL
+);
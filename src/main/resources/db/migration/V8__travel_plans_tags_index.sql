@@ -0,0 +1,10 @@
+-- =========================
+-- Tag search on travel_plans.metadata->'tags'
+-- =========================
+
+-- jsonb_path_ops indexes only the hashed paths to each value, so it is a
+-- fraction of the size of idx_travel_plans_metadata_gin and answers @> alone.
+-- Supports: WHERE metadata->'tags' @> '["europe"]'               (any-of: one per tag, ORed)
+--           WHERE metadata->'tags' @> '["europe", "summer"]'     (all-of)
+CREATE INDEX IF NOT EXISTS idx_travel_plans_metadata_tags
+    ON travel_plans USING GIN ((metadata->'tags') jsonb_path_ops);
@@ -0,0 +1,17 @@
+-- =========================
+-- Expression indexes matching the JSONB preference queries
+-- =========================
+
+-- V3 indexed metadata->>'travel_style', but travel_style lives under
+-- preferences and every query filters on metadata->'preferences'->>'travel_style',
+-- so the index was never used. An expression index only serves a predicate
+-- written with the very same expression.
+DROP INDEX IF EXISTS idx_travel_plans_metadata_travel_style;
+
+-- Supports: WHERE metadata->'preferences'->>'travel_style' = 'adventure'
+CREATE INDEX IF NOT EXISTS idx_travel_plans_preferences_travel_style
+    ON travel_plans ((metadata->'preferences'->>'travel_style'));
+
+-- Supports: WHERE metadata->'preferences'->>'budget_category' = 'moderate'
+CREATE INDEX IF NOT EXISTS idx_travel_plans_preferences_budget_category
+    ON travel_plans ((metadata->'preferences'->>'budget_category'));
@@ -0,0 +1,67 @@
+package ua.sumdu.dds.travelerapi.concurrency;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ConnectionGuardTest {
+
+    @Mock
+    private DataSource target;
+
+    @Mock
+    private Connection connection;
+
+    private ConnectionGuard guard;
+
+    @BeforeEach
+    void setUp() {
+        guard = new ConnectionGuard(target, 1, Duration.ofMillis(50));
+    }
+
+    @Test
+    void shouldTimeOutWhilePermitIsHeld() throws SQLException {
+        when(target.getConnection()).thenReturn(connection);
+
+        guard.getConnection();
+
+        assertThrows(SQLTransientConnectionException.class, guard::getConnection);
+        verify(target, times(1)).getConnection();
+    }
+
+    @Test
+    void shouldReturnPermitOnClose() throws SQLException {
+        when(target.getConnection()).thenReturn(connection);
+
+        Connection first = guard.getConnection();
+        first.close();
+        first.close();
+
+        assertNotNull(guard.getConnection());
+        assertThrows(SQLTransientConnectionException.class, guard::getConnection);
+        verify(connection, times(2)).close();
+    }
+
+    @Test
+    void shouldReturnPermitWhenTargetFails() throws SQLException {
+        when(target.getConnection())
+                .thenThrow(new SQLException("pool exhausted"))
+                .thenReturn(connection);
+
+        assertThrows(SQLException.class, guard::getConnection);
+        assertNotNull(guard.getConnection());
+    }
+}
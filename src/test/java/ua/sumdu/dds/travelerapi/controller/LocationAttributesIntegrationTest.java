@@ -1,17 +1,23 @@
 package ua.sumdu.dds.travelerapi.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
 import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
+import ua.sumdu.dds.travelerapi.dto.LocationSearchRequest;
+import ua.sumdu.dds.travelerapi.dto.LocationView;
 import ua.sumdu.dds.travelerapi.model.Location;
 import ua.sumdu.dds.travelerapi.model.TravelPlan;
+import ua.sumdu.dds.travelerapi.repository.ClusterCell;
+import ua.sumdu.dds.travelerapi.repository.LocationReadRepository;
 import ua.sumdu.dds.travelerapi.repository.LocationRepository;
 import ua.sumdu.dds.travelerapi.repository.TravelPlanRepository;
 
@@ -56,6 +62,9 @@ class LocationAttributesIntegrationTest {
     @Autowired
     private TravelPlanRepository planRepository;
 
+    @Autowired
+    private NamedParameterJdbcTemplate jdbc;
+
     private TravelPlan testPlan;
     private Location testLocation;
 
@@ -387,4 +396,97 @@ class LocationAttributesIntegrationTest {
         assertThat(retrievedLevel2).isNotNull();
         assertThat(retrievedLevel2.get("deep_value")).isEqualTo("nested");
     }
-}
\ No newline at end of file
+
+    /* -------- Combined search (LocationReadRepository) -------- */
+
+    @Test
+    void shouldSearchLocationsWithAllCriteriaInOneQuery() {
+        Location cafe = locationRepository.save(Location.builder()
+                .travelPlan(testPlan)
+                .name("Cafe")
+                .visitOrder(2)
+                .version(1)
+                .attributes(new HashMap<>(Map.of("rating", 4.8, "category", "museum",
+                        "accessibility", List.of("elevator"))))
+                .build());
+        locationRepository.flush();
+        LocationReadRepository views = new LocationReadRepository(jdbc, new ObjectMapper());
+
+        LocationSearchRequest matching = new LocationSearchRequest(
+                "museum", new BigDecimal("4.0"), List.of("art", "food"), "wheelchair", testPlan.getId());
+        assertThat(views.search(matching, null, null, 10))
+                .extracting(LocationView::id)
+                .containsExactly(testLocation.getId());
+
+        // Best-rated first, keyset continues below the last row
+        LocationSearchRequest byRating = new LocationSearchRequest(
+                "museum", new BigDecimal("4.0"), null, null, null);
+        List<LocationView> first = views.search(byRating, null, null, 1);
+        assertThat(first).extracting(LocationView::id).containsExactly(cafe.getId());
+        assertThat(views.search(byRating, new BigDecimal("4.8"), cafe.getId(), 10))
+                .extracting(LocationView::id)
+                .containsExactly(testLocation.getId());
+
+        assertThat(views.search(new LocationSearchRequest(null, null, null, "braille", null), null, null, 10))
+                .isEmpty();
+        assertThat(views.search(new LocationSearchRequest(null, null, null, null, null), null, null, 10))
+                .hasSize(2);
+    }
+
+    @Test
+    void shouldFindNearestLocatedRowsInsideBox() {
+        locationRepository.save(Location.builder()
+                .travelPlan(testPlan)
+                .name("Big Ben")
+                .latitude(new BigDecimal("51.5007"))
+                .longitude(new BigDecimal("-0.1246"))
+                .visitOrder(2)
+                .version(1)
+                .attributes(new HashMap<>())
+                .build());
+        locationRepository.save(Location.builder()
+                .travelPlan(testPlan)
+                .name("Unlocated")
+                .visitOrder(3)
+                .version(1)
+                .attributes(new HashMap<>())
+                .build());
+        locationRepository.flush();
+        LocationReadRepository views = new LocationReadRepository(jdbc, new ObjectMapper());
+
+        // Box around Paris: only the Louvre
+        assertThat(views.findNearest(48.8566, 2.3522, 48.80, 48.91, 2.28, 2.43, 10))
+                .extracting(LocationView::name)
+                .containsExactly("Louvre Museum");
+        // Box over Paris and London: nearest to London first
+        assertThat(views.findNearest(51.5, -0.12, 48.0, 52.0, -1.0, 3.0, 10))
+                .extracting(LocationView::name)
+                .containsExactly("Big Ben", "Louvre Museum");
+    }
+
+    @Test
+    void shouldCountLocatedRowsPerClusterCell() {
+        for (String[] point : new String[][] {{"Eiffel Tower", "48.8584", "2.2945"}, {"Big Ben", "51.5007", "-0.1246"}}) {
+            locationRepository.save(Location.builder()
+                    .travelPlan(testPlan)
+                    .name(point[0])
+                    .latitude(new BigDecimal(point[1]))
+                    .longitude(new BigDecimal(point[2]))
+                    .visitOrder(2)
+                    .version(1)
+                    .attributes(new HashMap<>())
+                    .build());
+        }
+        locationRepository.flush();
+        LocationReadRepository views = new LocationReadRepository(jdbc, new ObjectMapper());
+
+        // Level 3: cells of 45 x 22.5 degrees; London is just west of the x = 4 boundary
+        assertThat(views.clusterCells(3, -90, -180, 90, 180, null, null)).containsExactly(
+                new ClusterCell(3, 6, 1, 51.5007, -0.1246),
+                new ClusterCell(4, 6, 2, (48.8606 + 48.8584) / 2, (2.3376 + 2.2945) / 2));
+        assertThat(views.clusterCells(3, -90, -180, 90, 180, testPlan.getId(), "museum"))
+                .extracting(ClusterCell::count)
+                .containsExactly(1L);
+        assertThat(views.clusterCells(3, 0, 10, 10, 20, null, null)).isEmpty();
+    }
+}
@@ -12,6 +12,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.util.UUID;
 
+import static org.hamcrest.Matchers.contains;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -43,7 +44,7 @@ class LocationControllerIT {
             .andExpect(status().isCreated())
             .andExpect(jsonPath("$.id").exists())
             .andExpect(jsonPath("$.name").value("Paris"))
-            .andExpect(jsonPath("$.visit_order").value(1))
+            .andExpect(jsonPath("$.visit_order").value(1000))
             .andExpect(jsonPath("$.version").value(1))
             .andExpect(jsonPath("$.travel_plan_id").value(planId.toString()));
     }
@@ -83,6 +84,45 @@ class LocationControllerIT {
 
     }
 
+    @Test
+    void shouldOptimizeAndApplyVisitOrder() throws Exception {
+        UUID planId = createTestTravelPlan();
+
+        // Added out of order along the 50th parallel: 0, 3, 1, 2 degrees east
+        String[] ids = new String[4];
+        int[] east = {0, 3, 1, 2};
+        for (int i = 0; i < east.length; i++) {
+            MvcResult created = mockMvc.perform(post("/api/travel-plans/{id}/locations", planId)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content("""
+                                {
+                                  "name": "Stop %d",
+                                  "latitude": 50,
+                                  "longitude": %d
+                                }
+                                """.formatted(east[i], east[i])))
+                    .andExpect(status().isCreated())
+                    .andReturn();
+            ids[i] = JsonPath.read(created.getResponse().getContentAsString(), "$.id");
+        }
+
+        mockMvc.perform(post("/api/travel-plans/{id}/locations/optimize", planId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.location_ids[1]").value(ids[2]))
+                .andExpect(jsonPath("$.applied").value(false));
+
+        mockMvc.perform(post("/api/travel-plans/{id}/locations/optimize", planId).param("apply", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.applied").value(true));
+
+        mockMvc.perform(get("/api/travel-plans/{id}/locations", planId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].name").value(contains(
+                        "Stop 0", "Stop 1", "Stop 2", "Stop 3")))
+                .andExpect(jsonPath("$[3].visit_order").value(4000))
+                .andExpect(jsonPath("$[3].version").value(2));
+    }
+
     /* ---------- HELPERS ---------- */
 
     private UUID createTestTravelPlan() throws Exception {
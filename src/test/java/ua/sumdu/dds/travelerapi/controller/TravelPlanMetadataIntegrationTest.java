@@ -1,23 +1,32 @@
 package ua.sumdu.dds.travelerapi.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
 import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
+import ua.sumdu.dds.travelerapi.dto.JsonPathOperation;
+import ua.sumdu.dds.travelerapi.dto.TravelPlanSearchRequest;
+import ua.sumdu.dds.travelerapi.dto.TravelPlanView;
 import ua.sumdu.dds.travelerapi.model.TravelPlan;
+import ua.sumdu.dds.travelerapi.repository.JsonbEditVersions;
+import ua.sumdu.dds.travelerapi.repository.TravelPlanReadRepository;
 import ua.sumdu.dds.travelerapi.repository.TravelPlanRepository;
+import ua.sumdu.dds.travelerapi.repository.TravelPlanWriteRepository;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -26,9 +35,10 @@ import static org.assertj.core.api.Assertions.assertThat;
  *
  * Uses Testcontainers with real PostgreSQL for accurate JSONB testing.
  *
- * Note: Tests for findByTagsAny(), findByTagsAll(), searchWithFilters(),
- * and findByMetadataKeyExists() were removed due to PostgreSQL ?/?|/?&
- * operator conflicts with JDBC parameter placeholders.
+ * Note: Tests for findByTagsAny(), findByTagsAll() and
+ * findByMetadataKeyExists() were removed due to PostgreSQL ?/?|/?&
+ * operator conflicts with JDBC parameter placeholders; the combined
+ * search uses containment (@>) instead.
  */
 @DataJpaTest
 @Testcontainers
@@ -52,6 +62,9 @@ class TravelPlanMetadataIntegrationTest {
     @Autowired
     private TravelPlanRepository repository;
 
+    @Autowired
+    private NamedParameterJdbcTemplate jdbc;
+
     private TravelPlan testPlan;
 
     @BeforeEach
@@ -255,4 +268,146 @@ class TravelPlanMetadataIntegrationTest {
         // Then: no results
         assertThat(results).isEmpty();
     }
-}
\ No newline at end of file
+
+    /* -------- Patches applied by PostgreSQL (TravelPlanWriteRepository) -------- */
+
+    private TravelPlanWriteRepository writes() {
+        repository.flush(); // the JDBC update must see the row saved in setUp()
+        return new TravelPlanWriteRepository(jdbc, new ObjectMapper());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldDeepMergeMetadataInDatabase() {
+        // Given: a merge patch touching one nested key, removing one and adding one
+        Map<String, Object> patch = new HashMap<>();
+        patch.put("preferences", Map.of("pace", "fast"));
+        patch.put("tags", null);
+        patch.put("custom_fields", Map.of("note", "window seat"));
+
+        // When: applied as one UPDATE
+        TravelPlan updated = writes()
+                .mergePatchMetadata(testPlan.getId(), testPlan.getVersion(), patch)
+                .orElseThrow();
+
+        // Then: siblings of the changed nested key are preserved
+        Map<String, Object> preferences = (Map<String, Object>) updated.getMetadata().get("preferences");
+        assertThat(preferences)
+                .containsEntry("pace", "fast")
+                .containsEntry("travel_style", "adventure")
+                .containsEntry("budget_category", "moderate");
+        assertThat(updated.getMetadata()).doesNotContainKey("tags");
+        assertThat((Map<String, Object>) updated.getMetadata().get("custom_fields"))
+                .containsEntry("note", "window seat");
+        assertThat(updated.getVersion()).isEqualTo(testPlan.getVersion() + 1);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldApplyPathOperationsInDatabase() {
+        // Given: path operations, including a set below a missing object
+        List<JsonPathOperation> operations = List.of(
+                new JsonPathOperation("set", "/preferences/pace", "fast"),
+                new JsonPathOperation("set", "/custom_fields/flight/seat", "12A"),
+                new JsonPathOperation("append", "/tags", "winter"),
+                new JsonPathOperation("remove", "/tags/0", null),
+                new JsonPathOperation("append", "/participants", Map.of("name", "Olena"))
+        );
+
+        // When: applied as one UPDATE
+        TravelPlan updated = writes()
+                .patchMetadata(testPlan.getId(), testPlan.getVersion(), operations)
+                .orElseThrow();
+
+        // Then: each operation is applied in order
+        Map<String, Object> metadata = updated.getMetadata();
+        assertThat((Map<String, Object>) metadata.get("preferences"))
+                .containsEntry("pace", "fast")
+                .containsEntry("travel_style", "adventure");
+        assertThat((List<String>) metadata.get("tags")).containsExactly("summer", "family", "winter");
+
+        Map<String, Object> customFields = (Map<String, Object>) metadata.get("custom_fields");
+        assertThat((Map<String, Object>) customFields.get("flight")).containsEntry("seat", "12A");
+        assertThat((List<Object>) metadata.get("participants")).containsExactly(Map.of("name", "Olena"));
+    }
+
+    @Test
+    void shouldNotPatchStaleVersion() {
+        // When: patch with a version that is not the current one
+        Optional<TravelPlan> result = writes().mergePatchMetadata(
+                testPlan.getId(), testPlan.getVersion() + 1, Map.of("new_key", "new_value"));
+
+        // Then: no row is updated
+        assertThat(result).isEmpty();
+        assertThat(repository.findVersionById(testPlan.getId())).contains(testPlan.getVersion());
+    }
+
+    @Test
+    void shouldRecordChangedKeyVersions() {
+        TravelPlanWriteRepository writes = writes();
+        int base = testPlan.getVersion();
+
+        // When: two key-level edits, then a full replace
+        writes.mergeMetadata(testPlan.getId(), base, Map.of("tags", List.of("winter"))).orElseThrow();
+        writes.deleteMetadataKey(testPlan.getId(), base + 1, "preferences").orElseThrow();
+        JsonbEditVersions afterEdits = writes.findMetadataVersions(testPlan.getId()).orElseThrow();
+        writes.replaceMetadata(testPlan.getId(), base + 2, Map.of()).orElseThrow();
+        JsonbEditVersions afterReplace = writes.findMetadataVersions(testPlan.getId()).orElseThrow();
+
+        // Then: an edit of other keys made at base does not conflict, until the replace
+        assertThat(afterEdits.keyVersions())
+                .containsEntry("tags", base + 1)
+                .containsEntry("preferences", base + 2);
+        assertThat(afterEdits.changedSince(base, List.of("custom_fields"))).isFalse();
+        assertThat(afterEdits.changedSince(base, List.of("tags"))).isTrue();
+        assertThat(afterReplace.resetVersion()).isEqualTo(base + 3);
+        assertThat(afterReplace.changedSince(base, List.of("custom_fields"))).isTrue();
+    }
+
+    /* -------- Combined search (TravelPlanReadRepository) -------- */
+
+    @Test
+    void shouldSearchWithAllCriteriaInOneQuery() {
+        repository.flush();
+        TravelPlanReadRepository views = new TravelPlanReadRepository(jdbc, new ObjectMapper());
+
+        // Preferences, any-of tags and is_public together
+        TravelPlanSearchRequest matching = new TravelPlanSearchRequest(
+                "adventure", "moderate", "relaxed", List.of("winter", "family"), true, false);
+        TravelPlanSearchRequest otherTags = new TravelPlanSearchRequest(
+                "adventure", null, null, List.of("winter"), null, false);
+        TravelPlanSearchRequest otherPace = new TravelPlanSearchRequest(
+                null, null, "fast", null, null, false);
+
+        assertThat(views.search(matching, null, null, 10))
+                .extracting(TravelPlanView::id)
+                .containsExactly(testPlan.getId());
+        assertThat(views.search(otherTags, null, null, 10)).isEmpty();
+        assertThat(views.search(otherPace, null, null, 10)).isEmpty();
+
+        // Keyset: nothing after the only match
+        TravelPlanView only = views.search(matching, null, null, 10).get(0);
+        assertThat(views.search(matching, only.createdAt(), only.id(), 10)).isEmpty();
+    }
+
+    @Test
+    void shouldSearchTagsAnyOfAndAllOf() {
+        repository.flush();
+        TravelPlanReadRepository views = new TravelPlanReadRepository(jdbc, new ObjectMapper());
+
+        TravelPlanSearchRequest anyOf = new TravelPlanSearchRequest(
+                null, null, null, List.of("winter", "summer"), null, false);
+        TravelPlanSearchRequest allOf = new TravelPlanSearchRequest(
+                null, null, null, List.of("europe", "family"), null, true);
+        TravelPlanSearchRequest notAllOf = new TravelPlanSearchRequest(
+                null, null, null, List.of("europe", "winter"), null, true);
+
+        assertThat(views.search(anyOf, null, null, 10))
+                .extracting(TravelPlanView::id)
+                .containsExactly(testPlan.getId());
+        assertThat(views.search(allOf, null, null, 10))
+                .extracting(TravelPlanView::id)
+                .containsExactly(testPlan.getId());
+        assertThat(views.search(notAllOf, null, null, 10)).isEmpty();
+    }
+}
@@ -0,0 +1,107 @@
+package ua.sumdu.dds.travelerapi.replication;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReadWriteRoutingDataSourceTest {
+
+    @Mock
+    private DataSource primary;
+
+    @Mock
+    private HikariDataSource replicaPool;
+
+    @Mock
+    private ReplicaLagMonitor monitor;
+
+    @Mock
+    private Connection primaryConnection;
+
+    @Mock
+    private Connection replicaConnection;
+
+    private Replica replica;
+    private ReadWriteRoutingDataSource routing;
+
+    @BeforeEach
+    void setUp() {
+        replica = new Replica("replica-0", replicaPool);
+        routing = new ReadWriteRoutingDataSource(primary, monitor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    void shouldUsePrimaryOutsideReadOnlyTransaction() throws SQLException {
+        when(primary.getConnection()).thenReturn(primaryConnection);
+
+        assertSame(primaryConnection, routing.getConnection());
+        verifyNoInteractions(monitor);
+    }
+
+    @Test
+    void shouldUseChosenReplicaInReadOnlyTransaction() throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        when(monitor.choose()).thenReturn(replica);
+        when(replicaPool.getConnection()).thenReturn(replicaConnection);
+
+        assertSame(replicaConnection, routing.getConnection());
+        verify(primary, never()).getConnection();
+    }
+
+    @Test
+    void shouldFallBackToPrimaryWhenNoReplicaInRotation() throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        when(monitor.choose()).thenReturn(null);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+
+        assertSame(primaryConnection, routing.getConnection());
+    }
+
+    @Test
+    void shouldFallBackToPrimaryAndMarkReplicaDownOnConnectionFailure() throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        when(monitor.choose()).thenReturn(replica);
+        when(replicaPool.getConnection()).thenThrow(new SQLException("connection refused"));
+        when(primary.getConnection()).thenReturn(primaryConnection);
+
+        assertSame(primaryConnection, routing.getConnection());
+        verify(monitor).markDown(eq(replica), any(SQLException.class));
+    }
+
+    @Test
+    void shouldPassCredentialsToPrimaryOutsideReadOnlyTransaction() throws SQLException {
+        when(primary.getConnection("reporting", "secret")).thenReturn(primaryConnection);
+
+        assertSame(primaryConnection, routing.getConnection("reporting", "secret"));
+        verifyNoInteractions(monitor);
+    }
+
+    @Test
+    void shouldPassCredentialsToChosenReplicaInReadOnlyTransaction() throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        when(monitor.choose()).thenReturn(replica);
+        when(replicaPool.getConnection("reporting", "secret")).thenReturn(replicaConnection);
+
+        assertSame(replicaConnection, routing.getConnection("reporting", "secret"));
+        verify(primary, never()).getConnection(any(), any());
+    }
+}
@@ -0,0 +1,87 @@
+package ua.sumdu.dds.travelerapi.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import ua.sumdu.dds.travelerapi.dto.JsonPathOperation;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JsonbPatchTest {
+
+    private final MapSqlParameterSource params = new MapSqlParameterSource();
+
+    private JsonbPatch patch() {
+        return new JsonbPatch("metadata", new ObjectMapper(), params);
+    }
+
+    @Test
+    void shouldCompileScalarMembersToJsonbSetAndNullToRemove() {
+        Map<String, Object> merge = new LinkedHashMap<>();
+        merge.put("title", "Trip");
+        merge.put("tags", null);
+
+        String sql = patch().merge(merge).sql();
+
+        assertThat(sql).isEqualTo("(jsonb_set(metadata, CAST(ARRAY[:p0] AS text[]), CAST(:v1 AS jsonb), true)"
+                + " #- CAST(ARRAY[:p2] AS text[]))");
+        assertThat(params.getValue("p0")).isEqualTo(List.of("title"));
+        assertThat(params.getValue("v1")).isEqualTo("\"Trip\"");
+        assertThat(params.getValue("p2")).isEqualTo(List.of("tags"));
+    }
+
+    @Test
+    void shouldMergeNestedObjectsKeyByKey() {
+        String sql = patch().merge(Map.of("preferences", Map.of("pace", "fast"))).sql();
+
+        // preferences becomes {} only when it is not an object, then pace is set inside it
+        assertThat(sql).startsWith("jsonb_set((SELECT CASE WHEN jsonb_typeof(d #> CAST(ARRAY[:p0] AS text[])) = 'object'");
+        assertThat(params.getValue("p0")).isEqualTo(List.of("preferences"));
+        assertThat(params.getValue("p1")).isEqualTo(List.of("preferences", "pace"));
+        assertThat(params.getValue("v2")).isEqualTo("\"fast\"");
+    }
+
+    @Test
+    void shouldLeaveColumnUnchangedForEmptyPatch() {
+        assertThat(patch().merge(Map.of()).sql()).isEqualTo("metadata");
+    }
+
+    @Test
+    void shouldCreateMissingParentsBeforeSet() {
+        String sql = patch().apply(List.of(new JsonPathOperation("set", "/a/b/c", 1))).sql();
+
+        assertThat(params.getValue("p0")).isEqualTo(List.of("a"));
+        assertThat(params.getValue("p1")).isEqualTo(List.of("a", "b"));
+        assertThat(params.getValue("p2")).isEqualTo(List.of("a", "b", "c"));
+        assertThat(params.getValue("v3")).isEqualTo("1");
+        assertThat(sql).startsWith("jsonb_set((SELECT CASE WHEN d #> CAST(ARRAY[:p1] AS text[]) IS NULL");
+    }
+
+    @Test
+    void shouldAppendAsSingleElement() {
+        String sql = patch().apply(List.of(new JsonPathOperation("append", "/tags", List.of("a", "b")))).sql();
+
+        assertThat(sql).contains("|| jsonb_build_array(CAST(:v1 AS jsonb))");
+        assertThat(params.getValue("v1")).isEqualTo("[\"a\",\"b\"]");
+    }
+
+    @Test
+    void shouldDecodeJsonPointerEscapes() {
+        JsonPathOperation operation = new JsonPathOperation("remove", "/a~1b/c~0d/0", null);
+
+        assertThat(operation.segments()).containsExactly("a/b", "c~d", "0");
+    }
+
+    @Test
+    void shouldRejectRootPointer() {
+        assertThatThrownBy(() -> patch().apply(List.of(new JsonPathOperation("remove", "/", null))))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> patch().apply(List.of(new JsonPathOperation("remove", "tags", null))))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
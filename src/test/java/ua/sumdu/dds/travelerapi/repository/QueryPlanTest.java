@@ -0,0 +1,234 @@
+package ua.sumdu.dds.travelerapi.repository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ua.sumdu.dds.travelerapi.dto.LocationSearchRequest;
+import ua.sumdu.dds.travelerapi.dto.TravelPlanSearchRequest;
+
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Every read query of the repositories must be answered from an index.
+ *
+ * Runs the real Flyway migrations (so the indexes are the production ones),
+ * seeds 20k plans / 100k locations where the filtered values are rare, and
+ * fails when EXPLAIN (FORMAT JSON) of a query contains a Seq Scan.
+ *
+ * Native SELECTs of the JPA repositories are read from their @Query
+ * annotations; JDBC read models are run through a template that explains
+ * each statement before executing it. JPQL queries only look rows up by
+ * primary or foreign key and are not covered.
+ */
+@DataJpaTest
+@Testcontainers
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class QueryPlanTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.flyway.enabled", () -> "true");
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "none");
+    }
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbc;
+
+    private ExplainingJdbcTemplate explaining;
+    private UUID planId;
+
+    @BeforeEach
+    void seed() {
+        jdbc.getJdbcOperations().execute("""
+                INSERT INTO travel_plans (id, title, version, is_public, metadata, created_at, updated_at)
+                SELECT gen_random_uuid(), 'Plan ' || g, 1, g % 2 = 0,
+                       jsonb_build_object(
+                           'preferences', jsonb_build_object(
+                               'travel_style', CASE WHEN g % 1000 = 0 THEN 'adventure' ELSE 'style' || g % 50 END,
+                               'budget_category', CASE WHEN g % 1000 = 1 THEN 'moderate' ELSE 'budget' || g % 50 END,
+                               'pace', 'pace' || g % 50),
+                           'tags', jsonb_build_array('tag' || g % 100,
+                               CASE WHEN g % 1000 = 0 THEN 'europe' ELSE 'tag' || g % 70 END)),
+                       now() - g * interval '1 minute', now()
+                FROM generate_series(1, 20000) AS g
+                """);
+        jdbc.getJdbcOperations().execute("""
+                INSERT INTO locations (id, travel_plan_id, name, latitude, longitude, visit_order, version,
+                                       attributes, created_at)
+                SELECT gen_random_uuid(), p.id, 'Location ' || x.g,
+                       -60 + (x.g % 12000) / 100.0, -170 + (x.g * 7 % 34000) / 100.0, n * 1000, 1,
+                       jsonb_build_object(
+                           'category', CASE WHEN x.g % 1000 = 0 THEN 'museum' ELSE 'category' || x.g % 100 END,
+                           'rating', CASE WHEN x.g % 1000 = 0 THEN 4.8 ELSE 1 + (x.g % 30) / 10.0 END,
+                           'accessibility', jsonb_build_array(
+                               CASE WHEN x.g % 1000 = 0 THEN 'wheelchair' ELSE 'ramp' END),
+                           'tags', jsonb_build_array('tag' || x.g % 100)),
+                       now()
+                FROM (SELECT id, row_number() OVER () AS r FROM travel_plans) p
+                CROSS JOIN generate_series(1, 5) AS n
+                CROSS JOIN LATERAL (SELECT p.r * 5 + n AS g) x
+                """);
+        jdbc.getJdbcOperations().execute("""
+                INSERT INTO location_deletions (travel_plan_id, version)
+                SELECT id, 2 FROM travel_plans
+                """);
+        jdbc.getJdbcOperations().execute("ANALYZE travel_plans");
+        jdbc.getJdbcOperations().execute("ANALYZE locations");
+        jdbc.getJdbcOperations().execute("ANALYZE location_deletions");
+
+        planId = jdbc.getJdbcOperations().queryForObject("SELECT id FROM travel_plans LIMIT 1", UUID.class);
+        explaining = new ExplainingJdbcTemplate(jdbc.getJdbcOperations());
+    }
+
+    @Test
+    void nativeRepositoryQueriesShouldUseIndexes() {
+        Map<String, Object> params = new HashMap<>();
+        params.put("id", planId);
+        params.put("planId", planId);
+        params.put("limit", 51);
+        params.put("createdAt", LocalDateTime.now().minusDays(3));
+        params.put("travelStyle", "adventure");
+        params.put("budgetCategory", "moderate");
+        params.put("metadataJson", "{\"tags\":[\"europe\"]}");
+        params.put("category", "museum");
+        params.put("minRating", new BigDecimal("4.5"));
+        params.put("feature", "wheelchair");
+
+        List<String> checked = new ArrayList<>();
+        for (Class<?> repository : List.of(TravelPlanRepository.class, LocationRepository.class)) {
+            for (Method method : repository.getDeclaredMethods()) {
+                Query query = method.getAnnotation(Query.class);
+                if (query == null || !query.nativeQuery() || !query.value().strip().startsWith("SELECT")) {
+                    continue;
+                }
+                String plan = jdbc.queryForObject("EXPLAIN (FORMAT JSON) " + query.value(), params, String.class);
+                assertNoSeqScan(repository.getSimpleName() + "." + method.getName(), plan);
+                checked.add(method.getName());
+            }
+        }
+
+        assertThat(checked).contains("findByTravelStyle", "findByBudgetCategory", "findPageAfter",
+                "findByCategory", "findByAccessibilityFeature", "findTopRatedInPlan");
+    }
+
+    @Test
+    void planReadModelQueriesShouldUseIndexes() {
+        TravelPlanReadRepository views = new TravelPlanReadRepository(explaining, MAPPER);
+
+        explain("findByTravelStyle", () -> views.findByTravelStyle("adventure"));
+        explain("findByBudgetCategory", () -> views.findByBudgetCategory("moderate"));
+        explain("search (no criteria)", () -> views.search(
+                new TravelPlanSearchRequest(null, null, null, null, null, false), null, null, 51));
+        explain("search (preferences)", () -> views.search(
+                new TravelPlanSearchRequest("adventure", null, null, null, null, false), null, null, 51));
+        explain("search (any tag)", () -> views.search(
+                new TravelPlanSearchRequest(null, null, null, List.of("europe", "missing"), null, false),
+                null, null, 51));
+        explain("search (all tags)", () -> views.search(
+                new TravelPlanSearchRequest(null, null, null, List.of("europe", "tag0"), null, true),
+                null, null, 51));
+        explain("search (is_public, next page)", () -> views.search(
+                new TravelPlanSearchRequest(null, null, null, null, true, false),
+                OffsetDateTime.now().minusDays(3), planId, 51));
+    }
+
+    @Test
+    void locationReadModelQueriesShouldUseIndexes() {
+        LocationReadRepository views = new LocationReadRepository(explaining, MAPPER);
+        BigDecimal minRating = new BigDecimal("4.5");
+
+        explain("findByCategory", () -> views.findByCategory("museum"));
+        explain("findTopRatedInPlan", () -> views.findTopRatedInPlan(planId, minRating));
+        explain("search (no criteria)", () -> views.search(
+                new LocationSearchRequest(null, null, null, null, null), null, null, 51));
+        explain("search (category)", () -> views.search(
+                new LocationSearchRequest("museum", null, null, null, null), null, null, 51));
+        explain("search (min_rating, next page)", () -> views.search(
+                new LocationSearchRequest(null, minRating, null, null, null), new BigDecimal("4.8"), planId, 51));
+        explain("search (accessibility)", () -> views.search(
+                new LocationSearchRequest(null, null, null, "wheelchair", null), null, null, 51));
+        explain("search (plan)", () -> views.search(
+                new LocationSearchRequest(null, null, null, null, planId), null, null, 51));
+        explain("findNearest", () -> views.findNearest(48.85, 2.35, 48.80, 48.90, 2.28, 2.42, 200));
+        explain("clusterCells", () -> views.clusterCells(12, 45.0, 0.0, 46.0, 1.0, null, null));
+        explain("clusterCells (category)", () -> views.clusterCells(12, 45.0, 0.0, 46.0, 1.0, null, "museum"));
+        explain("findById", () -> views.findById(planId, planId));
+    }
+
+    private void explain(String name, Runnable query) {
+        explaining.plans.clear();
+        query.run();
+        assertThat(explaining.plans).as(name).isNotEmpty();
+        explaining.plans.forEach(plan -> assertNoSeqScan(name, plan));
+    }
+
+    private static void assertNoSeqScan(String name, String plan) {
+        List<String> scanned = new ArrayList<>();
+        try {
+            collectSeqScans(MAPPER.readTree(plan).get(0).get("Plan"), scanned);
+        } catch (Exception e) {
+            throw new IllegalStateException("Unreadable plan of " + name + ": " + plan, e);
+        }
+        assertThat(scanned).as("%s scans whole tables:%n%s", name, plan).isEmpty();
+    }
+
+    private static void collectSeqScans(JsonNode node, List<String> scanned) {
+        if ("Seq Scan".equals(node.path("Node Type").asText())) {
+            scanned.add(node.path("Relation Name").asText());
+        }
+        node.path("Plans").forEach(child -> collectSeqScans(child, scanned));
+    }
+
+    /**
+     * Records EXPLAIN (FORMAT JSON) of every query before running it.
+     */
+    private static final class ExplainingJdbcTemplate extends NamedParameterJdbcTemplate {
+
+        private final List<String> plans = new ArrayList<>();
+
+        ExplainingJdbcTemplate(JdbcOperations operations) {
+            super(operations);
+        }
+
+        @Override
+        public <T> List<T> query(String sql, SqlParameterSource paramSource, RowMapper<T> rowMapper) {
+            plans.add(queryForObject("EXPLAIN (FORMAT JSON) " + sql, paramSource, String.class));
+            return super.query(sql, paramSource, rowMapper);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package ua.sumdu.dds.travelerapi.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SearchQueryTest {
+
+    private final SearchQuery query = new SearchQuery(new ObjectMapper());
+
+    @Test
+    void shouldAndCriteriaAndBindEveryValue() {
+        String sql = query
+                .contains("metadata", Map.of("preferences", Map.of("pace", "fast")))
+                .where("is_public = {}", true)
+                .where("(created_at, id) > ({}, {})", "t", "id")
+                .sql("id", "travel_plans", "created_at, id", 51);
+
+        assertThat(sql).isEqualTo("SELECT id FROM travel_plans"
+                + " WHERE metadata @> CAST(:s0 AS jsonb) AND is_public = :s1 AND (created_at, id) > (:s2, :s3)"
+                + " ORDER BY created_at, id LIMIT :s4");
+        assertThat(query.params().getValue("s0")).isEqualTo("{\"preferences\":{\"pace\":\"fast\"}}");
+        assertThat(query.params().getValue("s4")).isEqualTo(51);
+    }
+
+    @Test
+    void shouldOrContainmentsForAnyOf() {
+        String sql = query
+                .containsAny("metadata", List.of(Map.of("tags", List.of("a")), Map.of("tags", List.of("b"))))
+                .sql("id", "travel_plans", "id", 10);
+
+        assertThat(sql).contains("WHERE (metadata @> CAST(:s0 AS jsonb) OR metadata @> CAST(:s1 AS jsonb))");
+        assertThat(sql).doesNotContain("?");
+        assertThat(query.params().getValue("s1")).isEqualTo("{\"tags\":[\"b\"]}");
+    }
+
+    @Test
+    void shouldOmitWhereWithoutCriteria() {
+        assertThat(query.sql("id", "travel_plans", "id", 10))
+                .isEqualTo("SELECT id FROM travel_plans ORDER BY id LIMIT :s0");
+    }
+}
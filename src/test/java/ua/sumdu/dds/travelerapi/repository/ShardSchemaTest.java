@@ -0,0 +1,109 @@
+package ua.sumdu.dds.travelerapi.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.flyway.FlywayAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Location writes that renumber a whole plan (rebalance, optimized route),
+ * run against the shard schema (db/sharding/init-shard-schema.sql) instead
+ * of the Flyway migrations.
+ */
+@DataJpaTest
+@Testcontainers
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ImportAutoConfiguration(exclude = FlywayAutoConfiguration.class)
+class ShardSchemaTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16")
+            .withDatabaseName("testdb")
+            .withUsername("test")
+            .withPassword("test");
+
+    @DynamicPropertySource
+    static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "none");
+    }
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbc;
+
+    @Autowired
+    private LocationRepository locations;
+
+    private UUID planId;
+    private List<UUID> ids;
+
+    @BeforeEach
+    void createSchemaAndPlan() throws IOException {
+        JdbcOperations sql = jdbc.getJdbcOperations();
+        // One multi-statement string: the script has a dollar-quoted function body
+        sql.execute(Files.readString(Path.of("db/sharding/init-shard-schema.sql")));
+
+        planId = UUID.randomUUID();
+        ids = List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+        sql.update("INSERT INTO travel_plans (id, title) VALUES (?, 'Shard plan')", planId);
+        int[] orders = {1000, 1001, 1002};
+        for (int i = 0; i < ids.size(); i++) {
+            sql.update("INSERT INTO locations (id, travel_plan_id, name, visit_order) VALUES (?, ?, ?, ?)",
+                    ids.get(i), planId, "Location " + i, orders[i]);
+        }
+    }
+
+    @Test
+    void shouldRebalanceVisitOrders() {
+        locations.negateVisitOrders(planId);
+        locations.respaceVisitOrders(planId, 1000);
+
+        assertThat(visitOrders()).containsExactly(1000, 2000, 3000);
+        assertThat(idsInOrder()).isEqualTo(ids);
+    }
+
+    @Test
+    void shouldWriteOptimizedRouteOrder() {
+        LocationWriteRepository writes = new LocationWriteRepository(jdbc, new ObjectMapper());
+        List<UUID> route = List.of(ids.get(0), ids.get(2), ids.get(1));
+
+        locations.negateVisitOrders(planId);
+        int renumbered = writes.reorder(planId, route, 1000);
+
+        assertThat(renumbered).isEqualTo(3);
+        assertThat(visitOrders()).containsExactly(1000, 2000, 3000);
+        assertThat(idsInOrder()).isEqualTo(route);
+    }
+
+    private List<Integer> visitOrders() {
+        return jdbc.getJdbcOperations().queryForList(
+                "SELECT visit_order FROM locations WHERE travel_plan_id = ? ORDER BY visit_order",
+                Integer.class, planId);
+    }
+
+    private List<UUID> idsInOrder() {
+        return jdbc.getJdbcOperations().queryForList(
+                "SELECT id FROM locations WHERE travel_plan_id = ? ORDER BY visit_order", UUID.class, planId);
+    }
+}
@@ -0,0 +1,71 @@
+package ua.sumdu.dds.travelerapi.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time of one route optimization, distance matrix included, for stops
+ * spread over Europe; every fixedEvery-th stop has a fixed time (0: none).
+ *
+ * Not a test (surefire only runs *Test). Run with
+ *   mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ *   java -cp target/classes:target/test-classes:$(cat target/cp.txt) \
+ *        ua.sumdu.dds.travelerapi.service.RouteOptimizerBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RouteOptimizerBenchmark {
+
+    @Param({"100", "1000"})
+    public int stops;
+
+    @Param({"0", "20"})
+    public int fixedEvery;
+
+    private double[] latitude;
+    private double[] longitude;
+    private long[] fixedAt;
+
+    @Setup
+    public void generate() {
+        Random random = new Random(42);
+        latitude = new double[stops];
+        longitude = new double[stops];
+        fixedAt = new long[stops];
+        for (int i = 0; i < stops; i++) {
+            latitude[i] = 35 + random.nextDouble() * 25;
+            longitude[i] = -10 + random.nextDouble() * 40;
+            fixedAt[i] = fixedEvery > 0 && i % fixedEvery == 0 ? random.nextInt(1_000_000) : RouteOptimizer.FREE;
+        }
+    }
+
+    @Benchmark
+    public int[] solve() {
+        return new RouteOptimizer(latitude, longitude, fixedAt).solve();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RouteOptimizerBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
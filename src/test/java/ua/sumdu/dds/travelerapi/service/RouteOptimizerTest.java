@@ -0,0 +1,101 @@
+package ua.sumdu.dds.travelerapi.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class RouteOptimizerTest {
+
+    private static final long FREE = RouteOptimizer.FREE;
+
+    @Test
+    void shouldVisitStopsAlongALineInOrder() {
+        // Stops along the equator, given shuffled; stop 0 is the west end
+        double[] longitude = {0, 4, 1, 3, 2};
+        RouteOptimizer optimizer = new RouteOptimizer(new double[5], longitude, free(5));
+
+        int[] order = optimizer.solve();
+
+        assertThat(order).containsExactly(0, 2, 4, 3, 1);
+        assertThat(optimizer.length(order)).isCloseTo(4 * 111.2, within(0.5));
+    }
+
+    @Test
+    void shouldKeepStartEvenWhenItIsInTheMiddle() {
+        double[] longitude = {2, 0, 1, 3, 4};
+        RouteOptimizer optimizer = new RouteOptimizer(new double[5], longitude, free(5));
+
+        int[] order = optimizer.solve();
+
+        assertThat(order[0]).isZero();
+        // Shortest open route from the middle: one side, then the other
+        assertThat(optimizer.length(order)).isCloseTo(6 * 111.2, within(0.5));
+    }
+
+    @Test
+    void shouldVisitFixedStopsInTimeOrder() {
+        // Along the equator, but stop 4 (east end) is booked before stop 1 (next to the start)
+        double[] longitude = {0, 1, 2, 3, 4};
+        long[] fixedAt = {FREE, 200, FREE, FREE, 100};
+        RouteOptimizer optimizer = new RouteOptimizer(new double[5], longitude, fixedAt);
+
+        int[] order = optimizer.solve();
+
+        assertThat(optimizer.feasible(order)).isTrue();
+        assertThat(indexOf(order, 4)).isLessThan(indexOf(order, 1));
+    }
+
+    @Test
+    void shouldRejectOrdersBreakingFixedTimesOrStart() {
+        long[] fixedAt = {FREE, 200, FREE, 100};
+        RouteOptimizer optimizer = new RouteOptimizer(new double[4], new double[] {0, 1, 2, 3}, fixedAt);
+
+        assertThat(optimizer.feasible(new int[] {0, 3, 2, 1})).isTrue();
+        assertThat(optimizer.feasible(new int[] {0, 1, 2, 3})).isFalse();
+        assertThat(optimizer.feasible(new int[] {3, 0, 2, 1})).isFalse();
+    }
+
+    @Test
+    void shouldReturnFeasiblePermutationForThousandStops() {
+        Random random = new Random(7);
+        int n = 1000;
+        double[] latitude = new double[n];
+        double[] longitude = new double[n];
+        long[] fixedAt = new long[n];
+        for (int i = 0; i < n; i++) {
+            latitude[i] = 35 + random.nextDouble() * 25;
+            longitude[i] = -10 + random.nextDouble() * 40;
+            fixedAt[i] = i % 20 == 0 ? random.nextInt(1_000_000) : FREE;
+        }
+        RouteOptimizer optimizer = new RouteOptimizer(latitude, longitude, fixedAt);
+        int[] identity = IntStream.range(0, n).toArray();
+
+        int[] order = optimizer.solve();
+
+        assertThat(Arrays.stream(order).sorted().toArray()).isEqualTo(identity);
+        assertThat(optimizer.feasible(order)).isTrue();
+        assertThat(optimizer.length(order)).isLessThan(optimizer.length(identity) / 5);
+    }
+
+    @Test
+    void shouldHandleTinyPlans() {
+        assertThat(new RouteOptimizer(new double[0], new double[0], new long[0]).solve()).isEmpty();
+        assertThat(new RouteOptimizer(new double[1], new double[1], free(1)).solve()).containsExactly(0);
+        assertThat(new RouteOptimizer(new double[2], new double[] {0, 1}, free(2)).solve()).containsExactly(0, 1);
+    }
+
+    private static long[] free(int n) {
+        long[] fixedAt = new long[n];
+        Arrays.fill(fixedAt, FREE);
+        return fixedAt;
+    }
+
+    private static int indexOf(int[] order, int stop) {
+        return IntStream.range(0, order.length).filter(p -> order[p] == stop).findFirst().orElseThrow();
+    }
+}
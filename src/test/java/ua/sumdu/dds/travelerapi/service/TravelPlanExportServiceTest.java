@@ -0,0 +1,190 @@
+package ua.sumdu.dds.travelerapi.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.flyway.FlywayAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ua.sumdu.dds.travelerapi.model.Location;
+import ua.sumdu.dds.travelerapi.model.TravelPlan;
+import ua.sumdu.dds.travelerapi.repository.LocationRepository;
+import ua.sumdu.dds.travelerapi.repository.TravelPlanRepository;
+import ua.sumdu.dds.travelerapi.sharding.ScatterGather;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * NDJSON export against PostgreSQL: the export opens its own REPEATABLE READ
+ * transaction, so the test runs without one and seeds committed rows.
+ */
+@Testcontainers
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ImportAutoConfiguration(classes = JacksonAutoConfiguration.class, exclude = FlywayAutoConfiguration.class)
+@Import({TravelPlanExportService.class, ScatterGather.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class TravelPlanExportServiceTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres =
+            new PostgreSQLContainer<>("postgres:16")
+                    .withDatabaseName("testdb")
+                    .withUsername("test")
+                    .withPassword("test");
+
+    @DynamicPropertySource
+    static void registerDatasourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @Autowired
+    private TravelPlanExportService exportService;
+
+    @Autowired
+    private TravelPlanRepository plans;
+
+    @Autowired
+    private LocationRepository locations;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @AfterEach
+    void cleanUp() {
+        jdbc.execute("TRUNCATE travel_plans CASCADE");
+    }
+
+    @Test
+    void shouldWriteOnePlanPerLineWithLocationsNestedInVisitOrder() throws Exception {
+        TravelPlan withLocations = plans.save(plan("Europe"));
+        // Inserted out of visit order: the export must not rely on insertion order.
+        locations.save(location(withLocations, "Rome", 2000));
+        locations.save(location(withLocations, "Paris", 1000));
+        locations.save(location(withLocations, "Vienna", 3000));
+        jdbc.update("INSERT INTO location_deletions (travel_plan_id, version) VALUES (?, 5)", withLocations.getId());
+
+        TravelPlan empty = plans.save(plan("Nowhere yet"));
+
+        String ndjson = export();
+
+        assertThat(ndjson).endsWith("\n");
+        List<JsonNode> lines = parseLines(ndjson);
+        assertThat(lines).hasSize(2);
+
+        // Plans come out ordered by id, which PostgreSQL compares like the UUID text.
+        List<String> ids = lines.stream().map(line -> line.get("id").asText()).toList();
+        assertThat(ids).isSorted();
+
+        Map<String, JsonNode> byId = new HashMap<>();
+        lines.forEach(line -> byId.put(line.get("id").asText(), line));
+
+        JsonNode europe = byId.get(withLocations.getId().toString());
+        assertThat(europe.get("title").asText()).isEqualTo("Europe");
+        assertThat(europe.has("plan")).isFalse();
+        assertThat(europe.get("locations").findValuesAsText("name")).containsExactly("Paris", "Rome", "Vienna");
+        assertThat(europe.get("locations").findValues("visit_order"))
+                .extracting(JsonNode::asInt)
+                .containsExactly(1000, 2000, 3000);
+        // plan 1 + three locations at 1 + deleted share 5
+        assertThat(europe.get("combined_version").asInt()).isEqualTo(9);
+
+        JsonNode nowhere = byId.get(empty.getId().toString());
+        assertThat(nowhere.get("title").asText()).isEqualTo("Nowhere yet");
+        assertThat(nowhere.get("locations").isArray()).isTrue();
+        assertThat(nowhere.get("locations")).isEmpty();
+        assertThat(nowhere.get("combined_version").asInt()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldNotMixLocationsOfNeighbouringPlans() throws Exception {
+        List<TravelPlan> saved = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            TravelPlan plan = plans.save(plan("Plan " + i));
+            // Every other plan has no locations, so empty plans sit between full ones.
+            if (i % 2 == 0) {
+                locations.save(location(plan, "Stop " + i + "b", 2000));
+                locations.save(location(plan, "Stop " + i + "a", 1000));
+            }
+            saved.add(plan);
+        }
+
+        List<JsonNode> lines = parseLines(export());
+
+        assertThat(lines).hasSize(saved.size());
+        for (JsonNode line : lines) {
+            String title = line.get("title").asText();
+            int i = Integer.parseInt(title.substring("Plan ".length()));
+            if (i % 2 == 0) {
+                assertThat(line.get("locations").findValuesAsText("name"))
+                        .containsExactly("Stop " + i + "a", "Stop " + i + "b");
+            } else {
+                assertThat(line.get("locations")).isEmpty();
+            }
+        }
+    }
+
+    @Test
+    void shouldWriteNothingWithoutPlans() {
+        assertThat(export()).isEmpty();
+    }
+
+    private String export() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.exportNdjson(out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private List<JsonNode> parseLines(String ndjson) throws Exception {
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : ndjson.split("\n")) {
+            lines.add(objectMapper.readTree(line));
+        }
+        return lines;
+    }
+
+    private TravelPlan plan(String title) {
+        return TravelPlan.builder()
+                .title(title)
+                .currency("USD")
+                .isPublic(true)
+                .version(1)
+                .build();
+    }
+
+    private Location location(TravelPlan plan, String name, int visitOrder) {
+        return Location.builder()
+                .travelPlan(plan)
+                .name(name)
+                .visitOrder(visitOrder)
+                .version(1)
+                .build();
+    }
+}
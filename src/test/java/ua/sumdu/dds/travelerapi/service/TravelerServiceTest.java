@@ -1,33 +1,71 @@
 package ua.sumdu.dds.travelerapi.service;
 
+import jakarta.persistence.EntityManager;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.mockito.junit.jupiter.MockitoExtension;
 import ua.sumdu.dds.travelerapi.dto.AttributesUpdateRequest;
+import ua.sumdu.dds.travelerapi.dto.BatchResult;
+import ua.sumdu.dds.travelerapi.dto.BulkDeleteResult;
+import ua.sumdu.dds.travelerapi.dto.CreateLocationRequest;
 import ua.sumdu.dds.travelerapi.dto.CreateTravelPlanRequest;
+import ua.sumdu.dds.travelerapi.dto.CursorPage;
+import ua.sumdu.dds.travelerapi.dto.JsonPathOperation;
+import ua.sumdu.dds.travelerapi.dto.LocationSearchRequest;
+import ua.sumdu.dds.travelerapi.dto.LocationView;
+import ua.sumdu.dds.travelerapi.dto.MapCluster;
 import ua.sumdu.dds.travelerapi.dto.MetadataUpdateRequest;
+import ua.sumdu.dds.travelerapi.dto.MoveLocationRequest;
+import ua.sumdu.dds.travelerapi.dto.NearbyLocation;
+import ua.sumdu.dds.travelerapi.dto.OptimizedRoute;
+import ua.sumdu.dds.travelerapi.dto.PageCursor;
+import ua.sumdu.dds.travelerapi.dto.TravelPlanSearchRequest;
+import ua.sumdu.dds.travelerapi.dto.TravelPlanView;
+import ua.sumdu.dds.travelerapi.dto.TravelPlanWithLocations;
+import ua.sumdu.dds.travelerapi.dto.UpdateLocationRequest;
 import ua.sumdu.dds.travelerapi.dto.UpdateTravelPlanRequest;
 import ua.sumdu.dds.travelerapi.exception.NotFoundException;
+import ua.sumdu.dds.travelerapi.exception.ValidationException;
 import ua.sumdu.dds.travelerapi.exception.VersionConflictException;
 import ua.sumdu.dds.travelerapi.model.Location;
 import ua.sumdu.dds.travelerapi.model.TravelPlan;
+import ua.sumdu.dds.travelerapi.repository.ClusterCell;
+import ua.sumdu.dds.travelerapi.repository.JsonbEditVersions;
+import ua.sumdu.dds.travelerapi.repository.LocationReadRepository;
 import ua.sumdu.dds.travelerapi.repository.LocationRepository;
+import ua.sumdu.dds.travelerapi.repository.LocationWriteRepository;
+import ua.sumdu.dds.travelerapi.repository.TravelPlanReadRepository;
 import ua.sumdu.dds.travelerapi.repository.TravelPlanRepository;
+import ua.sumdu.dds.travelerapi.repository.TravelPlanWriteRepository;
+import ua.sumdu.dds.travelerapi.sharding.ScatterGather;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -39,6 +77,36 @@ class TravelPlanServiceTest {
     @Mock
     private LocationRepository locations;
 
+    @Mock
+    private TravelPlanReadRepository planViews;
+
+    @Mock
+    private LocationReadRepository locationViews;
+
+    @Mock
+    private TravelPlanWriteRepository planWrites;
+
+    @Mock
+    private LocationWriteRepository locationWrites;
+
+    @Spy
+    private TravelPlanCache cache = new TravelPlanCache(100, Duration.ofMinutes(5));
+
+    @Spy
+    private TileClusterCache clusters = new TileClusterCache(100, Duration.ofMinutes(5));
+
+    @Spy
+    private JsonbRebase rebase = new JsonbRebase(3);
+
+    @Spy
+    private ScatterGather shards = new ScatterGather(false, Duration.ofSeconds(10));
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Spy
+    private Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
     @InjectMocks
     private TravelPlanService service;
 
@@ -84,6 +152,206 @@ class TravelPlanServiceTest {
         verify(plans).save(any(TravelPlan.class));
     }
 
+    @Test
+    void shouldCreateValidItemsAndReportInvalidOnes() {
+        CreateTravelPlanRequest blankTitle = new CreateTravelPlanRequest(
+                " ", null, null, null, null, null, null);
+        CreateTravelPlanRequest badCurrency = new CreateTravelPlanRequest(
+                "Trip", null, null, null, null, "usd", null);
+
+        BatchResult result = service.createBatch(
+                List.of(validCreateRequest(), blankTitle, badCurrency, validCreateRequest()));
+
+        assertEquals(2, result.created());
+        assertEquals(2, result.rejected());
+        assertEquals(List.of(0, 1, 2, 3), result.items().stream().map(i -> i.index()).toList());
+        assertNull(result.items().get(0).errors());
+        assertTrue(result.items().get(1).errors().get(0).startsWith("title: "));
+        assertEquals(1, result.items().get(2).errors().size());
+        verify(entityManager, times(2)).persist(any(TravelPlan.class));
+        verify(plans, never()).save(any());
+    }
+
+    @Test
+    void shouldAppendLocationBatchWithContiguousVisitOrder() {
+        UUID planId = UUID.randomUUID();
+        when(plans.findByIdForUpdate(planId)).thenReturn(Optional.of(existingPlan(planId, 3)));
+        when(locations.findMaxVisitOrder(planId)).thenReturn(7);
+
+        List<CreateLocationRequest> requests = List.of(
+                new CreateLocationRequest("A", null, null, null, null, null, null, null),
+                new CreateLocationRequest("B", null, null, null, null, null, null, null),
+                new CreateLocationRequest("C", null, null, null, null, null, null, null));
+
+        List<Location> created = service.addLocations(planId, requests);
+
+        assertEquals(List.of("A", "B", "C"), created.stream().map(Location::getName).toList());
+        assertEquals(List.of(1007, 2007, 3007), created.stream().map(Location::getVisitOrder).toList());
+        assertEquals(3, created.get(0).getTravelPlan().getVersion()); // plan row only locked
+        verifyNoInteractions(planWrites);
+        verify(entityManager, times(3)).persist(any(Location.class));
+        verify(locations, never()).findByTravelPlan_IdOrderByVisitOrderAsc(any());
+    }
+
+    @Test
+    void shouldLockPlanBeforeAppendingLocation() {
+        UUID planId = UUID.randomUUID();
+        TravelPlan plan = existingPlan(planId, 2);
+        when(plans.findByIdForUpdate(planId)).thenReturn(Optional.of(plan));
+        when(locations.findMaxVisitOrder(planId)).thenReturn(3000);
+        when(locations.save(any(Location.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        Location saved = service.addLocation(planId,
+                new CreateLocationRequest("Rome", null, null, null, null, null, null, null));
+
+        assertEquals(4000, saved.getVisitOrder());
+        assertSame(plan, saved.getTravelPlan());
+        InOrder order = inOrder(plans, locations);
+        order.verify(plans).findByIdForUpdate(planId);
+        order.verify(locations).findMaxVisitOrder(planId);
+    }
+
+    @Test
+    void shouldNotReadVisitOrdersWhenAddingLocationToMissingPlan() {
+        UUID planId = UUID.randomUUID();
+        when(plans.findByIdForUpdate(planId)).thenReturn(Optional.empty());
+
+        assertThrows(NotFoundException.class, () -> service.addLocation(planId,
+                new CreateLocationRequest("Rome", null, null, null, null, null, null, null)));
+        verify(locations, never()).findMaxVisitOrder(any());
+    }
+
+    @Test
+    void shouldMoveLocationIntoGapWithoutTouchingOthers() {
+        UUID planId = UUID.randomUUID();
+        TravelPlan plan = existingPlan(planId, 5);
+        Location moved = Location.builder().id(UUID.randomUUID()).travelPlan(plan).visitOrder(3000).version(1).build();
+        Location anchor = Location.builder().id(UUID.randomUUID()).travelPlan(plan).visitOrder(2000).version(1).build();
+
+        when(plans.findByIdForUpdate(planId)).thenReturn(Optional.of(plan));
+        when(locations.findById(moved.getId())).thenReturn(Optional.of(moved));
+        when(locations.findById(anchor.getId())).thenReturn(Optional.of(anchor));
+        when(locations.findPrevVisitOrder(planId, 2000, moved.getId())).thenReturn(1000);
+
+        Location result = service.moveLocation(planId,
+                new MoveLocationRequest(moved.getId(), anchor.getId(), null, 1));
+
+        assertEquals(1500, result.getVisitOrder());
+        assertEquals(2, result.getVersion());
+        assertEquals(5, plan.getVersion());
+        assertEquals(2000, anchor.getVisitOrder());
+        verify(locations, never()).negateVisitOrders(any());
+    }
+
+    @Test
+    void shouldRebalanceWhenNeighboursAreAdjacent() {
+        UUID planId = UUID.randomUUID();
+        TravelPlan plan = existingPlan(planId, 1);
+        Location moved = Location.builder().id(UUID.randomUUID()).travelPlan(plan).visitOrder(5).version(1).build();
+        Location anchor = Location.builder().id(UUID.randomUUID()).travelPlan(plan).visitOrder(2).version(1).build();
+
+        when(plans.findByIdForUpdate(planId)).thenReturn(Optional.of(plan));
+        when(locations.findById(moved.getId())).thenReturn(Optional.of(moved));
+        when(locations.findById(anchor.getId())).thenReturn(Optional.of(anchor));
+        when(locations.findPrevVisitOrder(planId, 2, moved.getId())).thenReturn(1);
+        when(locations.negateVisitOrders(planId)).thenAnswer(inv -> {
+            // what respaceVisitOrders leaves behind for the anchor
+            anchor.setVisitOrder(2000);
+            return 3;
+        });
+        when(locations.findPrevVisitOrder(planId, 2000, moved.getId())).thenReturn(1000);
+
+        Location result = service.moveLocation(planId,
+                new MoveLocationRequest(moved.getId(), anchor.getId(), null, null));
+
+        assertEquals(1500, result.getVisitOrder());
+        verify(locations).respaceVisitOrders(planId, TravelPlanService.VISIT_ORDER_GAP);
+    }
+
+    @Test
+    void shouldApplyOptimizedRouteToAllLocations() {
+        UUID planId = UUID.randomUUID();
+        TravelPlan plan = existingPlan(planId, 1);
+        // Along the equator: 0, 3, 1, 2 degrees east, in visit order
+        List<Location> stops = List.of(stop(plan, 0), stop(plan, 3), stop(plan, 1), stop(plan, 2));
+
+        when(plans.findByIdForUpdate(planId)).thenReturn(Optional.of(plan));
+        when(locations.findByTravelPlan_IdOrderByVisitOrderAsc(planId)).thenReturn(stops);
+
+        OptimizedRoute route = service.optimizeRoute(planId, true);
+
+        List<UUID> expected = List.of(stops.get(0).getId(), stops.get(2).getId(), stops.get(3).getId(),
+                stops.get(1).getId());
+        assertThat(route.locationIds()).isEqualTo(expected);
+        assertThat(route.distanceKm()).isLessThan(route.previousDistanceKm());
+        assertTrue(route.applied());
+        verify(locations).negateVisitOrders(planId);
+        verify(locationWrites).reorder(planId, expected, TravelPlanService.VISIT_ORDER_GAP);
+    }
+
+    @Test
+    void shouldKeepShortestCurrentRouteWithoutWriting() {
+        UUID planId = UUID.randomUUID();
+        TravelPlan plan = existingPlan(planId, 1);
+        List<Location> stops = List.of(stop(plan, 0), stop(plan, 1), stop(plan, 2));
+
+        when(plans.findByIdForUpdate(planId)).thenReturn(Optional.of(plan));
+        when(locations.findByTravelPlan_IdOrderByVisitOrderAsc(planId)).thenReturn(stops);
+
+        OptimizedRoute route = service.optimizeRoute(planId, true);
+
+        assertThat(route.locationIds()).isEqualTo(stops.stream().map(Location::getId).toList());
+        assertEquals(route.previousDistanceKm(), route.distanceKm());
+        verify(locations, never()).negateVisitOrders(any());
+        verifyNoInteractions(locationWrites);
+    }
+
+    @Test
+    void shouldRejectRouteWithUnlocatedLocation() {
+        UUID planId = UUID.randomUUID();
+        TravelPlan plan = existingPlan(planId, 1);
+        Location unlocated = Location.builder().id(UUID.randomUUID()).travelPlan(plan).visitOrder(2000).build();
+
+        when(plans.findById(planId)).thenReturn(Optional.of(plan));
+        when(locations.findByTravelPlan_IdOrderByVisitOrderAsc(planId)).thenReturn(List.of(stop(plan, 0), unlocated));
+
+        ValidationException ex = assertThrows(ValidationException.class, () -> service.optimizeRoute(planId, false));
+
+        assertEquals(List.of("location " + unlocated.getId() + " has no latitude / longitude"), ex.getErrors());
+    }
+
+    private static Location stop(TravelPlan plan, int degreesEast) {
+        return Location.builder().id(UUID.randomUUID()).travelPlan(plan)
+                .latitude(BigDecimal.ZERO).longitude(BigDecimal.valueOf(degreesEast))
+                .visitOrder(1000).version(1).build();
+    }
+
+    @Test
+    void shouldRejectWholeLocationBatchWhenOneItemIsInvalid() {
+        UUID planId = UUID.randomUUID();
+        List<CreateLocationRequest> requests = List.of(
+                new CreateLocationRequest("A", null, null, null, null, null, null, null),
+                new CreateLocationRequest("", null, null, null, null, null, null, null));
+
+        ValidationException ex = assertThrows(ValidationException.class,
+                () -> service.addLocations(planId, requests));
+
+        assertTrue(ex.getErrors().get(0).startsWith("[1] name: "));
+        verifyNoInteractions(entityManager);
+        verify(plans, never()).findByIdForUpdate(any());
+    }
+
+    @Test
+    void shouldRejectOversizedBatch() {
+        List<CreateTravelPlanRequest> requests = new ArrayList<>();
+        for (int i = 0; i <= TravelPlanService.MAX_BATCH_SIZE; i++) {
+            requests.add(validCreateRequest());
+        }
+
+        assertThrows(ValidationException.class, () -> service.createBatch(requests));
+        verifyNoInteractions(entityManager);
+    }
+
     @Test
     void shouldReturnPlanById() {
         UUID id = UUID.randomUUID();
@@ -106,9 +374,208 @@ class TravelPlanServiceTest {
     }
 
     @Test
-    void shouldUpdatePlanAndIncrementVersion() {
+    void shouldServeRepeatedReadsFromCache() {
+        UUID id = UUID.randomUUID();
+        TravelPlan plan = existingPlan(id, 1);
+
+        when(plans.findById(id)).thenReturn(Optional.of(plan));
+
+        service.getById(id);
+        service.getById(id);
+
+        verify(plans, times(1)).findById(id);
+    }
+
+    @Test
+    void shouldNotCacheMissingPlan() {
+        UUID id = UUID.randomUUID();
+
+        when(plans.findById(id)).thenReturn(Optional.empty());
+
+        assertThrows(NotFoundException.class, () -> service.getById(id));
+        assertThrows(NotFoundException.class, () -> service.getById(id));
+
+        verify(plans, times(2)).findById(id);
+    }
+
+    @Test
+    void shouldRefreshCachedPlanOnUpdate() {
+        UUID id = UUID.randomUUID();
+
+        when(plans.findById(id)).thenReturn(Optional.of(existingPlan(id, 1)));
+
+        service.getById(id); // cached at version 1
+
+        UpdateTravelPlanRequest req = new UpdateTravelPlanRequest(
+                "New title", null, null, null, null, null, null, 1
+        );
+        TravelPlan written = existingPlan(id, 2);
+        written.setTitle("New title");
+        when(planWrites.update(id, req)).thenReturn(Optional.of(written));
+
+        service.update(id, req);
+
+        TravelPlan cached = service.getById(id);
+
+        assertEquals("New title", cached.getTitle());
+        assertEquals(2, cached.getVersion());
+        verify(plans, times(1)).findById(id);
+    }
+
+    @Test
+    void shouldEvictCachedPlanOnDelete() {
+        UUID id = UUID.randomUUID();
+
+        when(plans.findById(id)).thenReturn(Optional.of(existingPlan(id, 1)));
+        when(planWrites.delete(List.of(id))).thenReturn(List.of(id));
+
+        service.getById(id);
+        service.delete(id);
+
+        when(plans.findById(id)).thenReturn(Optional.empty());
+
+        assertThrows(NotFoundException.class, () -> service.getById(id));
+    }
+
+    @Test
+    void shouldKeepNewerCachedVersion() {
+        UUID id = UUID.randomUUID();
+
+        cache.refreshPlan(existingPlan(id, 3));
+        cache.refreshPlan(existingPlan(id, 2));
+
+        TravelPlan cached = service.getById(id);
+
+        assertEquals(3, cached.getVersion());
+        verifyNoInteractions(plans);
+    }
+
+    @Test
+    void shouldDropStaleCachedPlanOnVersionProbe() {
+        UUID id = UUID.randomUUID();
+
+        cache.refreshPlan(existingPlan(id, 1));
+        when(plans.findVersionById(id)).thenReturn(Optional.of(2));
+        when(plans.findById(id)).thenReturn(Optional.of(existingPlan(id, 2)));
+
+        assertEquals(2, service.getPlanVersion(id));
+        assertEquals(2, service.getById(id).getVersion());
+    }
+
+    @Test
+    void shouldThrowNotFoundWhenProbingMissingPlan() {
+        UUID id = UUID.randomUUID();
+
+        when(plans.findVersionById(id)).thenReturn(Optional.empty());
+
+        assertThrows(NotFoundException.class, () -> service.getPlanVersion(id));
+        verify(plans, never()).findById(any());
+    }
+
+    @Test
+    void shouldRejectLocationVersionProbeFromOtherPlan() {
+        UUID planId = UUID.randomUUID();
+        UUID locationId = UUID.randomUUID();
+        UUID otherPlanId = UUID.randomUUID();
+
+        when(locations.findVersionById(locationId)).thenReturn(Optional.of(versionProbe(otherPlanId, 1)));
+
+        assertThatThrownBy(() -> service.getLocationVersion(planId, locationId))
+                .isInstanceOf(NotFoundException.class)
+                .hasMessageContaining("not found in travel plan");
+    }
+
+    @Test
+    void shouldProbeLocationVersionWithoutLoadingPlan() {
+        UUID planId = UUID.randomUUID();
+        UUID locationId = UUID.randomUUID();
+
+        when(locations.findVersionById(locationId)).thenReturn(Optional.of(versionProbe(planId, 3)));
+
+        assertEquals(3, service.getLocationVersion(planId, locationId));
+        verifyNoInteractions(plans);
+    }
+
+    @Test
+    void shouldReportMissingPlanWhenProbingLocationOfIt() {
+        UUID planId = UUID.randomUUID();
+        UUID locationId = UUID.randomUUID();
+
+        when(locations.findVersionById(locationId)).thenReturn(Optional.empty());
+        when(plans.findVersionById(planId)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> service.getLocationVersion(planId, locationId))
+                .isInstanceOf(NotFoundException.class)
+                .hasMessageContaining("Travel plan not found");
+    }
+
+    private LocationRepository.VersionProbe versionProbe(UUID planId, int version) {
+        return new LocationRepository.VersionProbe() {
+            @Override
+            public UUID getTravelPlanId() {
+                return planId;
+            }
+
+            @Override
+            public Integer getVersion() {
+                return version;
+            }
+        };
+    }
+
+    @Test
+    void shouldReturnPlanWithLocationsFromSingleQuery() {
+        UUID id = UUID.randomUUID();
+        TravelPlan plan = existingPlan(id, 1);
+        Location first = Location.builder().name("Paris").visitOrder(1).build();
+        Location second = Location.builder().name("Rome").visitOrder(2).build();
+        plan.setLocations(List.of(first, second));
+
+        when(plans.findWithLocationsById(id)).thenReturn(Optional.of(plan));
+        when(plans.findDeletedLocationsVersionById(id)).thenReturn(3);
+
+        TravelPlanWithLocations result = service.getWithLocations(id, "4");
+
+        assertEquals(id, result.plan().getId());
+        assertThat(result.locations()).containsExactly(first, second);
+        assertEquals(1 + 3, result.combinedVersion());
+        verify(plans, never()).findById(any());
+        verifyNoInteractions(locations);
+    }
+
+    @Test
+    void shouldServeCachedPlanWithLocationsWhileCombinedVersionMatches() {
         UUID id = UUID.randomUUID();
         TravelPlan plan = existingPlan(id, 1);
+        plan.setLocations(List.of(Location.builder().name("Paris").version(1).build()));
+        when(plans.findWithLocationsById(id)).thenReturn(Optional.of(plan));
+
+        TravelPlanWithLocations first = service.getWithLocations(id, "2");
+        TravelPlanWithLocations again = service.getWithLocations(id, "2");
+
+        assertSame(first, again);
+        verify(plans, times(1)).findWithLocationsById(id);
+
+        // A location changed: the probed combined version moved on
+        plan.setLocations(List.of(Location.builder().name("Paris").version(2).build()));
+        TravelPlanWithLocations changed = service.getWithLocations(id, "3");
+
+        assertEquals(3, changed.combinedVersion());
+        verify(plans, times(2)).findWithLocationsById(id);
+    }
+
+    @Test
+    void shouldThrowNotFoundWhenPlanWithLocationsMissing() {
+        UUID id = UUID.randomUUID();
+
+        when(plans.findWithLocationsById(id)).thenReturn(Optional.empty());
+
+        assertThrows(NotFoundException.class, () -> service.getWithLocations(id, "1"));
+    }
+
+    @Test
+    void shouldUpdatePlanAndIncrementVersion() {
+        UUID id = UUID.randomUUID();
 
         UpdateTravelPlanRequest req = new UpdateTravelPlanRequest(
                 "New title",
@@ -121,51 +588,345 @@ class TravelPlanServiceTest {
                 1
         );
 
-        when(plans.findById(id)).thenReturn(Optional.of(plan));
-        when(plans.save(any())).thenAnswer(inv -> inv.getArgument(0));
+        TravelPlan written = existingPlan(id, 2);
+        written.setTitle("New title");
+        written.setPublic(true);
+        when(planWrites.update(id, req)).thenReturn(Optional.of(written));
 
         TravelPlan updated = service.update(id, req);
 
         assertEquals("New title", updated.getTitle());
         assertEquals(2, updated.getVersion());
+        verify(plans, never()).findById(any());
+        verify(plans, never()).save(any());
     }
 
     @Test
     void shouldThrowVersionConflictOnUpdate() {
         UUID id = UUID.randomUUID();
-        TravelPlan plan = existingPlan(id, 2);
 
         UpdateTravelPlanRequest req = new UpdateTravelPlanRequest(
                 null, null, null, null, null, null, null, 1
         );
 
-        when(plans.findById(id)).thenReturn(Optional.of(plan));
+        when(planWrites.update(id, req)).thenReturn(Optional.empty());
+        when(plans.findVersionById(id)).thenReturn(Optional.of(2));
 
-        assertThrows(VersionConflictException.class,
+        VersionConflictException ex = assertThrows(VersionConflictException.class,
                 () -> service.update(id, req));
+        assertEquals(2, ex.getCurrentVersion());
+    }
+
+    @Test
+    void shouldThrowNotFoundWhenUpdatingMissingPlan() {
+        UUID id = UUID.randomUUID();
+
+        UpdateTravelPlanRequest req = new UpdateTravelPlanRequest(
+                null, null, null, null, null, null, null, 1
+        );
+
+        when(planWrites.update(id, req)).thenReturn(Optional.empty());
+        when(plans.findVersionById(id)).thenReturn(Optional.empty());
+
+        assertThrows(NotFoundException.class, () -> service.update(id, req));
+    }
+
+    @Test
+    void shouldMapDateCheckViolationOnUpdate() {
+        UUID id = UUID.randomUUID();
+
+        UpdateTravelPlanRequest req = new UpdateTravelPlanRequest(
+                null, null, null, LocalDate.now().minusDays(1), null, null, null, 1
+        );
+
+        when(planWrites.update(id, req)).thenThrow(new DataIntegrityViolationException(
+                "new row for relation \"travel_plans\" violates check constraint \"check_dates\""));
+
+        assertThatThrownBy(() -> service.update(id, req))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("end_date must be after or equal to start_date");
     }
 
     @Test
     void shouldDeletePlan() {
         UUID id = UUID.randomUUID();
 
-        when(plans.existsById(id)).thenReturn(true);
+        when(planWrites.delete(List.of(id))).thenReturn(List.of(id));
 
         service.delete(id);
 
-        verify(plans).deleteById(id);
+        // one DELETE ... RETURNING, locations go by ON DELETE CASCADE
+        verify(planWrites).delete(List.of(id));
+        verify(plans, never()).deleteById(any());
+        verifyNoInteractions(locations);
     }
 
     @Test
     void shouldThrowWhenDeletingMissingPlan() {
         UUID id = UUID.randomUUID();
 
-        when(plans.existsById(id)).thenReturn(false);
+        when(planWrites.delete(List.of(id))).thenReturn(List.of());
 
         assertThrows(NotFoundException.class,
                 () -> service.delete(id));
     }
 
+    @Test
+    void shouldDeleteBatchAndReportMissingIds() {
+        UUID first = UUID.randomUUID();
+        UUID missing = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+
+        cache.refreshPlan(existingPlan(first, 1));
+        when(planWrites.delete(any())).thenReturn(List.of(second, first));
+
+        BulkDeleteResult result = service.deleteBatch(List.of(first, missing, second, first));
+
+        // duplicates are sent once, results keep request order
+        verify(planWrites).delete(Set.of(first, missing, second));
+        assertThat(result.deleted()).containsExactly(first, second);
+        assertThat(result.notFound()).containsExactly(missing);
+
+        when(plans.findById(first)).thenReturn(Optional.empty());
+        assertThrows(NotFoundException.class, () -> service.getById(first));
+    }
+
+    @Test
+    void shouldRejectEmptyDeleteBatch() {
+        assertThrows(ValidationException.class, () -> service.deleteBatch(List.of()));
+        verifyNoInteractions(planWrites);
+    }
+
+    @Test
+    void shouldReturnNextCursorWhenMorePlansExist() {
+        TravelPlan first = existingPlan(UUID.randomUUID(), 1);
+        first.setCreatedAt(OffsetDateTime.parse("2025-01-01T10:00:00Z"));
+        TravelPlan second = existingPlan(UUID.randomUUID(), 1);
+        second.setCreatedAt(OffsetDateTime.parse("2025-01-01T11:00:00Z"));
+
+        when(plans.findFirstPage(2)).thenReturn(new ArrayList<>(List.of(first, second)));
+
+        CursorPage<TravelPlan> page = service.listPage(null, 1);
+
+        assertThat(page.items()).containsExactly(first);
+        PageCursor cursor = PageCursor.decode(page.nextCursor());
+        assertEquals(first.getId(), cursor.id());
+        assertEquals(first.getCreatedAt().toString(), cursor.sortKey());
+    }
+
+    @Test
+    void shouldContinueAfterCursorAndStopOnLastPage() {
+        TravelPlan last = existingPlan(UUID.randomUUID(), 1);
+        OffsetDateTime createdAt = OffsetDateTime.parse("2025-01-01T10:00:00Z");
+        UUID afterId = UUID.randomUUID();
+        String cursor = new PageCursor(createdAt.toString(), afterId).encode();
+
+        when(plans.findPageAfter(createdAt, afterId, 11)).thenReturn(List.of(last));
+
+        CursorPage<TravelPlan> page = service.listPage(cursor, 10);
+
+        assertThat(page.items()).containsExactly(last);
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    void shouldRejectMalformedCursor() {
+        assertThrows(IllegalArgumentException.class,
+                () -> service.listPage("not-a-cursor", 10));
+    }
+
+    @Test
+    void shouldSearchPlansWithAllCriteriaInOneQueryAndPage() {
+        OffsetDateTime createdAt = OffsetDateTime.parse("2025-01-01T10:00:00Z");
+        TravelPlanView first = planView(UUID.randomUUID(), createdAt);
+        TravelPlanView second = planView(UUID.randomUUID(), createdAt.plusHours(1));
+        TravelPlanSearchRequest sent = new TravelPlanSearchRequest(
+                "adventure", null, "fast", List.of("europe", " ", "europe"), true, false);
+        TravelPlanSearchRequest expected = new TravelPlanSearchRequest(
+                "adventure", null, "fast", List.of("europe"), true, false);
+
+        when(planViews.search(expected, null, null, 2)).thenReturn(List.of(first, second));
+
+        CursorPage<TravelPlanView> page = service.searchPlans(sent, null, 1);
+
+        assertThat(page.items()).containsExactly(first);
+        PageCursor cursor = PageCursor.decode(page.nextCursor());
+        assertEquals(first.id(), cursor.id());
+    }
+
+    @Test
+    void shouldSearchLocationsBestRatedFirstAndResumeFromCursor() {
+        LocationView first = locationView(UUID.randomUUID(), 4.9);
+        LocationView second = locationView(UUID.randomUUID(), 4.5);
+        LocationSearchRequest sent = new LocationSearchRequest(
+                "museum", new BigDecimal("4.0"), List.of("art", "", "art"), "wheelchair", null);
+        LocationSearchRequest expected = new LocationSearchRequest(
+                "museum", new BigDecimal("4.0"), List.of("art"), "wheelchair", null);
+
+        when(locationViews.search(expected, null, null, 2)).thenReturn(List.of(first, second));
+
+        CursorPage<LocationView> page = service.searchLocations(sent, null, 1);
+
+        assertThat(page.items()).containsExactly(first);
+        PageCursor cursor = PageCursor.decode(page.nextCursor());
+        assertEquals("4.9", cursor.sortKey());
+        assertEquals(first.id(), cursor.id());
+
+        when(locationViews.search(expected, new BigDecimal("4.9"), first.id(), 2)).thenReturn(List.of(second));
+
+        CursorPage<LocationView> next = service.searchLocations(sent, page.nextCursor(), 1);
+
+        assertThat(next.items()).containsExactly(second);
+        assertNull(next.nextCursor());
+    }
+
+    @Test
+    void shouldRejectLocationSearchWithTooManyTags() {
+        List<String> tags = new ArrayList<>();
+        for (int i = 0; i <= TravelPlanService.MAX_SEARCH_TAGS; i++) {
+            tags.add("tag" + i);
+        }
+        LocationSearchRequest request = new LocationSearchRequest(null, null, tags, null, null);
+
+        assertThrows(ValidationException.class, () -> service.searchLocations(request, null, 10));
+        verifyNoInteractions(locationViews);
+    }
+
+    @Test
+    void shouldReturnNearbyLocationsWithinRadiusNearestFirst() {
+        LocationView far = locatedView(48.90, 2.35);   // ~4.8 km north
+        LocationView near = locatedView(48.86, 2.36);  // ~0.7 km
+        LocationView outside = locatedView(48.86, 2.44); // ~6.4 km east
+
+        when(locationViews.findNearest(eq(48.8566), eq(2.3522), anyDouble(), anyDouble(), anyDouble(),
+                anyDouble(), eq(8))).thenReturn(List.of(far, outside, near));
+
+        List<NearbyLocation> result = service.findNearbyLocations(48.8566, 2.3522, 6, 2);
+
+        assertThat(result).extracting(NearbyLocation::location).containsExactly(near, far);
+        assertThat(result.get(0).distanceKm()).isBetween(0.5, 1.0);
+    }
+
+    @Test
+    void shouldFetchMoreCandidatesUntilNearestIsCertain() {
+        // At 60 degrees north a degree of longitude is half a degree of latitude:
+        // the four planar-nearest rows (0.1 deg north, ~11 km) are farther than
+        // the row 0.15 deg east (~8 km), which the index ranks fifth
+        List<LocationView> north = List.of(locatedView(60.1, 0), locatedView(60.1, 0.01),
+                locatedView(60.1, -0.01), locatedView(60.1, 0.02));
+        LocationView east = locatedView(60, 0.15);
+        List<LocationView> more = new ArrayList<>(north);
+        more.add(east);
+
+        when(locationViews.findNearest(eq(60.0), eq(0.0), anyDouble(), anyDouble(), anyDouble(),
+                anyDouble(), eq(4))).thenReturn(north);
+        when(locationViews.findNearest(eq(60.0), eq(0.0), anyDouble(), anyDouble(), anyDouble(),
+                anyDouble(), eq(16))).thenReturn(more);
+
+        List<NearbyLocation> result = service.findNearbyLocations(60, 0, 50, 1);
+
+        assertThat(result).extracting(NearbyLocation::location).containsExactly(east);
+        assertThat(result.get(0).distanceKm()).isBetween(8.0, 9.0);
+    }
+
+    @Test
+    void shouldNotRefetchWhenPlanarCutOffCoversNearest() {
+        List<LocationView> candidates = List.of(locatedView(48.86, 2.36), locatedView(48.9, 2.35),
+                locatedView(48.95, 2.35), locatedView(49.0, 2.35));
+        when(locationViews.findNearest(eq(48.8566), eq(2.3522), anyDouble(), anyDouble(), anyDouble(),
+                anyDouble(), eq(4))).thenReturn(candidates);
+
+        List<NearbyLocation> result = service.findNearbyLocations(48.8566, 2.3522, 50, 1);
+
+        assertThat(result).extracting(NearbyLocation::location).containsExactly(candidates.get(0));
+        verify(locationViews, times(1)).findNearest(anyDouble(), anyDouble(), anyDouble(), anyDouble(),
+                anyDouble(), anyDouble(), anyInt());
+    }
+
+    @Test
+    void shouldRejectInvalidNearbySearch() {
+        ValidationException error = assertThrows(ValidationException.class,
+                () -> service.findNearbyLocations(91, 181, 0, 10));
+
+        assertEquals(3, error.getErrors().size());
+        verifyNoInteractions(locationViews);
+    }
+
+    @Test
+    void shouldComputeGreatCircleDistance() {
+        // Paris - London
+        assertEquals(343.5, TravelPlanService.distanceKm(48.8566, 2.3522, 51.5074, -0.1278), 1.0);
+    }
+
+    @Test
+    void shouldClusterTilesAndServeThemFromCache() {
+        // zoom 1: tiles are 180 x 90 degrees, cells at level 4 are 22.5 x 11.25 degrees
+        when(locationViews.clusterCells(4, -90.0, -180.0, 90.0, 0.0, null, "museum")).thenReturn(List.of(
+                new ClusterCell(7, 12, 3, 48.85, -2.65),
+                new ClusterCell(1, 2, 1, -65.0, -150.0)));
+
+        List<MapCluster> first = service.findClusters(1, -60, -170, 50, -10, null, "museum");
+        List<MapCluster> second = service.findClusters(1, -60, -170, 50, -10, null, "museum");
+
+        assertThat(first).containsExactly(new MapCluster(-65.0, -150.0, 1), new MapCluster(48.85, -2.65, 3));
+        assertThat(second).isEqualTo(first);
+        verify(locationViews, times(1)).clusterCells(anyInt(), anyDouble(), anyDouble(), anyDouble(),
+                anyDouble(), any(), any());
+    }
+
+    @Test
+    void shouldReloadClusterTileAfterLocationInsideItChanges() {
+        when(locationViews.clusterCells(anyInt(), anyDouble(), anyDouble(), anyDouble(), anyDouble(),
+                any(), any())).thenReturn(List.of());
+
+        service.findClusters(3, 40, 0, 50, 10, null, null);
+        clusters.evict(BigDecimal.valueOf(-30), BigDecimal.valueOf(100)); // another tile
+        service.findClusters(3, 40, 0, 50, 10, null, null);
+        clusters.evict(BigDecimal.valueOf(45), BigDecimal.valueOf(5));
+        service.findClusters(3, 40, 0, 50, 10, null, null);
+
+        verify(locationViews, times(2)).clusterCells(anyInt(), anyDouble(), anyDouble(), anyDouble(),
+                anyDouble(), any(), any());
+    }
+
+    @Test
+    void shouldMergeClusterCellsOfAllShards() {
+        ScatterGather sharded = spy(new ScatterGather(false, Duration.ofSeconds(10)));
+        doReturn(List.of(
+                new ClusterCell(0, 0, 1, -80.0, -170.0),
+                new ClusterCell(0, 0, 3, -84.0, -174.0))).when(sharded).all(any());
+        TravelPlanService shardedService = new TravelPlanService(plans, locations, cache, clusters, planViews,
+                locationViews, planWrites, locationWrites, rebase, sharded, entityManager, validator);
+
+        List<MapCluster> result = shardedService.findClusters(0, -90, -180, 90, 180, null, null);
+
+        assertThat(result).containsExactly(new MapCluster(-83.0, -173.0, 4));
+    }
+
+    @Test
+    void shouldRejectClusterBoxCoveringTooManyTiles() {
+        assertThrows(ValidationException.class, () -> service.findClusters(10, -10, -10, 10, 10, null, null));
+        assertThrows(ValidationException.class, () -> service.findClusters(21, 0, 0, 1, 1, null, null));
+        assertThrows(ValidationException.class, () -> service.findClusters(3, 10, 0, -10, 1, null, null));
+        verifyNoInteractions(locationViews);
+    }
+
+    private static LocationView locatedView(double lat, double lon) {
+        return new LocationView(UUID.randomUUID(), UUID.randomUUID(), "Location", null,
+                BigDecimal.valueOf(lat), BigDecimal.valueOf(lon), 1000, null, null, null, null, Map.of(), 1,
+                OffsetDateTime.parse("2025-01-01T10:00:00Z"));
+    }
+
+    private static LocationView locationView(UUID id, double rating) {
+        return new LocationView(id, UUID.randomUUID(), "Location", null, null, null, 1000, null, null,
+                null, null, Map.of("rating", rating), 1, OffsetDateTime.parse("2025-01-01T10:00:00Z"));
+    }
+
+    private static TravelPlanView planView(UUID id, OffsetDateTime createdAt) {
+        return new TravelPlanView(id, 1, "Plan", null, null, null, BigDecimal.ZERO, "USD",
+                true, Map.of(), createdAt, createdAt);
+    }
+
     /* ============================================
        NEW JSONB TESTS (Metadata & Attributes)
        ============================================ */
@@ -208,34 +969,39 @@ class TravelPlanServiceTest {
 
     @Test
     void shouldUpdateMetadataWithMerge() {
-        // Given: existing plan with metadata
-        when(plans.findById(planId)).thenReturn(Optional.of(testPlan));
-        when(plans.save(any(TravelPlan.class))).thenAnswer(i -> i.getArgument(0));
-
+        // Given: the merged row returned by the database
         Map<String, Object> newMetadata = new HashMap<>();
         newMetadata.put("tags", java.util.List.of("updated"));
         MetadataUpdateRequest request = new MetadataUpdateRequest(1, newMetadata, true);
 
+        Map<String, Object> merged = new HashMap<>(testPlan.getMetadata());
+        merged.putAll(newMetadata);
+        testPlan.setMetadata(merged);
+        testPlan.setVersion(2);
+        when(planWrites.mergeMetadata(planId, 1, newMetadata)).thenReturn(Optional.of(testPlan));
+
         // When: update with merge
         TravelPlan result = service.updateMetadata(planId, request);
 
-        // Then: metadata is merged
+        // Then: metadata is merged in SQL, without loading the plan
         assertThat(result.getMetadata()).containsKey("preferences"); // preserved
         assertThat(result.getMetadata()).containsKey("tags"); // updated
         assertThat(result.getVersion()).isEqualTo(2);
-        verify(plans).save(testPlan);
+        verify(planWrites, never()).replaceMetadata(any(), anyInt(), any());
+        verify(plans, never()).findById(any());
     }
 
     @Test
     void shouldUpdateMetadataWithReplace() {
-        // Given: existing plan with metadata
-        when(plans.findById(planId)).thenReturn(Optional.of(testPlan));
-        when(plans.save(any(TravelPlan.class))).thenAnswer(i -> i.getArgument(0));
-
+        // Given: the replaced row returned by the database
         Map<String, Object> newMetadata = new HashMap<>();
         newMetadata.put("new_key", "new_value");
         MetadataUpdateRequest request = new MetadataUpdateRequest(1, newMetadata, false);
 
+        testPlan.setMetadata(new HashMap<>(newMetadata));
+        testPlan.setVersion(2);
+        when(planWrites.replaceMetadata(planId, 1, newMetadata)).thenReturn(Optional.of(testPlan));
+
         // When: update with replace
         TravelPlan result = service.updateMetadata(planId, request);
 
@@ -248,8 +1014,10 @@ class TravelPlanServiceTest {
 
     @Test
     void shouldThrowVersionConflictOnMetadataUpdate() {
-        // Given: plan with version 1
-        when(plans.findById(planId)).thenReturn(Optional.of(testPlan));
+        // Given: plan with version 1, so the conditional update matches no row
+        when(planWrites.mergeMetadata(eq(planId), eq(999), any())).thenReturn(Optional.empty());
+        when(planWrites.findMetadataVersions(planId))
+                .thenReturn(Optional.of(new JsonbEditVersions(1, 0, Map.of())));
 
         MetadataUpdateRequest request = new MetadataUpdateRequest(
                 999, // wrong version
@@ -260,8 +1028,50 @@ class TravelPlanServiceTest {
         // When/Then: throws VersionConflictException
         assertThatThrownBy(() -> service.updateMetadata(planId, request))
                 .isInstanceOf(VersionConflictException.class);
+    }
 
-        verify(plans, never()).save(any());
+    @Test
+    void shouldRebaseStaleMergeOfUnchangedKeys() {
+        // Given: version 3 only changed "budget_notes" since the client's version 2
+        Map<String, Object> patch = Map.of("tags", List.of("beach"));
+        when(planWrites.mergeMetadata(planId, 2, patch)).thenReturn(Optional.empty());
+        when(planWrites.findMetadataVersions(planId))
+                .thenReturn(Optional.of(new JsonbEditVersions(3, 0, Map.of("budget_notes", 3))));
+        testPlan.setVersion(4);
+        when(planWrites.mergeMetadata(planId, 3, patch)).thenReturn(Optional.of(testPlan));
+
+        // When: merge against the stale version
+        TravelPlan result = service.updateMetadata(planId, new MetadataUpdateRequest(2, patch, true));
+
+        // Then: applied on top of version 3
+        assertThat(result.getVersion()).isEqualTo(4);
+        verify(plans, never()).findVersionById(any());
+    }
+
+    @Test
+    void shouldNotRebaseStaleMergeOfChangedKey() {
+        // Given: "tags" itself changed in version 3
+        Map<String, Object> patch = Map.of("tags", List.of("beach"));
+        when(planWrites.mergeMetadata(planId, 2, patch)).thenReturn(Optional.empty());
+        when(planWrites.findMetadataVersions(planId))
+                .thenReturn(Optional.of(new JsonbEditVersions(3, 0, Map.of("tags", 3))));
+
+        // When/Then: a real conflict
+        assertThatThrownBy(() -> service.updateMetadata(planId, new MetadataUpdateRequest(2, patch, true)))
+                .isInstanceOf(VersionConflictException.class)
+                .satisfies(e -> assertThat(((VersionConflictException) e).getCurrentVersion()).isEqualTo(3));
+        verify(planWrites, never()).mergeMetadata(planId, 3, patch);
+    }
+
+    @Test
+    void shouldNotRebaseStaleReplace() {
+        Map<String, Object> metadata = Map.of("tags", List.of("beach"));
+        when(planWrites.replaceMetadata(planId, 2, metadata)).thenReturn(Optional.empty());
+        when(plans.findVersionById(planId)).thenReturn(Optional.of(3));
+
+        assertThatThrownBy(() -> service.updateMetadata(planId, new MetadataUpdateRequest(2, metadata, false)))
+                .isInstanceOf(VersionConflictException.class);
+        verify(planWrites, never()).findMetadataVersions(any());
     }
 
     @Test
@@ -292,9 +1102,10 @@ class TravelPlanServiceTest {
 
     @Test
     void shouldDeleteMetadataKey() {
-        // Given: plan with metadata
-        when(plans.findById(planId)).thenReturn(Optional.of(testPlan));
-        when(plans.save(any(TravelPlan.class))).thenAnswer(i -> i.getArgument(0));
+        // Given: the row returned by the database after metadata - 'tags'
+        testPlan.getMetadata().remove("tags");
+        testPlan.setVersion(2);
+        when(planWrites.deleteMetadataKey(planId, 1, "tags")).thenReturn(Optional.of(testPlan));
 
         // When: delete key
         TravelPlan result = service.deleteMetadataKey(planId, "tags", 1);
@@ -305,40 +1116,71 @@ class TravelPlanServiceTest {
         assertThat(result.getVersion()).isEqualTo(2);
     }
 
+    @Test
+    void shouldDeepMergeMetadataInDatabase() {
+        Map<String, Object> patch = Map.of("preferences", Map.of("pace", "fast"));
+        testPlan.setVersion(2);
+        when(planWrites.mergePatchMetadata(planId, 1, patch)).thenReturn(Optional.of(testPlan));
+
+        TravelPlan result = service.mergePatchMetadata(planId, patch, 1);
+
+        assertThat(result.getVersion()).isEqualTo(2);
+        verify(plans, never()).findById(any());
+    }
+
+    @Test
+    void shouldRejectInvalidPathOperationsBeforeWriting() {
+        List<JsonPathOperation> operations = List.of(
+                new JsonPathOperation("set", "/preferences/pace", "fast"),
+                new JsonPathOperation("move", "preferences", null)
+        );
+
+        assertThatThrownBy(() -> service.patchMetadata(planId, operations, 1))
+                .isInstanceOf(ValidationException.class)
+                .satisfies(e -> assertThat(((ValidationException) e).getErrors())
+                        .allMatch(error -> error.startsWith("[1] "))
+                        .hasSize(2));
+
+        verifyNoInteractions(planWrites);
+    }
+
     /* -------- Attributes Tests -------- */
 
     @Test
     void shouldUpdateLocationAttributesWithMerge() {
-        // Given: existing location with attributes
-        when(plans.findById(planId)).thenReturn(Optional.of(testPlan));
-        when(locations.findById(locationId)).thenReturn(Optional.of(testLocation));
-        when(locations.save(any(Location.class))).thenAnswer(i -> i.getArgument(0));
-
+        // Given: the merged row returned by the database
         Map<String, Object> newAttributes = new HashMap<>();
         newAttributes.put("rating", 4.9);
         AttributesUpdateRequest request = new AttributesUpdateRequest(1, newAttributes, true);
 
+        testLocation.getAttributes().putAll(newAttributes);
+        testLocation.setVersion(2);
+        when(locationWrites.mergeAttributes(planId, locationId, 1, newAttributes))
+                .thenReturn(Optional.of(testLocation));
+
         // When: update with merge
         Location result = service.updateLocationAttributes(planId, locationId, request);
 
-        // Then: attributes are merged
+        // Then: attributes are merged in SQL, without loading plan or location
         assertThat(result.getAttributes()).containsKey("category"); // preserved
         assertThat(result.getAttributes().get("rating")).isEqualTo(4.9); // updated
         assertThat(result.getVersion()).isEqualTo(2);
-        verify(locations).save(testLocation);
+        verify(locationWrites, never()).replaceAttributes(any(), any(), anyInt(), any());
+        verify(locations, never()).findById(any());
     }
 
     @Test
     void shouldUpdateLocationAttributesWithReplace() {
-        // Given: existing location with attributes
-        when(plans.findById(planId)).thenReturn(Optional.of(testPlan));
-        when(locations.findById(locationId)).thenReturn(Optional.of(testLocation));
-        when(locations.save(any(Location.class))).thenAnswer(i -> i.getArgument(0));
-
+        // Given: the replaced row returned by the database
         Map<String, Object> newAttributes = new HashMap<>();
         newAttributes.put("new_field", "new_value");
         AttributesUpdateRequest request = new AttributesUpdateRequest(1, newAttributes, false);
 
+        testLocation.setAttributes(new HashMap<>(newAttributes));
+        testLocation.setVersion(2);
+        when(locationWrites.replaceAttributes(planId, locationId, 1, newAttributes))
+                .thenReturn(Optional.of(testLocation));
+
         // When: update with replace
         Location result = service.updateLocationAttributes(planId, locationId, request);
 
@@ -351,9 +1193,11 @@ class TravelPlanServiceTest {
 
     @Test
     void shouldThrowVersionConflictOnAttributesUpdate() {
-        // Given: location with version 1
-        when(plans.findById(planId)).thenReturn(Optional.of(testPlan));
-        when(locations.findById(locationId)).thenReturn(Optional.of(testLocation));
+        // Given: location with version 1, so the conditional update matches no row
+        when(locationWrites.mergeAttributes(eq(planId), eq(locationId), eq(999), any()))
+                .thenReturn(Optional.empty());
+        when(locationWrites.findAttributeVersions(planId, locationId))
+                .thenReturn(Optional.of(new JsonbEditVersions(1, 0, Map.of())));
 
         AttributesUpdateRequest request = new AttributesUpdateRequest(
                 999, // wrong version
@@ -364,23 +1208,30 @@ class TravelPlanServiceTest {
         // When/Then: throws VersionConflictException
         assertThatThrownBy(() -> service.updateLocationAttributes(planId, locationId, request))
                 .isInstanceOf(VersionConflictException.class);
+    }
+
+    @Test
+    void shouldRebaseStaleAttributeKeyDelete() {
+        // Given: only "rating" changed since the client's version 1
+        when(locationWrites.deleteAttributeKey(planId, locationId, 1, "category")).thenReturn(Optional.empty());
+        when(locationWrites.findAttributeVersions(planId, locationId))
+                .thenReturn(Optional.of(new JsonbEditVersions(2, 0, Map.of("rating", 2))));
+        testLocation.setVersion(3);
+        when(locationWrites.deleteAttributeKey(planId, locationId, 2, "category"))
+                .thenReturn(Optional.of(testLocation));
 
-        verify(locations, never()).save(any());
+        Location result = service.deleteLocationAttributeKey(planId, locationId, "category", 1);
+
+        assertThat(result.getVersion()).isEqualTo(3);
     }
 
     @Test
     void shouldThrowNotFoundWhenLocationNotInPlan() {
-        // Given: location belongs to different plan
-        TravelPlan otherPlan = TravelPlan.builder()
-                .id(UUID.randomUUID())
-                .title("Other Plan")
-                .version(1)
-                .metadata(new HashMap<>())
-                .build();
-        testLocation.setTravelPlan(otherPlan);
-
-        when(plans.findById(planId)).thenReturn(Optional.of(testPlan));
-        when(locations.findById(locationId)).thenReturn(Optional.of(testLocation));
+        // Given: location belongs to different plan, so the update matches no row
+        when(locationWrites.mergeAttributes(eq(planId), eq(locationId), eq(1), any()))
+                .thenReturn(Optional.empty());
+        when(locations.findVersionById(locationId))
+                .thenReturn(Optional.of(versionProbe(UUID.randomUUID(), 1)));
 
         AttributesUpdateRequest request = new AttributesUpdateRequest(1, Map.of("key", "value"), true);
 
@@ -420,10 +1271,11 @@ class TravelPlanServiceTest {
 
     @Test
     void shouldDeleteLocationAttributeKey() {
-        // Given: location with attributes
-        when(plans.findById(planId)).thenReturn(Optional.of(testPlan));
-        when(locations.findById(locationId)).thenReturn(Optional.of(testLocation));
-        when(locations.save(any(Location.class))).thenAnswer(i -> i.getArgument(0));
+        // Given: the row returned by the database after attributes - 'category'
+        testLocation.getAttributes().remove("category");
+        testLocation.setVersion(2);
+        when(locationWrites.deleteAttributeKey(planId, locationId, 1, "category"))
+                .thenReturn(Optional.of(testLocation));
 
         // When: delete key
         Location result = service.deleteLocationAttributeKey(planId, locationId, "category", 1);
@@ -432,6 +1284,43 @@ class TravelPlanServiceTest {
         assertThat(result.getAttributes()).containsKey("rating");
         assertThat(result.getAttributes()).doesNotContainKey("category");
         assertThat(result.getVersion()).isEqualTo(2);
-        assertThat(testPlan.getVersion()).isEqualTo(2); // parent version also incremented
+        verify(cache, never()).evictPlan(any()); // the plan row is not written
+    }
+
+    @Test
+    void shouldDeleteLocationWithoutWritingPlanRow() {
+        Location location = Location.builder().id(locationId).travelPlan(testPlan).version(4).build();
+        when(plans.findById(planId)).thenReturn(Optional.of(testPlan));
+        when(locations.findById(locationId)).thenReturn(Optional.of(location));
+
+        service.deleteLocation(planId, locationId);
+
+        verify(locations).delete(location);
+        verify(planWrites).recordLocationDeleted(planId, 4);
+        assertThat(testPlan.getVersion()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldCountDeletedLocationsInCombinedVersion() {
+        Location first = Location.builder().version(2).build();
+        Location second = Location.builder().version(1).build();
+
+        // one deleted location of version 4
+        TravelPlanWithLocations result = TravelPlanWithLocations.of(testPlan, List.of(first, second), 5);
+
+        assertThat(result.combinedVersion()).isEqualTo(testPlan.getVersion() + 5 + 3);
+    }
+
+    @Test
+    void shouldThrowNotFoundWhenUpdatingMissingLocation() {
+        UpdateLocationRequest request = new UpdateLocationRequest(
+                "New name", null, null, null, null, null, null, null, 1);
+        when(locationWrites.update(planId, locationId, request)).thenReturn(Optional.empty());
+        when(locations.findVersionById(locationId)).thenReturn(Optional.empty());
+        when(plans.findVersionById(planId)).thenReturn(Optional.of(1));
+
+        assertThatThrownBy(() -> service.updateLocation(planId, locationId, request))
+                .isInstanceOf(NotFoundException.class)
+                .hasMessage("Location not found");
     }
 }
\ No newline at end of file
@@ -0,0 +1,56 @@
+package ua.sumdu.dds.travelerapi.sharding;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ScatterGatherTest {
+
+    @Test
+    void shouldMergeSortedPartsInOrder() {
+        List<List<Integer>> parts = List.of(
+                List.of(9, 5, 1),
+                List.of(),
+                List.of(8, 7, 2),
+                List.of(6));
+
+        List<Integer> merged = ScatterGather.merge(parts, Comparator.reverseOrder(), null);
+
+        assertEquals(List.of(9, 8, 7, 6, 5, 2, 1), merged);
+    }
+
+    @Test
+    void shouldStopAtLimit() {
+        List<List<Integer>> parts = List.of(
+                List.of(1, 4, 7),
+                List.of(2, 5, 8),
+                List.of(3, 6, 9));
+
+        List<Integer> merged = ScatterGather.merge(parts, Comparator.naturalOrder(), 4);
+
+        assertEquals(List.of(1, 2, 3, 4), merged);
+    }
+
+    @Test
+    void shouldRunOnCallingThreadWithoutSharding() {
+        ScatterGather shards = new ScatterGather(false, Duration.ofSeconds(1));
+
+        assertEquals(List.of(3, 2), shards.merged(() -> List.of(3, 2, 1), Comparator.reverseOrder(), 2));
+        assertEquals(List.of("a"), shards.all(() -> List.of("a")));
+    }
+
+    @Test
+    void shouldRunEachPartOnceWithoutSharding() {
+        ScatterGather shards = new ScatterGather(false, Duration.ofSeconds(1));
+        List<String> bound = new ArrayList<>();
+
+        shards.each(() -> bound.add(String.valueOf(ShardContext.current())));
+
+        assertEquals(List.of("null"), bound);
+    }
+}
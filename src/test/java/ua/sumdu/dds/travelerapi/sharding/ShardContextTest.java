@@ -0,0 +1,50 @@
+package ua.sumdu.dds.travelerapi.sharding;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardContextTest {
+
+    @AfterEach
+    void tearDown() {
+        ShardContext.restore(null);
+    }
+
+    @Test
+    void shouldRouteAssignedIdToBoundShard() {
+        for (int i = 0; i < 16; i++) {
+            String hexKey = Integer.toHexString(i);
+            ShardContext.bind(hexKey);
+
+            UUID random = UUID.randomUUID();
+            UUID id = ShardContext.assignTo(random);
+
+            assertEquals(hexKey, ShardRouter.shardKey(id));
+            assertEquals(random.version(), id.version());
+            assertEquals(random.variant(), id.variant());
+        }
+    }
+
+    @Test
+    void shouldLeaveIdUnchangedWhenNoShardBound() {
+        UUID id = UUID.randomUUID();
+
+        assertSame(id, ShardContext.assignTo(id));
+    }
+
+    @Test
+    void shouldRestorePreviousBinding() {
+        String outer = ShardContext.bind("3");
+        String inner = ShardContext.bind("a");
+
+        assertEquals("a", ShardContext.current());
+        ShardContext.restore(inner);
+        assertEquals("3", ShardContext.current());
+        ShardContext.restore(outer);
+        assertNull(ShardContext.current());
+    }
+}
@@ -0,0 +1,92 @@
+/**
+ * ============================================================================
+ * BATCH INSERT BENCHMARK
+ * ============================================================================
+ *
+ * МЕТА:
+ * Порівняти швидкість вставки планів по одному (POST /api/travel-plans)
+ * та пакетами (POST /api/travel-plans/batch, JDBC batch inserts).
+ *
+ * ХІД ВИКОНАННЯ ТЕСТУ:
+ * 1. single: 1 VU створює PLANS планів по одному запиту
+ * 2. batch:  той самий VU створює стільки ж планів пакетами по BATCH_SIZE
+ * 3. handleSummary: друкує плани/с для кожного режиму та їх співвідношення
+ *
+ * ЗАПУСК:
+ *   k6 run performance-tests/batch-insert-test.js
+ *   k6 run -e PLANS=20000 -e BATCH_SIZE=1000 performance-tests/batch-insert-test.js
+ *
+ * Очікування: batch щонайменше в 10 разів швидший за single.
+ *
+ * ============================================================================
+ */
+
+import http from 'k6/http';
+import { check } from 'k6';
+import { Counter, Trend } from 'k6/metrics';
+import { ENDPOINTS, DEFAULT_HEADERS } from './config/endpoints.js';
+import { generateTravelPlan } from './utils/data-generator.js';
+
+const PLANS = parseInt(__ENV.PLANS || '2000');
+const BATCH_SIZE = parseInt(__ENV.BATCH_SIZE || '500');
+
+const singleMs = new Trend('single_insert_total_ms');
+const batchMs = new Trend('batch_insert_total_ms');
+const created = new Counter('plans_created');
+
+export const options = {
+  vus: 1,
+  iterations: 1,
+  thresholds: {
+    checks: ['rate==1.0'],
+  },
+};
+
+// Послідовно, щоб режими не конкурували за пул з'єднань
+export default function () {
+  single();
+  batch();
+}
+
+function single() {
+  const started = Date.now();
+  for (let i = 0; i < PLANS; i++) {
+    const res = http.post(ENDPOINTS.TRAVEL_PLANS, JSON.stringify(generateTravelPlan()), {
+      headers: DEFAULT_HEADERS,
+      tags: { type: 'write', mode: 'single' },
+    });
+    if (check(res, { 'single 201': (r) => r.status === 201 })) {
+      created.add(1, { mode: 'single' });
+    }
+  }
+  singleMs.add(Date.now() - started);
+}
+
+function batch() {
+  const started = Date.now();
+  for (let done = 0; done < PLANS; done += BATCH_SIZE) {
+    const items = [];
+    for (let i = 0; i < Math.min(BATCH_SIZE, PLANS - done); i++) {
+      items.push(generateTravelPlan());
+    }
+    const res = http.post(`${ENDPOINTS.TRAVEL_PLANS}/batch`, JSON.stringify(items), {
+      headers: DEFAULT_HEADERS,
+      tags: { type: 'write', mode: 'batch' },
+    });
+    if (check(res, { 'batch 200, nothing rejected': (r) => r.status === 200 && r.json('rejected') === 0 })) {
+      created.add(res.json('created'), { mode: 'batch' });
+    }
+  }
+  batchMs.add(Date.now() - started);
+}
+
+export function handleSummary(data) {
+  const single = data.metrics.single_insert_total_ms.values.max;
+  const batched = data.metrics.batch_insert_total_ms.values.max;
+  const lines = [
+    `single: ${(PLANS / (single / 1000)).toFixed(0)} plans/s`,
+    `batch:  ${(PLANS / (batched / 1000)).toFixed(0)} plans/s (batch size ${BATCH_SIZE})`,
+    `speed-up: ${(single / batched).toFixed(1)}x`,
+  ];
+  return { stdout: lines.join('\n') + '\n' };
+}
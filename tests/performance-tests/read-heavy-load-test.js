@@ -16,10 +16,11 @@
  * 3. Cleanup фаза (teardown): Видаляє тестові дані
  * 
  * КОЖНА ІТЕРАЦІЯ (80% користувачів - READ PATH):
- * - Отримує список всіх travel plans (GET /api/travel-plans)
+ * - Отримує першу сторінку travel plans (GET /api/travel-plans, {items, next_cursor})
  * - Вибирає випадковий план і отримує його деталі (GET /api/travel-plans/:id)
  * - Читає деталі ще 2-3 планів (симуляція перегляду)
  * - Пауза між переглядами (реалістична поведінка)
+ * - Іноді оновлює список і гортає його далі (дві сторінки через next_cursor)
  * 
  * КОЖНА ІТЕРАЦІЯ (20% користувачів - WRITE PATH):
  * - Створює новий travel plan
@@ -235,9 +236,9 @@ export function readHeavyPath(data) {
   // --------------------------------------------------
   // 4. ПОВТОРНЕ ЧИТАННЯ СПИСКУ (refresh)
   // --------------------------------------------------
-  // 30% шанс що користувач оновить список
+  // 30% шанс що користувач оновить список і прогорне його на наступну сторінку
   if (Math.random() < 0.3) {
-    listTravelPlans();
+    listTravelPlans(2);
     readOperations.add(1);
   }
 
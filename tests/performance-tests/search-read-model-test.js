@@ -0,0 +1,73 @@
+/**
+ * ============================================================================
+ * SEARCH READ MODEL BENCHMARK
+ * ============================================================================
+ *
+ * МЕТА:
+ * Виміряти latency та алокації JVM на search / list ендпоінтах, які
+ * повертають TravelPlanView / LocationView (JDBC-проєкції) замість
+ * JPA-сутностей.
+ *
+ * ХІД ВИКОНАННЯ ТЕСТУ:
+ * 1. setup: читає jvm.gc.memory.allocated з /actuator/metrics
+ * 2. Основна фаза: 1 VU послідовно викликає search ендпоінти
+ * 3. teardown: повторно читає лічильник і друкує MB алокацій на запит
+ *
+ * ЗАПУСК (на засіяній БД, напр. 20k планів / 100k локацій):
+ *   k6 run performance-tests/search-read-model-test.js
+ *
+ * Для порівняння запустити на попередній та поточній версії і зіставити
+ * http_req_duration та "allocated MB/request".
+ *
+ * ============================================================================
+ */
+
+import http from 'k6/http';
+import { check } from 'k6';
+import { BASE_URL } from './config/endpoints.js';
+
+const ITERATIONS = parseInt(__ENV.ITERATIONS || '20');
+
+const SEARCH_URLS = [
+  `${BASE_URL}/api/plans/search`,
+  `${BASE_URL}/api/plans/by-travel-style/adventure`,
+  `${BASE_URL}/api/plans/by-budget-category/moderate`,
+  `${BASE_URL}/api/plans/by-tags?tags=europe,summer`,
+  `${BASE_URL}/api/plans/by-tags?tags=europe,summer&all_tags=true`,
+  `${BASE_URL}/api/locations/by-category/museum`,
+  `${BASE_URL}/api/locations/search?category=restaurant&min_rating=4`,
+];
+
+export const options = {
+  vus: 1,
+  iterations: ITERATIONS,
+  thresholds: {
+    checks: ['rate==1.0'],
+  },
+};
+
+function allocatedBytes() {
+  const res = http.get(`${BASE_URL}/actuator/metrics/jvm.gc.memory.allocated`, {
+    tags: { type: 'metrics' },
+  });
+  return res.status === 200 ? res.json().measurements[0].value : 0;
+}
+
+export function setup() {
+  // Warm-up: JIT and connection pool
+  SEARCH_URLS.forEach((url) => http.get(url, { tags: { type: 'warmup' } }));
+  return { allocatedBefore: allocatedBytes() };
+}
+
+export default function () {
+  SEARCH_URLS.forEach((url) => {
+    const res = http.get(url, { tags: { type: 'read' } });
+    check(res, { 'search 200': (r) => r.status === 200 });
+  });
+}
+
+export function teardown(data) {
+  const requests = ITERATIONS * SEARCH_URLS.length;
+  const allocated = allocatedBytes() - data.allocatedBefore;
+  console.log(`allocated MB/request: ${(allocated / 1e6 / requests).toFixed(1)}`);
+}
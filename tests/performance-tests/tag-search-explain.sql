@@ -0,0 +1,60 @@
+-- ============================================================================
+-- TAG SEARCH PLAN BENCHMARK
+-- ============================================================================
+--
+-- МЕТА:
+-- Перевірити, що пошук за тегами (/api/plans/by-tags, /api/plans/search?tags=)
+-- на 1M планів читає idx_travel_plans_metadata_tags, а не всю таблицю.
+--
+-- ХІД ВИКОНАННЯ:
+-- 1. У транзакції вставляє 1M планів з 1-3 тегами з 200 (Zipf-подібний розподіл)
+-- 2. ANALYZE, потім EXPLAIN (ANALYZE, BUFFERS) тих самих запитів, що й
+--    TravelPlanReadRepository.search (any-of і all-of, перша сторінка і keyset)
+-- 3. ROLLBACK - база лишається без змін
+--
+-- ЗАПУСК (на мігрованій БД):
+--   psql -h localhost -U postgres -d traveler -f performance-tests/tag-search-explain.sql
+--
+-- ОЧІКУВАНО: Bitmap Index Scan / BitmapOr по idx_travel_plans_metadata_tags,
+-- "Heap Blocks" лише для рядків з цими тегами, жодного Seq Scan on travel_plans.
+-- GIN не підтримує index-only scan: рядки читаються з heap, але тільки
+-- ті, на які вказує індекс.
+--
+-- ============================================================================
+
+BEGIN;
+
+INSERT INTO travel_plans (id, title, version, metadata, created_at, updated_at)
+SELECT gen_random_uuid(),
+       'Bench plan ' || g,
+       1,
+       jsonb_build_object('tags', (
+           SELECT jsonb_agg(DISTINCT 'tag' || floor(200 * power(random(), 3))::int)
+           FROM generate_series(1, 1 + (g % 3))
+       )),
+       now() - (g || ' seconds')::interval,
+       now()
+FROM generate_series(1, 1000000) AS g;
+
+ANALYZE travel_plans;
+
+-- any-of, two rare tags
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT id, created_at FROM travel_plans
+WHERE ((metadata->'tags') @> '["tag150"]' OR (metadata->'tags') @> '["tag199"]')
+ORDER BY created_at, id LIMIT 51;
+
+-- all-of, two frequent tags
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT id, created_at FROM travel_plans
+WHERE (metadata->'tags') @> '["tag0", "tag1"]'
+ORDER BY created_at, id LIMIT 51;
+
+-- next page of the all-of search
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT id, created_at FROM travel_plans
+WHERE (metadata->'tags') @> '["tag0", "tag1"]'
+  AND (created_at, id) > (now() - interval '1 day', '00000000-0000-0000-0000-000000000000')
+ORDER BY created_at, id LIMIT 51;
+
+ROLLBACK;
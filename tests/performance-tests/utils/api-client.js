@@ -29,7 +29,7 @@ function makeRequest(method, url, body = null, expectedStatuses = [200], operati
     headers: DEFAULT_HEADERS,
     tags: {
       type: operationType,
-      endpoint: url.replace(/\/[0-9a-f-]{36}/g, '/:id'),
+      endpoint: url.split('?')[0].replace(/\/[0-9a-f-]{36}/g, '/:id'),
     },
     responseCallback: http.expectedStatuses(...statuses),
   };
@@ -373,31 +373,45 @@ export function deleteLocation(locationId) {
 }
 
 /**
- * Отримує список всіх travel plans
- * @returns {array} Масив планів або null
+ * Отримує travel plans посторінково (keyset-пагінація: {items, next_cursor})
+ * @param {number} maxPages - Скільки сторінок прочитати, ідучи за next_cursor
+ * @param {number} limit - Розмір сторінки (без нього — серверний, 50)
+ * @returns {array} Плани з прочитаних сторінок або null
  */
-export function listTravelPlans() {
-  const response = makeRequest(
-    'GET',
-    ENDPOINTS.TRAVEL_PLANS,
-    null,
-    200,
-    'read'
-  );
-
-  check(response, {
-    'plans list retrieved': (r) => r.status === 200,
-    'response is array': (r) => {
-      if (r.status !== 200) return false;
-      const body = JSON.parse(r.body);
-      return Array.isArray(body);
-    },
-  });
-
-  if (response.status === 200) {
-    return JSON.parse(response.body);
+export function listTravelPlans(maxPages = 1, limit = null) {
+  const plans = [];
+  let cursor = null;
+
+  for (let page = 0; page < maxPages; page++) {
+    const query = [];
+    if (limit) query.push(`limit=${limit}`);
+    if (cursor) query.push(`cursor=${encodeURIComponent(cursor)}`);
+    const url = query.length > 0
+      ? `${ENDPOINTS.TRAVEL_PLANS}?${query.join('&')}`
+      : ENDPOINTS.TRAVEL_PLANS;
+
+    const response = makeRequest('GET', url, null, 200, 'read');
+
+    check(response, {
+      'plans list retrieved': (r) => r.status === 200,
+      'response is page of plans': (r) => {
+        if (r.status !== 200) return false;
+        const body = JSON.parse(r.body);
+        return Array.isArray(body.items) && 'next_cursor' in body;
+      },
+    });
+
+    if (response.status !== 200) {
+      return null;
+    }
+
+    const body = JSON.parse(response.body);
+    plans.push(...body.items);
+    cursor = body.next_cursor;
+    if (!cursor) break;
   }
-  return null;
+
+  return plans;
 }
 
 /**
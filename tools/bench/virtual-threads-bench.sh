@@ -0,0 +1,121 @@
+#!/bin/bash
+# virtual-threads-bench.sh - Platform vs virtual threads on the k6 read-heavy
+# and write-heavy scenarios.
+#
+# Usage: ./virtual-threads-bench.sh [scenario...]      (default: read write)
+#
+# Потрібно: запущений локальний Postgres (docker compose up postgres),
+# k6 і jq у PATH. DB_HOST / DB_PORT / DB_NAME / DB_USER / DB_PASSWORD
+# передаються застосунку як є.
+#
+# Для кожного режиму (platform, virtual) застосунок запускається заново з
+# VIRTUAL_THREADS=false/true, прогрівається і проганяє кожен сценарій.
+# Підсумки k6 зберігаються в reports/bench-<mode>-<scenario>.json, у кінці
+# друкується таблиця: throughput (req/s), p95, p99 і частка помилок.
+
+SCRIPT_DIR="$(cd "$(dirname "$0")" && pwd)"
+PROJECT_ROOT="$(cd "$SCRIPT_DIR/../.." && pwd)"
+REPORTS="$PROJECT_ROOT/reports"
+APP_PORT="${APP_PORT:-4567}"
+API_URL="http://localhost:$APP_PORT"
+if [ $# -gt 0 ]; then SCENARIOS=("$@"); else SCENARIOS=(read write); fi
+
+# Кольори для виводу
+RED='\033[0;31m'
+GREEN='\033[0;32m'
+YELLOW='\033[1;33m'
+NC='\033[0m' # No Color
+
+declare -A SCRIPTS=(
+    [read]="read-heavy-load-test.js"
+    [write]="write-heavy-load-test.js"
+)
+
+for scenario in "${SCENARIOS[@]}"; do
+    if [ -z "${SCRIPTS[$scenario]}" ]; then
+        echo -e "${RED}Unknown scenario: $scenario (read, write)${NC}"
+        exit 1
+    fi
+done
+
+for tool in k6 jq java curl; do
+    if ! command -v "$tool" > /dev/null; then
+        echo -e "${RED}$tool not found in PATH${NC}"
+        exit 1
+    fi
+done
+
+JAR=$(ls "$PROJECT_ROOT"/target/traveler-api-*.jar 2> /dev/null | grep -v original | head -1)
+if [ -z "$JAR" ]; then
+    echo -e "${YELLOW}Building traveler-api...${NC}"
+    (cd "$PROJECT_ROOT" && mvn -q -B package -DskipTests) || { echo -e "${RED}Build failed!${NC}"; exit 1; }
+    JAR=$(ls "$PROJECT_ROOT"/target/traveler-api-*.jar | grep -v original | head -1)
+fi
+
+mkdir -p "$REPORTS"
+
+APP_PID=""
+stop_app() {
+    if [ -n "$APP_PID" ]; then
+        kill "$APP_PID" 2> /dev/null
+        wait "$APP_PID" 2> /dev/null
+        APP_PID=""
+    fi
+}
+trap stop_app EXIT
+
+start_app() {
+    local virtual=$1
+    VIRTUAL_THREADS=$virtual APP_PORT=$APP_PORT \
+        java -jar "$JAR" > "$REPORTS/bench-app-$2.log" 2>&1 &
+    APP_PID=$!
+
+    for _ in $(seq 1 60); do
+        if curl -sf "$API_URL/api/health" > /dev/null; then
+            return 0
+        fi
+        sleep 1
+    done
+    echo -e "${RED}Application did not start, see $REPORTS/bench-app-$2.log${NC}"
+    exit 1
+}
+
+warm_up() {
+    # JIT і пул з'єднань, щоб перший сценарій не платив за старт
+    k6 run --quiet -e API_URL="$API_URL" --vus 10 --duration 30s \
+        "$PROJECT_ROOT/tests/performance-tests/smoke-test.js" > /dev/null 2>&1
+}
+
+for mode in platform virtual; do
+    [ "$mode" = virtual ] && virtual=true || virtual=false
+
+    echo -e "${YELLOW}== $mode threads ==${NC}"
+    start_app "$virtual" "$mode"
+    warm_up
+
+    for scenario in "${SCENARIOS[@]}"; do
+        echo -e "${GREEN}Running $scenario ($mode)...${NC}"
+        # Пороги сценарію можуть не виконатися: порівнюємо цифри, а не pass/fail
+        k6 run -e API_URL="$API_URL" \
+            --summary-trend-stats "avg,med,p(95),p(99),max" \
+            --summary-export "$REPORTS/bench-$mode-$scenario.json" \
+            "$PROJECT_ROOT/tests/performance-tests/${SCRIPTS[$scenario]}" \
+            > "$REPORTS/bench-$mode-$scenario.log" 2>&1
+    done
+
+    stop_app
+done
+
+printf "\n%-8s %-9s %12s %10s %10s %8s\n" scenario mode "req/s" "p95 ms" "p99 ms" "failed"
+for scenario in "${SCENARIOS[@]}"; do
+    for mode in platform virtual; do
+        jq -r --arg s "$scenario" --arg m "$mode" '
+            [$s, $m,
+             (.metrics.http_reqs.rate | . * 10 | round / 10),
+             (.metrics.http_req_duration["p(95)"] | round),
+             (.metrics.http_req_duration["p(99)"] | round),
+             ((.metrics.http_req_failed.value // 0) * 100 | round | tostring + "%")]
+            | @tsv' "$REPORTS/bench-$mode-$scenario.json" \
+            | awk -F'\t' '{ printf "%-8s %-9s %12s %10s %10s %8s\n", $1, $2, $3, $4, $5, $6 }'
+    done
+done